@@ -0,0 +1,85 @@
+package org.opendevstack.projects_info_service.benchmark;
+
+import org.opendevstack.projects_info_service.configuration.MockConfiguration;
+import org.opendevstack.projects_info_service.configuration.ProjectFilterConfiguration;
+import org.opendevstack.projects_info_service.server.model.OpenshiftProjectCluster;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Synthetic inputs shaped like production data: project keys spread over the six clusters, and Azure groups that
+ * follow the project roles naming convention.
+ */
+final class BenchmarkData {
+
+    static final String GROUP_PREFIX = "BI-AS-ATLASSIAN-P";
+    static final List<String> GROUP_SUFFIXES = List.of("TEAM", "MANAGER", "STAKEHOLDER");
+    static final List<String> CLUSTERS = List.of("us-test", "eu", "eu2", "us", "cn", "inh");
+
+    private BenchmarkData() {
+    }
+
+    static String projectKey(int index) {
+        return "PROJECT" + index;
+    }
+
+    // Every project lives in two clusters, so merging duplicated project keys is part of the work
+    static List<OpenshiftProjectCluster> openshiftProjects(int projects) {
+        List<OpenshiftProjectCluster> result = new ArrayList<>(projects * 2);
+
+        for (int i = 0; i < projects; i++) {
+            result.add(new OpenshiftProjectCluster(projectKey(i), CLUSTERS.get(i % CLUSTERS.size())));
+            result.add(new OpenshiftProjectCluster(projectKey(i), CLUSTERS.get((i + 1) % CLUSTERS.size())));
+        }
+
+        return result;
+    }
+
+    // A group per project, plus the same amount of groups unrelated to projects
+    static Set<String> azureGroups(int projects) {
+        Set<String> result = new HashSet<>(projects * 4);
+
+        for (int i = 0; i < projects; i++) {
+            result.add(GROUP_PREFIX + "-" + projectKey(i) + "-" + GROUP_SUFFIXES.get(i % GROUP_SUFFIXES.size()));
+            result.add("SOME-OTHER-GROUP-" + i);
+        }
+
+        return result;
+    }
+
+    static ProjectFilterConfiguration projectFilterConfiguration() {
+        var configuration = new ProjectFilterConfiguration();
+        configuration.setProjectRolesGroupPrefix(GROUP_PREFIX);
+        configuration.setProjectRolesGroupSuffixes(GROUP_SUFFIXES);
+
+        return configuration;
+    }
+
+    static MockConfiguration mockConfiguration(int users) {
+        var usersProjects = new StringBuilder("{");
+        var usersGroups = new StringBuilder("{");
+
+        for (int i = 0; i < users; i++) {
+            var separator = i == 0 ? "" : "; ";
+            usersProjects.append(separator).append(userEmail(i)).append(":[")
+                    .append(projectKey(i)).append(", ").append(projectKey(i + 1)).append("]");
+            usersGroups.append(separator).append(userEmail(i)).append(":[")
+                    .append(GROUP_PREFIX).append("-").append(projectKey(i)).append("-TEAM]");
+        }
+
+        var configuration = new MockConfiguration();
+        configuration.setClusters(List.of("US-TEST", " CN", " EU"));
+        configuration.setDefaultProjects(List.of("PROJECT-1:us-test", " PROJECT-2:cn", " PROJECT-3"));
+        configuration.setUsersProjects(usersProjects.append("}").toString());
+        configuration.setUsersGroups(usersGroups.append("}").toString());
+
+        return configuration;
+    }
+
+    static String userEmail(int index) {
+        return "user" + index + "@example.com";
+    }
+}
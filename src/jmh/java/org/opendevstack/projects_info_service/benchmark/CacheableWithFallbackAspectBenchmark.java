@@ -0,0 +1,155 @@
+package org.opendevstack.projects_info_service.benchmark;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.opendevstack.projects_info_service.server.annotations.CacheableWithFallback;
+import org.opendevstack.projects_info_service.server.annotations.CacheableWithFallbackAspect;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.interceptor.SimpleKeyGenerator;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache hit path of CacheableWithFallbackAspect, through a real AspectJ proxy and Caffeine caches, so the
+ * measurement includes the join point and key generation overhead a cached call pays in production.
+ * <p>
+ * The baseline benchmarks run the same calls through the former advice, which parsed and evaluated the defaultValue
+ * SpEL expression and looked both caches up on every call, hit or not.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CacheableWithFallbackAspectBenchmark {
+
+    private ProjectsSource projectsSource;
+
+    private ProjectsSource baselineProjectsSource;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        var cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(List.of(
+                new CaffeineCache("projects", Caffeine.newBuilder().build()),
+                new CaffeineCache("projects-fallback", Caffeine.newBuilder().build())));
+        cacheManager.afterPropertiesSet();
+
+        var aspect = new CacheableWithFallbackAspect(cacheManager, Executors.newVirtualThreadPerTaskExecutor(),
+                new DefaultListableBeanFactory(), new SimpleMeterRegistry());
+
+        var proxyFactory = new AspectJProxyFactory(new ProjectsSource());
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(aspect);
+        projectsSource = proxyFactory.getProxy();
+
+        var baselineProxyFactory = new AspectJProxyFactory(new ProjectsSource());
+        baselineProxyFactory.setProxyTargetClass(true);
+        baselineProxyFactory.addAspect(new BaselineAspect(cacheManager));
+        baselineProjectsSource = baselineProxyFactory.getProxy();
+
+        // Fill the caches, so every benchmark call is a hit. Both proxies share them.
+        projectsSource.allProjects();
+        projectsSource.userProjects("user@example.com");
+    }
+
+    @Benchmark
+    public List<String> baselineHitWithoutArguments() {
+        return baselineProjectsSource.allProjects();
+    }
+
+    @Benchmark
+    public List<String> baselineHitWithArgument() {
+        return baselineProjectsSource.userProjects("user@example.com");
+    }
+
+    @Benchmark
+    public List<String> hitWithoutArguments() {
+        return projectsSource.allProjects();
+    }
+
+    @Benchmark
+    public List<String> hitWithArgument() {
+        return projectsSource.userProjects("user@example.com");
+    }
+
+    // Hit path of the former advice. Misses only call the method, as the benchmark never reaches them.
+    @Aspect
+    public static class BaselineAspect {
+
+        private final CacheManager cacheManager;
+
+        public BaselineAspect(CacheManager cacheManager) {
+            this.cacheManager = cacheManager;
+        }
+
+        @Around(value = "@annotation(cacheableWithFallback)", argNames = "pjp,cacheableWithFallback")
+        public Object cacheWithFallback(ProceedingJoinPoint pjp, CacheableWithFallback cacheableWithFallback)
+                throws Throwable {
+            Object defaultValue = defaultValue(pjp, cacheableWithFallback.defaultValue());
+
+            Object[] args = pjp.getArgs();
+            Object key = args == null || args.length == 0
+                    ? pjp.getSignature().getName()
+                    : SimpleKeyGenerator.generateKey(args);
+            Cache primaryCache = cacheManager.getCache(cacheableWithFallback.primary());
+            Cache fallbackCache = cacheManager.getCache(cacheableWithFallback.fallback());
+
+            Cache.ValueWrapper cached = primaryCache != null ? primaryCache.get(key) : null;
+
+            if (cached != null && cached.get() != null) {
+                return cached.get();
+            }
+
+            Object result = pjp.proceed();
+
+            return result != null || fallbackCache != null ? result : defaultValue;
+        }
+
+        private static Object defaultValue(ProceedingJoinPoint pjp, String defaultValue) {
+            Class<?> returnType = ((MethodSignature) pjp.getSignature()).getMethod().getReturnType();
+            Object result = new SpelExpressionParser().parseExpression(defaultValue)
+                    .getValue(new StandardEvaluationContext());
+
+            if (result != null && !returnType.isAssignableFrom(result.getClass())) {
+                throw new IllegalArgumentException("Default value type mismatch");
+            }
+
+            return result;
+        }
+    }
+
+    public static class ProjectsSource {
+
+        @CacheableWithFallback(primary = "projects", fallback = "projects-fallback",
+                defaultValue = "T(java.util.Collections).emptyList()")
+        public List<String> allProjects() {
+            return List.of("PROJECT1", "PROJECT2");
+        }
+
+        @CacheableWithFallback(primary = "projects", fallback = "projects-fallback",
+                defaultValue = "T(java.util.Collections).emptyList()")
+        public List<String> userProjects(String userEmail) {
+            return List.of("PROJECT1");
+        }
+    }
+}
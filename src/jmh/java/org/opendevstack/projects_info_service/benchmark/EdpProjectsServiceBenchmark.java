@@ -0,0 +1,45 @@
+package org.opendevstack.projects_info_service.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.opendevstack.projects_info_service.server.dto.ProjectInfo;
+import org.opendevstack.projects_info_service.server.model.OpenshiftProjectCluster;
+import org.opendevstack.projects_info_service.server.service.EdpProjectsService;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class EdpProjectsServiceBenchmark {
+
+    @Param({"10000", "50000"})
+    private int projects;
+
+    private EdpProjectsService edpProjectsService;
+
+    private Set<String> azureGroups;
+
+    private List<OpenshiftProjectCluster> openshiftProjects;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        edpProjectsService = new EdpProjectsService(BenchmarkData.projectFilterConfiguration());
+        azureGroups = BenchmarkData.azureGroups(projects);
+        openshiftProjects = BenchmarkData.openshiftProjects(projects);
+    }
+
+    @Benchmark
+    public Set<ProjectInfo> filterProjects() {
+        return edpProjectsService.filterProjects(azureGroups, openshiftProjects);
+    }
+}
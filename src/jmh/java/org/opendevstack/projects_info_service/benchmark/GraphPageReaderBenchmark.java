@@ -0,0 +1,77 @@
+package org.opendevstack.projects_info_service.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.opendevstack.projects_info_service.server.client.GraphPageReader;
+import org.opendevstack.projects_info_service.server.client.GraphPageReader.GraphPage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of a Graph memberOf page: the former approach, which read the body as a String and parsed it into a tree
+ * twice (once with a new ObjectMapper), against the single streaming pass of GraphPageReader.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GraphPageReaderBenchmark {
+
+    @Param({"1000"})
+    private int groups;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private byte[] page;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        var body = new StringBuilder("{\"@odata.context\":\"https://graph.microsoft.com/v1.0/$metadata#directoryObjects\",")
+                .append("\"@odata.nextLink\":\"https://graph.microsoft.com/v1.0/me/memberOf?$top=999&$skiptoken=X\",")
+                .append("\"value\":[");
+
+        for (int i = 0; i < groups; i++) {
+            body.append(i == 0 ? "" : ",")
+                    .append("{\"@odata.type\":\"#microsoft.graph.group\",\"id\":\"").append(i)
+                    .append("\",\"displayName\":\"").append(BenchmarkData.GROUP_PREFIX).append("-")
+                    .append(BenchmarkData.projectKey(i)).append("-TEAM\",")
+                    .append("\"description\":\"Project roles group\",\"groupTypes\":[],\"securityEnabled\":true}");
+        }
+
+        page = body.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public GraphPage treeParsedTwice() throws IOException {
+        var body = new String(page, StandardCharsets.UTF_8);
+        List<String> displayNames = new ArrayList<>();
+
+        for (JsonNode group : mapper.readTree(body).path("value")) {
+            if (group.has("displayName")) {
+                displayNames.add(group.get("displayName").asText());
+            }
+        }
+
+        JsonNode nextLink = new ObjectMapper().readTree(body).get("@odata.nextLink");
+
+        return new GraphPage(displayNames, nextLink != null ? nextLink.asText() : null);
+    }
+
+    @Benchmark
+    public GraphPage streamedOnce() throws IOException {
+        return GraphPageReader.read(mapper.getFactory(), new ByteArrayInputStream(page));
+    }
+}
@@ -0,0 +1,49 @@
+package org.opendevstack.projects_info_service.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.opendevstack.projects_info_service.server.dto.ProjectInfo;
+import org.opendevstack.projects_info_service.server.service.MocksService;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of the mock user configuration strings, which MocksService does on every call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MocksServiceBenchmark {
+
+    @Param({"10", "1000"})
+    private int users;
+
+    private MocksService mocksService;
+
+    private String userEmail;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mocksService = new MocksService(BenchmarkData.mockConfiguration(users));
+        userEmail = BenchmarkData.userEmail(users / 2);
+    }
+
+    @Benchmark
+    public Map<String, ProjectInfo> getProjectsAndClusters() {
+        return mocksService.getProjectsAndClusters(userEmail);
+    }
+
+    @Benchmark
+    public Set<String> getUserGroups() {
+        return mocksService.getUserGroups(userEmail);
+    }
+}
@@ -0,0 +1,105 @@
+package org.opendevstack.projects_info_service.benchmark;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.opendevstack.projects_info_service.configuration.PlatformsConfiguration;
+import org.opendevstack.projects_info_service.server.client.AzureGraphClient;
+import org.opendevstack.projects_info_service.server.client.PlatformsYmlClient;
+import org.opendevstack.projects_info_service.server.client.TestingHubClient;
+import org.opendevstack.projects_info_service.server.dto.Section;
+import org.opendevstack.projects_info_service.server.model.Platform;
+import org.opendevstack.projects_info_service.server.model.PlatformLink;
+import org.opendevstack.projects_info_service.server.model.PlatformSection;
+import org.opendevstack.projects_info_service.server.model.PlatformsWithTitle;
+import org.opendevstack.projects_info_service.server.model.TestingHubProject;
+import org.opendevstack.projects_info_service.server.service.PlatformService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Token replacement of PlatformService. The YAML configuration is stubbed with a platforms file of 20 platforms and
+ * a sections file of 5 sections with 10 links each, every URL carrying project key tokens.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PlatformServiceBenchmark {
+
+    private static final String PROJECT_KEY = "Project1";
+    private static final String CLUSTER = "eu";
+
+    private PlatformService platformService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        var platformsConfiguration = new PlatformsConfiguration();
+        platformsConfiguration.setBasePath("https://bitbucket.example.com/");
+        platformsConfiguration.setClusters(Map.of(CLUSTER, "platforms.yml"));
+
+        var platformsYmlClient = mock(PlatformsYmlClient.class);
+        when(platformsYmlClient.fetchPlatformsFromYaml(anyString())).thenReturn(Pair.of("Platforms", platforms()));
+        when(platformsYmlClient.fetchSectionsFromYaml(anyString())).thenReturn(sections());
+
+        var testingHubClient = mock(TestingHubClient.class);
+        when(testingHubClient.getDefaultProjects()).thenReturn(Set.of(new TestingHubProject("1", PROJECT_KEY)));
+
+        platformService = new PlatformService(platformsConfiguration, BenchmarkData.projectFilterConfiguration(),
+                platformsYmlClient, mock(AzureGraphClient.class), testingHubClient);
+    }
+
+    @Benchmark
+    public PlatformsWithTitle getPlatforms() {
+        return platformService.getPlatforms(PROJECT_KEY, CLUSTER);
+    }
+
+    @Benchmark
+    public List<Section> getSections() {
+        return platformService.getSections(PROJECT_KEY, CLUSTER);
+    }
+
+    private static List<Platform> platforms() {
+        List<Platform> platforms = new ArrayList<>();
+
+        for (int i = 0; i < 20; i++) {
+            var url = i % 5 == 0
+                    ? "https://testinghub.example.com/projects/${testingHubProject}"
+                    : "https://platform" + i + ".example.com/${projectKey}/${project_key}/${PROJECT_KEY}";
+
+            platforms.add(new Platform("platform" + i, "Platform " + i, url, "P" + i));
+        }
+
+        return platforms;
+    }
+
+    private static List<PlatformSection> sections() {
+        List<PlatformSection> sections = new ArrayList<>();
+
+        for (int i = 0; i < 5; i++) {
+            List<PlatformLink> links = new ArrayList<>();
+
+            for (int j = 0; j < 10; j++) {
+                links.add(new PlatformLink("Link " + j, "https://docs.example.com/${projectKey}/" + j + "/${project_key}",
+                        "link", "Tooltip " + j));
+            }
+
+            sections.add(new PlatformSection("Section " + i, "Tooltip " + i, links));
+        }
+
+        return sections;
+    }
+}
@@ -0,0 +1,149 @@
+package org.opendevstack.projects_info_service.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.opendevstack.projects_info_service.server.client.AzureGraphClient;
+import org.opendevstack.projects_info_service.server.client.ProjectWhitelistYmlClient;
+import org.opendevstack.projects_info_service.server.dto.ProjectInfo;
+import org.opendevstack.projects_info_service.server.dto.ProjectPlatforms;
+import org.opendevstack.projects_info_service.server.facade.ProjectPlatformsCache;
+import org.opendevstack.projects_info_service.server.facade.ProjectsFacade;
+import org.opendevstack.projects_info_service.server.model.OpenshiftProjectCluster;
+import org.opendevstack.projects_info_service.server.model.PlatformsWithTitle;
+import org.opendevstack.projects_info_service.server.security.GroupValidatorService;
+import org.opendevstack.projects_info_service.server.service.EdpProjectsService;
+import org.opendevstack.projects_info_service.server.service.GraphTokenService;
+import org.opendevstack.projects_info_service.server.service.GroupMembershipIndex;
+import org.opendevstack.projects_info_service.server.service.MocksService;
+import org.opendevstack.projects_info_service.server.service.OpenShiftProjectService;
+import org.opendevstack.projects_info_service.server.service.PlatformService;
+import org.opendevstack.projects_info_service.server.service.ProjectClusterIndex;
+import org.opendevstack.projects_info_service.server.service.TokenClaimsService;
+import org.opendevstack.projects_info_service.server.service.UserGroupsService;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Merge and sanitize of ProjectsFacade.getProjects, the single project lookup of getProject, the project cluster
+ * lookup behind getProjectPlatforms, and a dashboard sized batch of getProjectsPlatforms. Remote clients are stubbed, so only the in-process work is measured:
+ * filtering the cluster projects by the user groups, merging clusters and sorting the result. After the first
+ * invocation the batch is served from the rendered platforms cache, which is the steady state of a dashboard.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ProjectsFacadeBenchmark {
+
+    private static final String TOKEN = "access-token";
+
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"10000", "50000"})
+    private int projects;
+
+    private ProjectsFacade projectsFacade;
+
+    private ProjectClusterIndex projectClusterIndex;
+
+    private String projectKey;
+
+    private List<String> batchProjectKeys;
+
+    private ExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        var azureGraphClient = mock(AzureGraphClient.class);
+        var openShiftProjectService = mock(OpenShiftProjectService.class);
+        var graphTokenService = mock(GraphTokenService.class);
+        var projectWhitelistYmlClient = mock(ProjectWhitelistYmlClient.class);
+        var userGroupsService = mock(UserGroupsService.class);
+
+        var openshiftProjects = BenchmarkData.openshiftProjects(projects);
+        var azureGroups = BenchmarkData.azureGroups(projects);
+
+        when(graphTokenService.getGraphToken(anyString())).thenReturn(TOKEN);
+        when(userGroupsService.getUserGroups(anyString())).thenReturn(azureGroups);
+        when(azureGraphClient.getUserEmail(anyString())).thenReturn(BenchmarkData.userEmail(0));
+        when(openShiftProjectService.fetchProjects()).thenReturn(openshiftProjects);
+
+        var mocksService = new MocksService(BenchmarkData.mockConfiguration(100));
+        projectClusterIndex = new ProjectClusterIndex(openShiftProjectService, mocksService);
+        projectKey = openshiftProjects.get(openshiftProjects.size() / 2).getProject();
+        batchProjectKeys = openshiftProjects.stream()
+                .map(OpenshiftProjectCluster::getProject)
+                .distinct()
+                .limit(BATCH_SIZE)
+                .toList();
+
+        var platformService = mock(PlatformService.class);
+        when(platformService.getPlatforms(anyString(), anyString())).thenReturn(PlatformsWithTitle.builder()
+                .title("Platforms")
+                .platforms(Map.of())
+                .build());
+
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+
+        projectsFacade = new ProjectsFacade(
+                azureGraphClient,
+                openShiftProjectService,
+                new EdpProjectsService(BenchmarkData.projectFilterConfiguration()),
+                mocksService,
+                platformService,
+                mock(GroupValidatorService.class),
+                projectWhitelistYmlClient,
+                graphTokenService,
+                mock(TokenClaimsService.class),
+                userGroupsService,
+                mock(GroupMembershipIndex.class),
+                projectClusterIndex,
+                new ProjectPlatformsCache(new ObjectMapper(), new SimpleMeterRegistry(), Duration.ofMinutes(10),
+                        BATCH_SIZE),
+                executor,
+                4);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.close();
+    }
+
+    @Benchmark
+    public Map<String, ProjectInfo> getProjects() {
+        return projectsFacade.getProjects(TOKEN);
+    }
+
+    @Benchmark
+    public ProjectInfo getProject() {
+        return projectsFacade.getProject(TOKEN, projectKey);
+    }
+
+    @Benchmark
+    public List<String> projectClusters() {
+        return projectClusterIndex.clustersOf(projectKey);
+    }
+
+    @Benchmark
+    public Map<String, ProjectPlatforms> getProjectsPlatforms() {
+        return projectsFacade.getProjectsPlatforms(batchProjectKeys);
+    }
+}
@@ -2,6 +2,7 @@ package org.opendevstack.projects_info_service.configuration;
 
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.RemovalListener;
+import com.github.benmanes.caffeine.cache.Scheduler;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.Cache;
@@ -9,6 +10,7 @@ import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.caffeine.CaffeineCache;
 import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -26,6 +28,8 @@ public class CacheConfiguration {
 
     private final CacheSpecPropertiesConfiguration cacheSpecProperties;
 
+    private final ApplicationEventPublisher eventPublisher;
+
     @Bean(CUSTOM_CACHE_MANAGER_NAME)
     public CacheManager customCacheManager() {
         SimpleCacheManager manager = new SimpleCacheManager();
@@ -49,13 +53,25 @@ public class CacheConfiguration {
             }
         };
 
+        // Lets derived data, such as rendered responses, follow the entries they were built from. Only the caches
+        // such data is built from publish their removals.
+        RemovalListener<Object, Object> removalListener = spec.isPublishRemovals()
+                ? (key, value, cause) -> {
+                    listener.onRemoval(key, value, cause);
+                    eventPublisher.publishEvent(new CacheEntryRemovedEvent(name, key));
+                }
+                : listener;
+
         return new CaffeineCache(
                 name,
                 Caffeine.newBuilder()
                         .expireAfterWrite(spec.getTtl(), TimeUnit.SECONDS)
                         .maximumSize(spec.getMaxSize())
                         .evictionListener(listener)
-                        .removalListener(listener)
+                        .removalListener(removalListener)
+                        // Expired entries are removed, and their listeners notified, without waiting for a cache access
+                        .scheduler(Scheduler.systemScheduler())
+                        .recordStats() // Hit and miss counts are published as cache metrics
                         .build()
         );
     }
@@ -0,0 +1,24 @@
+package org.opendevstack.projects_info_service.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "http.cache-control")
+public class CacheControlConfiguration {
+
+    // max-age of responses that depend on the caller. Zero makes clients revalidate them with If-None-Match every time.
+    private Duration userMaxAge = Duration.ZERO;
+
+    // max-age of responses that are the same for every caller, such as the project platforms
+    private Duration publicMaxAge = Duration.ofSeconds(60);
+
+    // Adds Vary: Authorization to caller dependent responses, so shared caches keep one copy per token
+    private boolean varyByAuthorization = true;
+}
@@ -0,0 +1,7 @@
+package org.opendevstack.projects_info_service.configuration;
+
+/**
+ * Published when an entry leaves one of the custom caches, whether it expired, was evicted, replaced or removed.
+ */
+public record CacheEntryRemovedEvent(String cacheName, Object key) {
+}
@@ -19,5 +19,7 @@ public class CacheSpecPropertiesConfiguration {
     public static class CacheSpec {
         private long ttl;
         private int maxSize;
+        // Publishes a CacheEntryRemovedEvent for every entry that leaves the cache
+        private boolean publishRemovals;
     }
 }
@@ -0,0 +1,19 @@
+package org.opendevstack.projects_info_service.configuration;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class ExecutorConfiguration {
+
+    public static final String VIRTUAL_THREAD_EXECUTOR_NAME = "virtualThreadExecutor";
+
+    // Outbound calls are IO bound, so a virtual thread per task is cheaper than sizing a platform thread pool
+    @Bean(name = VIRTUAL_THREAD_EXECUTOR_NAME, destroyMethod = "close")
+    public ExecutorService virtualThreadExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+}
@@ -0,0 +1,43 @@
+package org.opendevstack.projects_info_service.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "http.client")
+public class HttpClientConfiguration {
+
+    // Connections of the whole pool, and of a single destination unless its route says otherwise
+    private int maxTotal = 200;
+    private int maxPerRoute = 20;
+
+    private Duration connectTimeout = Duration.ofSeconds(5);
+    private Duration readTimeout = Duration.ofSeconds(30);
+
+    // How long a request waits for a free pooled connection
+    private Duration connectionRequestTimeout = Duration.ofSeconds(5);
+
+    // Idle connections are closed after this time, and no connection is reused after its time to live
+    private Duration idleTimeout = Duration.ofSeconds(30);
+    private Duration timeToLive = Duration.ofMinutes(5);
+
+    // Per destination limits, keyed by a free name. Unset values fall back to the defaults above.
+    private Map<String, Route> routes = new HashMap<>();
+
+    @Getter
+    @Setter
+    public static class Route {
+        private String url;
+        private Integer maxConnections;
+        private Duration connectTimeout;
+        private Duration readTimeout;
+    }
+}
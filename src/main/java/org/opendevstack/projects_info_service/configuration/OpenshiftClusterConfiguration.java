@@ -4,7 +4,9 @@ import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
 
+import java.time.Duration;
 import java.util.Map;
 
 @Getter
@@ -12,6 +14,27 @@ import java.util.Map;
 @Configuration
 @ConfigurationProperties(prefix = "openshift.api")
 public class OpenshiftClusterConfiguration {
+
+    // Optional key of a cluster entry, overriding labelSelector for that cluster
+    public static final String LABEL_SELECTOR_KEY = "label-selector";
+
     private Map<String, Map<String, String>> clusters;
 
-}
\ No newline at end of file
+    // Deadline for a single cluster. A slow cluster is skipped instead of delaying the others.
+    private Duration clusterTimeout = Duration.ofSeconds(10);
+
+    // Budget for the whole fan-out. Clusters not answered by then are left out of the result.
+    private Duration overallTimeout = Duration.ofSeconds(20);
+
+    // Projects requested per page, with limit/continue chunking. Zero or less lists all projects in one response.
+    private int pageSize = 500;
+
+    // Kubernetes label selector sent to every cluster without one of its own. Empty means no selector.
+    private String labelSelector;
+
+    public String labelSelectorOf(Map<String, String> cluster) {
+        var clusterSelector = cluster.get(LABEL_SELECTOR_KEY);
+
+        return StringUtils.hasText(clusterSelector) ? clusterSelector : labelSelector;
+    }
+}
@@ -1,17 +1,85 @@
 package org.opendevstack.projects_info_service.configuration;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+@Slf4j
 @Configuration
 public class RestConfiguration {
 
+    public static final String CONNECTION_POOL_METRICS_NAME = "rest-template";
+
     @Bean
-    public RestTemplate restTemplate(RestTemplateBuilder builder) {
-        return builder.build();
+    public RestTemplate restTemplate(RestTemplateBuilder builder, CloseableHttpClient httpClient) {
+        return builder
+                .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(httpClient))
+                .build();
+    }
+
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager httpClientConnectionManager(HttpClientConfiguration httpClientConfig,
+                                                                          OpenshiftClusterConfiguration openshiftClusterConfig,
+                                                                          MeterRegistry meterRegistry) {
+        var routes = resolveRoutes(httpClientConfig, openshiftClusterConfig);
+        var defaultConnectionConfig = connectionConfig(httpClientConfig, null);
+
+        Map<HttpHost, ConnectionConfig> connectionConfigs = new HashMap<>();
+        routes.forEach((host, route) -> connectionConfigs.put(host, connectionConfig(httpClientConfig, route)));
+
+        var connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(httpClientConfig.getMaxTotal())
+                .setMaxConnPerRoute(httpClientConfig.getMaxPerRoute())
+                .setConnectionConfigResolver(route ->
+                        connectionConfigs.getOrDefault(route.getTargetHost(), defaultConnectionConfig))
+                .build();
+
+        routes.forEach((host, route) -> {
+            if (route.getMaxConnections() != null) {
+                connectionManager.setMaxPerRoute(new HttpRoute(host, null, "https".equals(host.getSchemeName())),
+                        route.getMaxConnections());
+            }
+        });
+
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, CONNECTION_POOL_METRICS_NAME)
+                .bindTo(meterRegistry);
+
+        return connectionManager;
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient httpClient(PoolingHttpClientConnectionManager connectionManager,
+                                          HttpClientConfiguration httpClientConfig) {
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(toTimeout(httpClientConfig.getConnectionRequestTimeout()))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofMilliseconds(httpClientConfig.getIdleTimeout().toMillis()))
+                .build();
     }
 
     @Bean
@@ -19,4 +87,65 @@ public class RestConfiguration {
         return new ObjectMapper();
     }
 
+    // Configured routes, plus one per OpenShift cluster whose read timeout is the cluster deadline, so a hung
+    // cluster does not keep a thread blocked once its answer is no longer awaited
+    static Map<HttpHost, HttpClientConfiguration.Route> resolveRoutes(HttpClientConfiguration httpClientConfig,
+                                                                     OpenshiftClusterConfiguration openshiftClusterConfig) {
+        Map<HttpHost, HttpClientConfiguration.Route> routes = new HashMap<>();
+
+        if (openshiftClusterConfig.getClusters() != null) {
+            openshiftClusterConfig.getClusters().forEach((cluster, values) -> {
+                var route = new HttpClientConfiguration.Route();
+                route.setUrl(values.get("url"));
+                route.setReadTimeout(openshiftClusterConfig.getClusterTimeout());
+
+                toHttpHost(cluster, route.getUrl()).ifPresent(host -> routes.put(host, route));
+            });
+        }
+
+        httpClientConfig.getRoutes().forEach((name, route) ->
+                toHttpHost(name, route.getUrl()).ifPresent(host -> routes.put(host, route)));
+
+        return routes;
+    }
+
+    private static Optional<HttpHost> toHttpHost(String name, String url) {
+        try {
+            var uri = url != null ? URI.create(url.trim()) : null;
+
+            if (uri != null && uri.getHost() != null) {
+                var scheme = uri.getScheme() != null ? uri.getScheme() : "https";
+                var port = uri.getPort() != -1 ? uri.getPort() : ("http".equals(scheme) ? 80 : 443);
+
+                return Optional.of(new HttpHost(scheme, uri.getHost(), port));
+            }
+        } catch (IllegalArgumentException e) {
+            log.trace("Unable to parse url of HTTP client route {}", name, e);
+        }
+
+        log.warn("Ignoring HTTP client route {}, its url is not valid", name);
+
+        return Optional.empty();
+    }
+
+    private static ConnectionConfig connectionConfig(HttpClientConfiguration httpClientConfig,
+                                                     HttpClientConfiguration.Route route) {
+        var connectTimeout = route != null && route.getConnectTimeout() != null
+                ? route.getConnectTimeout()
+                : httpClientConfig.getConnectTimeout();
+        var readTimeout = route != null && route.getReadTimeout() != null
+                ? route.getReadTimeout()
+                : httpClientConfig.getReadTimeout();
+
+        return ConnectionConfig.custom()
+                .setConnectTimeout(toTimeout(connectTimeout))
+                .setSocketTimeout(toTimeout(readTimeout))
+                .setTimeToLive(TimeValue.ofMilliseconds(httpClientConfig.getTimeToLive().toMillis()))
+                .setValidateAfterInactivity(TimeValue.ofSeconds(10))
+                .build();
+    }
+
+    private static Timeout toTimeout(Duration duration) {
+        return Timeout.ofMilliseconds(duration.toMillis());
+    }
 }
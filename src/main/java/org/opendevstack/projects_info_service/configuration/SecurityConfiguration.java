@@ -32,8 +32,10 @@ public class SecurityConfiguration {
                 PathPatternRequestMatcher.withDefaults().matcher("/api-docs/**"),
                 PathPatternRequestMatcher.withDefaults().matcher("/v3/api-docs/**"),
                 PathPatternRequestMatcher.withDefaults().matcher("/actuator/health"),
+                PathPatternRequestMatcher.withDefaults().matcher("/actuator/health/*"),
                 PathPatternRequestMatcher.withDefaults().matcher("/actuator/mappings"),
-                PathPatternRequestMatcher.withDefaults().matcher("/v1/projects/*/platforms")
+                PathPatternRequestMatcher.withDefaults().matcher("/v1/projects/*/platforms"),
+                PathPatternRequestMatcher.withDefaults().matcher("/v1/projects/platforms:batch")
         );
 
         http
@@ -12,4 +12,7 @@ public @interface CacheableWithFallback {
     String fallback();
     String defaultValue() default "";  // SpEL or literal string
     String cacheManager() default CacheConfiguration.CUSTOM_CACHE_MANAGER_NAME;
+    String keyGenerator() default ""; // Bean name of a KeyGenerator. When empty, keys are built from the arguments
+    boolean singleFlight() default true; // Concurrent misses for the same key wait for a single real method call
+    boolean staleWhileRevalidate() default false; // On a primary miss, serve the fallback value and refresh in background
 }
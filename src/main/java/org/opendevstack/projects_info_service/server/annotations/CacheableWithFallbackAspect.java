@@ -1,16 +1,22 @@
 package org.opendevstack.projects_info_service.server.annotations;
 
-import lombok.AllArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.reflect.MethodSignature;
 import org.opendevstack.projects_info_service.configuration.CacheConfiguration;
+import org.opendevstack.projects_info_service.configuration.ExecutorConfiguration;
+import org.springframework.beans.factory.BeanFactory;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.cache.interceptor.SimpleKey;
 import org.springframework.cache.interceptor.SimpleKeyGenerator;
 import org.springframework.core.annotation.Order;
+import org.springframework.expression.Expression;
 import org.springframework.expression.ExpressionParser;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
@@ -18,30 +24,59 @@ import org.springframework.stereotype.Component;
 import org.springframework.beans.factory.annotation.Qualifier;
 
 import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
 
-@AllArgsConstructor
 @Slf4j
 @Aspect
 @Component
 @Order(1)
 public class CacheableWithFallbackAspect {
 
+    public static final String REQUESTS_COUNTER_NAME = "cache.with.fallback.requests";
+
     private static final String EMPTY_STRING = "";
 
-    @Qualifier(CacheConfiguration.CUSTOM_CACHE_MANAGER_NAME)
+    // Thread safe, and only used to parse each defaultValue once
+    private static final ExpressionParser EXPRESSION_PARSER = new SpelExpressionParser();
+
     private final CacheManager cacheManager;
 
+    private final Executor executor;
+
+    private final BeanFactory beanFactory;
+
+    private final MeterRegistry meterRegistry;
+
+    // Real method calls currently running, per cache and key, so concurrent misses can share them
+    private final ConcurrentMap<SimpleKey, CompletableFuture<Object>> inFlightCalls = new ConcurrentHashMap<>();
+
+    // Annotation metadata resolved on the first call of each method, so cache hits do no lookups or parsing
+    private final ConcurrentMap<Method, CacheOperationMetadata> metadataCache = new ConcurrentHashMap<>();
+
+    public CacheableWithFallbackAspect(@Qualifier(CacheConfiguration.CUSTOM_CACHE_MANAGER_NAME) CacheManager cacheManager,
+                                       @Qualifier(ExecutorConfiguration.VIRTUAL_THREAD_EXECUTOR_NAME) Executor executor,
+                                       BeanFactory beanFactory,
+                                       MeterRegistry meterRegistry) {
+        this.cacheManager = cacheManager;
+        this.executor = executor;
+        this.beanFactory = beanFactory;
+        this.meterRegistry = meterRegistry;
+    }
+
     @Around("@annotation(cacheableWithFallback)")
     public Object cacheWithFallback(ProceedingJoinPoint pjp, CacheableWithFallback cacheableWithFallback) {
         log.debug("CacheWithFallback. pjp: {}, annotation: {}", pjp, cacheableWithFallback);
 
-        String primary = cacheableWithFallback.primary();
-        String fallback = cacheableWithFallback.fallback();
-        Object defaultValue = getDefaultValue(pjp, cacheableWithFallback);
+        CacheOperationMetadata metadata = getMetadata(pjp, cacheableWithFallback);
 
-        Object key = generateKey(pjp);
-        Cache primaryCache = cacheManager.getCache(primary);
-        Cache fallbackCache = cacheManager.getCache(fallback);
+        Object key = generateKey(pjp, metadata);
+        Cache primaryCache = metadata.primaryCache();
+        Cache fallbackCache = metadata.fallbackCache();
 
         Object result = null;
 
@@ -49,19 +84,32 @@ public class CacheableWithFallbackAspect {
             result = extractValueFromPrimaryCache(primaryCache, key);
         }
 
+        if (result != null) {
+            metadata.counters().hit().increment();
+        }
+
+        if (result == null && cacheableWithFallback.staleWhileRevalidate() && fallbackCache != null) {
+            result = extractStaleValueFromFallbackCache(fallbackCache, key);
+
+            if (result != null) {
+                metadata.counters().stale().increment();
+                refreshInBackground(pjp, cacheableWithFallback, primaryCache, fallbackCache, key);
+            }
+        }
+
         if (result == null) {
-            Object pjpResult = extractValueFromRealMethodCall(pjp);
+            Object pjpResult = loadValue(pjp, cacheableWithFallback, primaryCache, fallbackCache, key);
 
             if (pjpResult != null) {
+                metadata.counters().miss().increment();
                 result = pjpResult;
-
-                updateCaches(primaryCache, fallbackCache, (String) key, result);
             } else if (fallbackCache != null) {
-                result = extractValueFromFallbackCache(fallbackCache, key, defaultValue);
+                result = extractValueFromFallbackCache(fallbackCache, key, metadata);
             } else {
-                result = defaultValue;
+                metadata.counters().defaultValue().increment();
+                result = metadata.defaultValue();
 
-                log.debug("No fallback cache configured. Returning default value: {}", defaultValue);
+                log.debug("No fallback cache configured. Returning default value: {}", result);
             }
         }
 
@@ -69,26 +117,60 @@ public class CacheableWithFallbackAspect {
         return result;
     }
 
-    protected Object getDefaultValue(ProceedingJoinPoint pjp, CacheableWithFallback cacheableWithFallback) {
-        String defaultValueStr = cacheableWithFallback.defaultValue();
+    private CacheOperationMetadata getMetadata(ProceedingJoinPoint pjp, CacheableWithFallback cacheableWithFallback) {
         Method method = ((MethodSignature) pjp.getSignature()).getMethod();
-        Class<?> returnType = method.getReturnType();
+        CacheOperationMetadata metadata = metadataCache.get(method);
 
-        if (defaultValueStr != null && defaultValueStr.equals(EMPTY_STRING)) {
-            return EMPTY_STRING;
-        } else {
-            return resolveDefaultValue(defaultValueStr, returnType);
+        if (metadata == null) {
+            metadata = metadataCache.computeIfAbsent(method, m -> resolveMetadata(m, cacheableWithFallback));
         }
+
+        return metadata;
     }
 
+    private CacheOperationMetadata resolveMetadata(Method method, CacheableWithFallback cacheableWithFallback) {
+        log.debug("Resolving cache metadata for method: {}", method.getName());
 
-    protected Object resolveDefaultValue(String defaultValue, Class<?> returnType) {
-        if (defaultValue == null || defaultValue.isEmpty()) return null;
+        String defaultValueStr = cacheableWithFallback.defaultValue();
+        Expression defaultValueExpression = defaultValueStr == null || defaultValueStr.isEmpty()
+                ? null
+                : EXPRESSION_PARSER.parseExpression(defaultValueStr);
+
+        String keyGeneratorName = cacheableWithFallback.keyGenerator();
+        KeyGenerator keyGenerator = keyGeneratorName == null || keyGeneratorName.isEmpty()
+                ? null
+                : beanFactory.getBean(keyGeneratorName, KeyGenerator.class);
+
+        return new CacheOperationMetadata(
+                method,
+                method.getReturnType(),
+                cacheManager.getCache(cacheableWithFallback.primary()),
+                cacheManager.getCache(cacheableWithFallback.fallback()),
+                defaultValueStr,
+                defaultValueExpression,
+                keyGenerator,
+                registerCounters(cacheableWithFallback.primary()));
+    }
 
-        ExpressionParser parser = new SpelExpressionParser();
-        StandardEvaluationContext context = new StandardEvaluationContext();
+    private CacheCounters registerCounters(String cacheName) {
+        return new CacheCounters(
+                registerCounter(cacheName, "hit"),
+                registerCounter(cacheName, "miss"),
+                registerCounter(cacheName, "stale"),
+                registerCounter(cacheName, "fallback"),
+                registerCounter(cacheName, "default"));
+    }
 
-        Object result = parser.parseExpression(defaultValue).getValue(context);
+    private Counter registerCounter(String cacheName, String result) {
+        return Counter.builder(REQUESTS_COUNTER_NAME)
+                .description("Calls to methods cached with fallback, by where the returned value came from")
+                .tag("cache", cacheName)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static Object evaluateDefaultValue(Expression expression, Class<?> returnType) {
+        Object result = expression.getValue(new StandardEvaluationContext());
 
         if (result != null && !returnType.isAssignableFrom(result.getClass())) {
             throw new IllegalArgumentException("Default value type mismatch: expected " +
@@ -98,6 +180,14 @@ public class CacheableWithFallbackAspect {
         return result;
     }
 
+    private Object generateKey(ProceedingJoinPoint pjp, CacheOperationMetadata metadata) {
+        if (metadata.keyGenerator() == null) {
+            return generateKey(pjp);
+        }
+
+        return metadata.keyGenerator().generate(pjp.getTarget(), metadata.method(), pjp.getArgs());
+    }
+
     protected Object generateKey(ProceedingJoinPoint pjp) {
         log.debug("Generating key for method: {}", pjp.getSignature().getName());
 
@@ -128,25 +218,107 @@ public class CacheableWithFallbackAspect {
         return result;
     }
 
-    private Object extractValueFromFallbackCache(Cache fallbackCache, Object cacheKey, Object defaultValue) {
+    private Object extractStaleValueFromFallbackCache(Cache fallbackCache, Object cacheKey) {
+        Cache.ValueWrapper fallbackCachedValue = fallbackCache.get(cacheKey);
+
+        return fallbackCachedValue != null ? fallbackCachedValue.get() : null;
+    }
+
+    private Object extractValueFromFallbackCache(Cache fallbackCache, Object cacheKey, CacheOperationMetadata metadata) {
         log.debug("There were an issue getting the real value. Trying to get value from fallback cache: {}, key: {}", fallbackCache, cacheKey);
 
         Object result;
 
         Cache.ValueWrapper fallbackCachedValue = fallbackCache.get(cacheKey);
         if (fallbackCachedValue != null) {
+            metadata.counters().fallback().increment();
             result = fallbackCachedValue.get();
 
             log.debug("Returning value from fallback cache: {}, key: {}", fallbackCache, cacheKey);
         } else {
-            result = defaultValue;
+            metadata.counters().defaultValue().increment();
+            result = metadata.defaultValue();
 
-            log.debug("No value in fallback cache. Returning default value: {}", defaultValue);
+            log.debug("No value in fallback cache. Returning default value: {}", result);
         }
 
         return result;
     }
 
+    private Object loadValue(ProceedingJoinPoint pjp, CacheableWithFallback cacheableWithFallback,
+                             Cache primaryCache, Cache fallbackCache, Object key) {
+        if (!cacheableWithFallback.singleFlight()) {
+            return callRealMethodAndUpdateCaches(pjp, primaryCache, fallbackCache, key);
+        }
+
+        var callKey = new SimpleKey(cacheableWithFallback.primary(), key);
+        var call = new CompletableFuture<>();
+        var inFlightCall = inFlightCalls.putIfAbsent(callKey, call);
+
+        if (inFlightCall != null) {
+            log.debug("Waiting for in-flight call of method: {}, key: {}", pjp.getSignature().getName(), key);
+
+            return inFlightCall.join();
+        }
+
+        return completeInFlightCall(callKey, call, () -> {
+            // Another caller may have filled the cache between our miss and taking over the call
+            Object result = primaryCache != null ? extractValueFromPrimaryCache(primaryCache, key) : null;
+
+            return result != null ? result : callRealMethodAndUpdateCaches(pjp, primaryCache, fallbackCache, key);
+        });
+    }
+
+    private void refreshInBackground(ProceedingJoinPoint pjp, CacheableWithFallback cacheableWithFallback,
+                                     Cache primaryCache, Cache fallbackCache, Object key) {
+        var callKey = new SimpleKey(cacheableWithFallback.primary(), key);
+        var call = new CompletableFuture<>();
+
+        if (inFlightCalls.putIfAbsent(callKey, call) != null) {
+            log.debug("Refresh already in flight for method: {}, key: {}", pjp.getSignature().getName(), key);
+
+            return;
+        }
+
+        log.debug("Serving stale value and refreshing in background. Method: {}, key: {}", pjp.getSignature().getName(), key);
+
+        try {
+            executor.execute(() -> completeInFlightCall(callKey, call,
+                    () -> callRealMethodAndUpdateCaches(pjp, primaryCache, fallbackCache, key)));
+        } catch (RejectedExecutionException e) {
+            log.warn("Unable to schedule background refresh for method: {}, key: {}", pjp.getSignature().getName(), key, e);
+
+            inFlightCalls.remove(callKey, call);
+            call.complete(null);
+        }
+    }
+
+    private Object completeInFlightCall(SimpleKey callKey, CompletableFuture<Object> call, Supplier<Object> loader) {
+        try {
+            Object result = loader.get();
+            call.complete(result);
+
+            return result;
+        } catch (RuntimeException | Error e) {
+            call.completeExceptionally(e);
+
+            throw e;
+        } finally {
+            inFlightCalls.remove(callKey, call);
+        }
+    }
+
+    private Object callRealMethodAndUpdateCaches(ProceedingJoinPoint pjp, Cache primaryCache, Cache fallbackCache,
+                                                 Object key) {
+        Object pjpResult = extractValueFromRealMethodCall(pjp);
+
+        if (pjpResult != null) {
+            updateCaches(primaryCache, fallbackCache, key, pjpResult);
+        }
+
+        return pjpResult;
+    }
+
     private Object extractValueFromRealMethodCall(ProceedingJoinPoint pjp) {
         Object pjpResult = null;
 
@@ -161,7 +333,7 @@ public class CacheableWithFallbackAspect {
         return pjpResult;
     }
 
-    private void updateCaches(Cache primaryCache, Cache fallbackCache, String key, Object result) {
+    private void updateCaches(Cache primaryCache, Cache fallbackCache, Object key, Object result) {
         log.debug("Real method call generated a result. Updating caches: {}, {}, key: {}", primaryCache, fallbackCache, key);
 
         if (primaryCache != null) {
@@ -174,4 +346,22 @@ public class CacheableWithFallbackAspect {
 
         log.debug("Caches updated. Primary: {}, Fallback: {}, key: {}", primaryCache, fallbackCache, key);
     }
+
+    private record CacheOperationMetadata(Method method, Class<?> returnType, Cache primaryCache, Cache fallbackCache,
+                                          String defaultValueStr, Expression defaultValueExpression,
+                                          KeyGenerator keyGenerator, CacheCounters counters) {
+
+        // Only needed when the real method fails, so it is evaluated then instead of on every call
+        Object defaultValue() {
+            if (EMPTY_STRING.equals(defaultValueStr)) {
+                return EMPTY_STRING;
+            }
+
+            return defaultValueExpression != null ? evaluateDefaultValue(defaultValueExpression, returnType) : null;
+        }
+    }
+
+    // Where the returned value came from: primary cache, real method, stale fallback, fallback after a failure, default
+    private record CacheCounters(Counter hit, Counter miss, Counter stale, Counter fallback, Counter defaultValue) {
+    }
 }
@@ -1,9 +1,17 @@
 package org.opendevstack.projects_info_service.server.client;
 
+import org.opendevstack.projects_info_service.configuration.ProjectFilterConfiguration;
 import org.opendevstack.projects_info_service.server.annotations.CacheableWithFallback;
+import org.opendevstack.projects_info_service.server.client.GraphDeltaReader.GroupDeltaPage;
+import org.opendevstack.projects_info_service.server.client.GraphPageReader.GraphPage;
 import org.opendevstack.projects_info_service.server.exception.InvalidContentProcessException;
 import org.opendevstack.projects_info_service.server.exception.InvalidTokenException;
 import org.opendevstack.projects_info_service.server.exception.UnableToReachAzureException;
+import org.opendevstack.projects_info_service.server.metrics.DependencyMetrics;
+import org.opendevstack.projects_info_service.server.model.UserProfile;
+import org.opendevstack.projects_info_service.server.security.UserIdentityKeyGenerator;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
@@ -12,75 +20,249 @@ import org.springframework.cache.annotation.Cacheable;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestTemplate;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
 
 @Slf4j
 @Service
 public class AzureGraphClient {
 
-    private static final String USER_INFO_URL = "https://graph.microsoft.com/v1.0/me";
-    private static final String MEMBER_OF_URL = "https://graph.microsoft.com/v1.0/me/memberOf";
+    private static final String GRAPH_URL = "https://graph.microsoft.com/v1.0";
+    private static final String USER_INFO_URL = GRAPH_URL + "/me";
+    private static final String MEMBER_OF_URL = GRAPH_URL + "/me/memberOf";
+    private static final String TRANSITIVE_MEMBER_OF_URL = GRAPH_URL + "/me/transitiveMemberOf";
+    private static final String MEMBER_GROUPS_URL = GRAPH_URL + "/me/getMemberGroups";
+    private static final String GET_BY_IDS_URL = GRAPH_URL + "/directoryObjects/getByIds";
+    private static final String GROUPS_URL = GRAPH_URL + "/groups";
+    private static final String BATCH_URL = GRAPH_URL + "/$batch";
+    // Ids of the requests of a user profile batch
+    private static final String PROFILE_REQUEST_ID = "me";
+    private static final String GROUPS_REQUEST_ID = "groups";
+    // Starts a groups delta round from now on, without listing the current groups
+    public static final String LATEST_GROUPS_DELTA_URL = GROUPS_URL + "/delta?$select=displayName,members"
+            + "&$deltatoken=latest";
+    // Largest page Graph serves for directory object collections
+    public static final int MAX_PAGE_SIZE = 999;
+    // Largest amount of ids a single getByIds request accepts
+    public static final int MAX_IDS_PER_REQUEST = 1000;
     public static final String ERROR_WHILE_GETTING_USER_GROUPS = "Error while getting user groups";
+    public static final String ERROR_WHILE_GETTING_USER_PROFILE = "Error while getting user profile";
     public static final String ERROR_WHILE_PROCESSING_SERVER_RESPONSE = "Error while processing server response";
     public static final String ERROR_WHILE_GETTING_APPLICATION_GROUPS = "Error while getting application groups";
+    public static final String ERROR_WHILE_GETTING_GROUP_NAMES = "Error while getting group names";
+    public static final String ERROR_WHILE_GETTING_GROUP_MEMBERS = "Error while getting group members";
 
     public static final String UNABLE_TO_GET_GROUPS_FALLBACK_GROUP = "Unable-to-get-groups";
 
+    public static final String DEPENDENCY_NAME = "azure-graph";
+
     private final RestTemplate restTemplate;
     private final ObjectMapper mapper;
+    private final DependencyMetrics dependencyMetrics;
+    private final ProjectFilterConfiguration projectFilterConfiguration;
 
     @Value("${azure.groups.page-size}")
     private Integer pageSize;
 
+    // Also returns the groups the user is a member of through other groups
+    @Value("${azure.groups.transitive:false}")
+    private boolean transitiveGroups;
+
+    // Only returns the groups whose name starts with the project roles group prefix
+    @Value("${azure.groups.filter-by-project-prefix:false}")
+    private boolean filterByProjectPrefix;
+
     @Value("${azure.access-token}")
     private String azureAccessToken;
 
     @Value("${azure.datahub.group-id}")
     private String dataHubGroupId;
 
-    AzureGraphClient(RestTemplate restTemplate, ObjectMapper mapper) {
+    AzureGraphClient(RestTemplate restTemplate, ObjectMapper mapper, DependencyMetrics dependencyMetrics,
+                     ProjectFilterConfiguration projectFilterConfiguration) {
         this.restTemplate = restTemplate;
         this.mapper = mapper;
+        this.dependencyMetrics = dependencyMetrics;
+        this.projectFilterConfiguration = projectFilterConfiguration;
     }
 
-    @CacheableWithFallback(primary = "userGroups", fallback = "userGroups-fallback")
+    @CacheableWithFallback(primary = "userGroups", fallback = "userGroups-fallback",
+            keyGenerator = UserIdentityKeyGenerator.NAME, staleWhileRevalidate = true)
     public Set<String> getUserGroups(String userAccessToken) {
         Set<String> groupIds = new HashSet<>();
-        String url = MEMBER_OF_URL + "?$top=" + pageSize; // e.g., "https://graph.microsoft.com/v1.0/me/memberOf?$top=100"
+        String url = userGroupsUrl(); // e.g., "https://graph.microsoft.com/v1.0/me/memberOf?$select=displayName&$top=999"
+
+        readUserGroupPages(url, userGroupsHeaders(userAccessToken), groupIds);
+
+        return groupIds;
+    }
+
+    // E-mail and group names of the user. The profile and the first page of groups share a single $batch round
+    // trip, and any further page of groups is requested right after it. A part that fails inside the batch, as when
+    // it is throttled, is fetched again on its own, so its errors surface as they do for getUserEmail and
+    // getUserGroups.
+    @CacheableWithFallback(primary = "userProfile", fallback = "userProfile-fallback",
+            keyGenerator = UserIdentityKeyGenerator.NAME, staleWhileRevalidate = true)
+    public UserProfile getUserProfile(String userAccessToken) {
+        var groupsRequest = new HashMap<String, Object>(Map.of(
+                "id", GROUPS_REQUEST_ID, "method", "GET", "url", relativeUrl(userGroupsUrl())));
+
+        if (filterByProjectPrefix) {
+            groupsRequest.put("headers", Map.of("ConsistencyLevel", "eventual"));
+        }
+
+        var batch = Map.of("requests", List.of(
+                Map.of("id", PROFILE_REQUEST_ID, "method", "GET", "url", relativeUrl(USER_INFO_URL)),
+                groupsRequest));
 
         HttpHeaders headers = new HttpHeaders();
         headers.setBearerAuth(userAccessToken);
         headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
-        HttpEntity<String> entity = new HttpEntity<>(headers);
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        AtomicReference<JsonNode> profile = new AtomicReference<>();
+        AtomicReference<GraphPage> firstGroupsPage = new AtomicReference<>();
+        Map<String, GraphBatchReader.BodyReader> bodyReaders = Map.of(
+                PROFILE_REQUEST_ID, parser -> profile.set(mapper.readTree(parser)),
+                GROUPS_REQUEST_ID, parser -> firstGroupsPage.set(GraphPageReader.read(parser)));
+
+        Map<String, Integer> statuses;
 
         try {
-            while (url != null) {
-                ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
-                groupIds.addAll(processAzureResponse(response));
+            statuses = dependencyMetrics.record(DEPENDENCY_NAME, "batch",
+                    () -> restTemplate.execute(BATCH_URL, HttpMethod.POST,
+                            request -> {
+                                request.getHeaders().putAll(headers);
+                                request.getBody().write(mapper.writeValueAsBytes(batch));
+                            },
+                            streamed((jsonFactory, body) -> GraphBatchReader.read(jsonFactory, body, bodyReaders))));
+        } catch (HttpClientErrorException e) {
+            log.error(ERROR_WHILE_GETTING_USER_PROFILE, e);
+            throw new InvalidTokenException(ERROR_WHILE_GETTING_USER_PROFILE, e);
+        }
+
+        String email;
+
+        if (isSuccessful(statuses.get(PROFILE_REQUEST_ID)) && profile.get() != null) {
+            email = emailOf(profile.get());
+        } else {
+            log.debug("Profile request of the batch answered {}. Getting the user e-mail on its own.",
+                    statuses.get(PROFILE_REQUEST_ID));
+
+            // Called on this instance, so the e-mail caches are not involved
+            email = getUserEmail(userAccessToken);
+        }
+
+        Set<String> groups;
+
+        if (isSuccessful(statuses.get(GROUPS_REQUEST_ID)) && firstGroupsPage.get() != null) {
+            groups = new HashSet<>(firstGroupsPage.get().displayNames());
+
+            readUserGroupPages(firstGroupsPage.get().nextLink(), userGroupsHeaders(userAccessToken), groups);
+        } else {
+            log.debug("Groups request of the batch answered {}. Getting the user groups on their own.",
+                    statuses.get(GROUPS_REQUEST_ID));
+
+            // Called on this instance, so the group caches are not involved
+            groups = getUserGroups(userAccessToken);
+        }
+
+        return new UserProfile(email, groups);
+    }
+
+    private HttpHeaders userGroupsHeaders(String userAccessToken) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(userAccessToken);
+        headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+
+        if (filterByProjectPrefix) {
+            // Filtering directory objects is an advanced query, which needs an eventually consistent read
+            headers.set("ConsistencyLevel", "eventual");
+        }
 
-                // Parse the nextLink if present
-                JsonNode root = new ObjectMapper().readTree(response.getBody());
-                JsonNode nextLinkNode = root.get("@odata.nextLink");
+        return headers;
+    }
 
-                if (nextLinkNode != null) {
-                    log.debug("Next link found: {}", nextLinkNode.asText());
+    // Adds the groups of every page, from the url on, following the next page links
+    private void readUserGroupPages(String url, HttpHeaders headers, Set<String> groups) {
+        try {
+            while (url != null) {
+                GraphPage page = readPage("member-of", url, headers);
+                groups.addAll(page.displayNames());
 
-                    url = nextLinkNode.asText();
-                } else {
-                    url = null; // No more pages
+                if (page.nextLink() != null) {
+                    log.debug("Next link found: {}", page.nextLink());
                 }
+
+                url = page.nextLink(); // null when there are no more pages
             }
-        } catch (HttpClientErrorException | IOException e) {
+        } catch (HttpClientErrorException e) {
             log.error(ERROR_WHILE_GETTING_USER_GROUPS, e);
             throw new InvalidTokenException(ERROR_WHILE_GETTING_USER_GROUPS, e);
         }
+    }
 
-        return groupIds;
+    // Requests inside a batch are addressed relative to the Graph version root
+    private static String relativeUrl(String url) {
+        return url.substring(GRAPH_URL.length());
+    }
+
+    private static boolean isSuccessful(Integer status) {
+        return status != null && status / 100 == 2;
+    }
+
+    // Ids of every group the user is a member of, directly or through other groups, in a single request. Ids are
+    // much smaller than group objects, and their names are resolved against the shared group directory.
+    @CacheableWithFallback(primary = "userGroupIds", fallback = "userGroupIds-fallback",
+            keyGenerator = UserIdentityKeyGenerator.NAME, staleWhileRevalidate = true)
+    public List<String> getUserGroupIds(String userAccessToken) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(userAccessToken);
+        headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        try {
+            var groupIds = dependencyMetrics.record(DEPENDENCY_NAME, "member-groups",
+                    () -> restTemplate.execute(MEMBER_GROUPS_URL, HttpMethod.POST,
+                            request -> {
+                                request.getHeaders().putAll(headers);
+                                request.getBody().write(mapper.writeValueAsBytes(
+                                        Map.of("securityEnabledOnly", false)));
+                            },
+                            streamed(GraphPageReader::readStrings)));
+
+            return List.copyOf(groupIds);
+        } catch (HttpClientErrorException e) {
+            log.error(ERROR_WHILE_GETTING_USER_GROUPS, e);
+            throw new InvalidTokenException(ERROR_WHILE_GETTING_USER_GROUPS, e);
+        }
+    }
+
+    // Only displayName is read, so Graph is asked for nothing else, in pages as large as it allows
+    private String userGroupsUrl() {
+        var membersUrl = transitiveGroups ? TRANSITIVE_MEMBER_OF_URL : MEMBER_OF_URL;
+        var top = Math.min(pageSize, MAX_PAGE_SIZE);
+
+        if (filterByProjectPrefix) {
+            var prefix = projectFilterConfiguration.getProjectRolesGroupPrefix().replace("'", "''");
+
+            return membersUrl + "/microsoft.graph.group?$filter=startswith(displayName,'" + prefix + "')"
+                    + "&$count=true&$select=displayName&$top=" + top;
+        }
+
+        return membersUrl + "?$select=displayName&$top=" + top;
     }
 
     @Cacheable("dataHubGroups")
@@ -101,16 +283,12 @@ public class AzureGraphClient {
         HttpHeaders headers = new HttpHeaders();
         headers.setBearerAuth(accessToken);
         headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
-        HttpEntity<String> entity = new HttpEntity<>(headers);
-
         try {
             while (url != null) {
-                ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
-                groupNames.addAll(processAzureResponse(response));
+                GraphPage page = readPage("app-role-assignments", url, headers);
+                groupNames.addAll(page.displayNames());
 
-                JsonNode root = mapper.readTree(response.getBody());
-                JsonNode nextLinkNode = root.get("@odata.nextLink");
-                url = nextLinkNode != null ? nextLinkNode.asText() : null;
+                url = page.nextLink();
             }
         } catch (HttpClientErrorException e) {
             log.error(ERROR_WHILE_GETTING_APPLICATION_GROUPS, e);
@@ -121,14 +299,111 @@ public class AzureGraphClient {
                 log.trace("There were an error when trying to get groups. We continue the process and consider platform as disabled, " +
                         "in order to not block application usage", e);
             }
-        } catch (IOException e) {
-            log.error(ERROR_WHILE_PROCESSING_SERVER_RESPONSE, e);
+        } catch (InvalidContentProcessException e) {
+            log.error(ERROR_WHILE_GETTING_APPLICATION_GROUPS, e);
         }
 
         return groupNames;
     }
 
-    @CacheableWithFallback(primary = "userEmail", fallback = "userEmail-fallback")
+    // Display names of the groups, keyed by object id, looked up with the application token. Ids that are not
+    // groups of the directory are left out.
+    public Map<String, String> getGroupDisplayNames(List<String> groupIds) {
+        Map<String, String> displayNamesById = new HashMap<>();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(azureAccessToken);
+        headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        try {
+            for (int from = 0; from < groupIds.size(); from += MAX_IDS_PER_REQUEST) {
+                var ids = groupIds.subList(from, Math.min(from + MAX_IDS_PER_REQUEST, groupIds.size()));
+
+                displayNamesById.putAll(dependencyMetrics.record(DEPENDENCY_NAME, "get-by-ids",
+                        () -> restTemplate.execute(GET_BY_IDS_URL, HttpMethod.POST,
+                                request -> {
+                                    request.getHeaders().putAll(headers);
+                                    request.getBody().write(mapper.writeValueAsBytes(
+                                            Map.of("ids", ids, "types", List.of("group"))));
+                                },
+                                streamed(GraphPageReader::readDisplayNamesById))));
+            }
+        } catch (HttpClientErrorException e) {
+            log.error(ERROR_WHILE_GETTING_GROUP_NAMES, e);
+            throw new UnableToReachAzureException(ERROR_WHILE_GETTING_GROUP_NAMES, e);
+        }
+
+        return displayNamesById;
+    }
+
+    // Display names of the groups whose name starts with the prefix, keyed by id, looked up with the application token
+    public Map<String, String> getGroupsByPrefix(String prefix) {
+        Map<String, String> displayNamesById = new HashMap<>();
+        String url = GROUPS_URL + "?$filter=startswith(displayName,'" + prefix.replace("'", "''") + "')"
+                + "&$select=id,displayName&$top=" + MAX_PAGE_SIZE;
+
+        try {
+            while (url != null) {
+                url = readEntries("groups", url, applicationHeaders(), (id, displayName) -> {
+                    if (id != null && displayName != null) {
+                        displayNamesById.put(id, displayName);
+                    }
+                });
+            }
+        } catch (HttpClientErrorException e) {
+            log.error(ERROR_WHILE_GETTING_GROUP_NAMES, e);
+            throw new UnableToReachAzureException(ERROR_WHILE_GETTING_GROUP_NAMES, e);
+        }
+
+        return displayNamesById;
+    }
+
+    // Ids of the users that are direct members of the group, looked up with the application token
+    public List<String> getGroupUserMemberIds(String groupId) {
+        List<String> userIds = new ArrayList<>();
+        String url = GROUPS_URL + "/" + groupId + "/members/microsoft.graph.user?$select=id&$top=" + MAX_PAGE_SIZE;
+
+        try {
+            while (url != null) {
+                url = readEntries("group-members", url, applicationHeaders(), (id, displayName) -> {
+                    if (id != null) {
+                        userIds.add(id);
+                    }
+                });
+            }
+        } catch (HttpClientErrorException e) {
+            log.error(ERROR_WHILE_GETTING_GROUP_MEMBERS, e);
+            throw new UnableToReachAzureException(ERROR_WHILE_GETTING_GROUP_MEMBERS, e);
+        }
+
+        return userIds;
+    }
+
+    // One page of a groups delta round, looked up with the application token. The url is either the
+    // LATEST_GROUPS_DELTA_URL, or a nextLink or deltaLink of a previous page.
+    public GroupDeltaPage getGroupsDelta(String url) {
+        try {
+            return dependencyMetrics.record(DEPENDENCY_NAME, "groups-delta",
+                    () -> restTemplate.execute(url, HttpMethod.GET,
+                            request -> request.getHeaders().putAll(applicationHeaders()),
+                            streamed(GraphDeltaReader::read)));
+        } catch (HttpClientErrorException e) {
+            log.error(ERROR_WHILE_GETTING_GROUP_MEMBERS, e);
+            throw new UnableToReachAzureException(ERROR_WHILE_GETTING_GROUP_MEMBERS, e);
+        }
+    }
+
+    private HttpHeaders applicationHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(azureAccessToken);
+        headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+
+        return headers;
+    }
+
+    @CacheableWithFallback(primary = "userEmail", fallback = "userEmail-fallback",
+            keyGenerator = UserIdentityKeyGenerator.NAME)
     public String getUserEmail(String accessToken) {
         HttpHeaders headers = new HttpHeaders();
         headers.setBearerAuth(accessToken);
@@ -137,18 +412,9 @@ public class AzureGraphClient {
         HttpEntity<String> entity = new HttpEntity<>(headers);
 
         try {
-            ResponseEntity<String> response = restTemplate.exchange(USER_INFO_URL, HttpMethod.GET, entity, String.class);
-            JsonNode root = mapper.readTree(response.getBody());
-
-            // Try to get mail or userPrincipalName
-            if (root.has("mail") && !root.get("mail").isNull()) {
-                return root.get("mail").asText();
-            } else if (root.has("userPrincipalName")) {
-                return root.get("userPrincipalName").asText();
-            } else {
-                throw new InvalidContentProcessException("Email not found in user profile");
-            }
+            ResponseEntity<String> response = exchange("me", USER_INFO_URL, entity);
 
+            return emailOf(mapper.readTree(response.getBody()));
         } catch (HttpClientErrorException e) {
             log.error("Error while getting user email", e);
             throw new InvalidTokenException("Error while getting user email", e);
@@ -158,28 +424,52 @@ public class AzureGraphClient {
         }
     }
 
+    // Try to get mail or userPrincipalName
+    private static String emailOf(JsonNode profile) {
+        if (profile.has("mail") && !profile.get("mail").isNull()) {
+            return profile.get("mail").asText();
+        } else if (profile.has("userPrincipalName")) {
+            return profile.get("userPrincipalName").asText();
+        } else {
+            throw new InvalidContentProcessException("Email not found in user profile");
+        }
+    }
 
-    private Set<String> processAzureResponse(ResponseEntity<String> response) {
-        log.trace("Processing Azure response: {}", response.getBody());
+    private ResponseEntity<String> exchange(String operation, String url, HttpEntity<String> entity) {
+        return dependencyMetrics.record(DEPENDENCY_NAME, operation,
+                () -> restTemplate.exchange(url, HttpMethod.GET, entity, String.class));
+    }
 
-        Set<String> groups = new HashSet<>();
+    // The body is parsed once, straight from the response stream, for both the group names and the next page link
+    private GraphPage readPage(String operation, String url, HttpHeaders headers) {
+        return dependencyMetrics.record(DEPENDENCY_NAME, operation,
+                () -> restTemplate.execute(url, HttpMethod.GET,
+                        request -> request.getHeaders().putAll(headers),
+                        streamed(GraphPageReader::read)));
+    }
 
-        try {
-            JsonNode root = mapper.readTree(response.getBody());
-            JsonNode values = root.path("value");
+    // Hands the id and displayName of every entry of the page to the consumer and returns the next page link
+    private String readEntries(String operation, String url, HttpHeaders headers, BiConsumer<String, String> consumer) {
+        return dependencyMetrics.record(DEPENDENCY_NAME, operation,
+                () -> restTemplate.execute(url, HttpMethod.GET,
+                        request -> request.getHeaders().putAll(headers),
+                        streamed((jsonFactory, body) -> GraphPageReader.readEntries(jsonFactory, body, consumer))));
+    }
 
-            for (JsonNode group : values) {
-                if (group.has("displayName")) {
-                    groups.add(group.get("displayName").asText());
-                }
-            }
-        } catch (Exception e) {
-            log.error(ERROR_WHILE_PROCESSING_SERVER_RESPONSE, e);
+    private <T> ResponseExtractor<T> streamed(GraphBodyReader<T> reader) {
+        return response -> {
+            try {
+                return reader.read(mapper.getFactory(), response.getBody());
+            } catch (JsonProcessingException e) {
+                log.error(ERROR_WHILE_PROCESSING_SERVER_RESPONSE, e);
 
-            throw new InvalidContentProcessException(ERROR_WHILE_PROCESSING_SERVER_RESPONSE, e);
-        }
+                throw new InvalidContentProcessException(ERROR_WHILE_PROCESSING_SERVER_RESPONSE, e);
+            }
+        };
+    }
 
-        return groups;
+    @FunctionalInterface
+    private interface GraphBodyReader<T> {
+        T read(JsonFactory jsonFactory, InputStream body) throws IOException;
     }
 }
-
@@ -0,0 +1,117 @@
+package org.opendevstack.projects_info_service.server.client;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads a Microsoft Graph $batch response in a single streaming pass.
+ * <p>
+ * The body of each response is handed, straight from the stream, to the reader registered for the response id, and
+ * only the response status is kept. Graph writes the id of a response before its body, but should it not, the body
+ * is buffered until the id is known.
+ */
+public final class GraphBatchReader {
+
+    private static final String RESPONSES_FIELD = "responses";
+    private static final String ID_FIELD = "id";
+    private static final String STATUS_FIELD = "status";
+    private static final String BODY_FIELD = "body";
+
+    private GraphBatchReader() {
+    }
+
+    // Reads the body of one response, from its START_OBJECT up to and including its END_OBJECT
+    @FunctionalInterface
+    public interface BodyReader {
+        void read(JsonParser parser) throws IOException;
+    }
+
+    // Statuses of the responses, keyed by id. Bodies without a reader for their id, or that are not JSON objects,
+    // are skipped.
+    public static Map<String, Integer> read(JsonFactory jsonFactory, InputStream body,
+                                            Map<String, BodyReader> bodyReaders) throws IOException {
+        Map<String, Integer> statuses = new HashMap<>();
+
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            JsonToken rootToken = parser.nextToken();
+
+            if (rootToken != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected a Graph batch object, found " + rootToken);
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken valueToken = parser.nextToken();
+
+                if (RESPONSES_FIELD.equals(field) && valueToken == JsonToken.START_ARRAY) {
+                    readResponses(parser, bodyReaders, statuses);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+
+        return statuses;
+    }
+
+    private static void readResponses(JsonParser parser, Map<String, BodyReader> bodyReaders,
+                                      Map<String, Integer> statuses) throws IOException {
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (parser.currentToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+
+            String id = null;
+            int status = 0;
+            TokenBuffer bufferedBody = null;
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken valueToken = parser.nextToken();
+
+                if (ID_FIELD.equals(field) && valueToken == JsonToken.VALUE_STRING) {
+                    id = parser.getText();
+                } else if (STATUS_FIELD.equals(field) && valueToken == JsonToken.VALUE_NUMBER_INT) {
+                    status = parser.getIntValue();
+                } else if (BODY_FIELD.equals(field) && valueToken == JsonToken.START_OBJECT && id != null) {
+                    readBody(parser, bodyReaders.get(id));
+                } else if (BODY_FIELD.equals(field) && valueToken == JsonToken.START_OBJECT) {
+                    bufferedBody = new TokenBuffer(parser);
+                    bufferedBody.copyCurrentStructure(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+
+            if (id == null) {
+                continue;
+            }
+
+            statuses.put(id, status);
+
+            if (bufferedBody != null) {
+                try (JsonParser bodyParser = bufferedBody.asParser(parser.getCodec())) {
+                    bodyParser.nextToken();
+                    readBody(bodyParser, bodyReaders.get(id));
+                }
+            }
+        }
+    }
+
+    private static void readBody(JsonParser parser, BodyReader bodyReader) throws IOException {
+        if (bodyReader != null) {
+            bodyReader.read(parser);
+        } else {
+            parser.skipChildren();
+        }
+    }
+}
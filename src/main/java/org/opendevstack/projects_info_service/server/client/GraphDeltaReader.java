@@ -0,0 +1,145 @@
+package org.opendevstack.projects_info_service.server.client;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads one page of a Microsoft Graph groups delta in a single streaming pass.
+ * <p>
+ * Each changed group is reduced to its id, its displayName when it is part of the change, whether it was removed,
+ * and the users added to or removed from its direct members. Member changes of any other type, such as nested
+ * groups, are skipped.
+ */
+public final class GraphDeltaReader {
+
+    private static final String VALUE_FIELD = "value";
+    private static final String NEXT_LINK_FIELD = "@odata.nextLink";
+    private static final String DELTA_LINK_FIELD = "@odata.deltaLink";
+    private static final String ID_FIELD = "id";
+    private static final String DISPLAY_NAME_FIELD = "displayName";
+    private static final String TYPE_FIELD = "@odata.type";
+    private static final String REMOVED_FIELD = "@removed";
+    private static final String MEMBERS_DELTA_FIELD = "members@delta";
+    private static final String USER_TYPE = "#microsoft.graph.user";
+
+    private GraphDeltaReader() {
+    }
+
+    public record GroupChange(String id, String displayName, boolean removed, List<String> addedUserIds,
+                              List<String> removedUserIds) {
+    }
+
+    // Only the last page of a round has a deltaLink, every other page has a nextLink
+    public record GroupDeltaPage(List<GroupChange> changes, String nextLink, String deltaLink) {
+    }
+
+    public static GroupDeltaPage read(JsonFactory jsonFactory, InputStream body) throws IOException {
+        List<GroupChange> changes = new ArrayList<>();
+        String nextLink = null;
+        String deltaLink = null;
+
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            JsonToken rootToken = parser.nextToken();
+
+            if (rootToken != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected a Graph delta object, found " + rootToken);
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken valueToken = parser.nextToken();
+
+                if (VALUE_FIELD.equals(field) && valueToken == JsonToken.START_ARRAY) {
+                    readGroupChanges(parser, changes);
+                } else if (NEXT_LINK_FIELD.equals(field) && valueToken == JsonToken.VALUE_STRING) {
+                    nextLink = parser.getText();
+                } else if (DELTA_LINK_FIELD.equals(field) && valueToken == JsonToken.VALUE_STRING) {
+                    deltaLink = parser.getText();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+
+        return new GroupDeltaPage(changes, nextLink, deltaLink);
+    }
+
+    private static void readGroupChanges(JsonParser parser, List<GroupChange> changes) throws IOException {
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (parser.currentToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+
+            String id = null;
+            String displayName = null;
+            boolean removed = false;
+            List<String> addedUserIds = new ArrayList<>();
+            List<String> removedUserIds = new ArrayList<>();
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken valueToken = parser.nextToken();
+
+                if (ID_FIELD.equals(field) && valueToken == JsonToken.VALUE_STRING) {
+                    id = parser.getText();
+                } else if (DISPLAY_NAME_FIELD.equals(field) && valueToken == JsonToken.VALUE_STRING) {
+                    displayName = parser.getText();
+                } else if (REMOVED_FIELD.equals(field)) {
+                    removed = true;
+                    parser.skipChildren();
+                } else if (MEMBERS_DELTA_FIELD.equals(field) && valueToken == JsonToken.START_ARRAY) {
+                    readMemberChanges(parser, addedUserIds, removedUserIds);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+
+            if (id != null) {
+                changes.add(new GroupChange(id, displayName, removed, addedUserIds, removedUserIds));
+            }
+        }
+    }
+
+    private static void readMemberChanges(JsonParser parser, List<String> addedUserIds, List<String> removedUserIds)
+            throws IOException {
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (parser.currentToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+
+            String id = null;
+            String type = null;
+            boolean removed = false;
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken valueToken = parser.nextToken();
+
+                if (ID_FIELD.equals(field) && valueToken == JsonToken.VALUE_STRING) {
+                    id = parser.getText();
+                } else if (TYPE_FIELD.equals(field) && valueToken == JsonToken.VALUE_STRING) {
+                    type = parser.getText();
+                } else if (REMOVED_FIELD.equals(field)) {
+                    removed = true;
+                    parser.skipChildren();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+
+            // Member changes carry their type. One without it is taken as a user.
+            if (id != null && (type == null || USER_TYPE.equals(type))) {
+                (removed ? removedUserIds : addedUserIds).add(id);
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package org.opendevstack.projects_info_service.server.client;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Reads one page of a Microsoft Graph collection in a single streaming pass.
+ * <p>
+ * Only the @odata.nextLink and the id and displayName of each entry in value, or the entries themselves when they
+ * are strings, are kept. Every other field is skipped without being materialized, so a page costs one traversal of
+ * the body and no intermediate String or tree.
+ */
+public final class GraphPageReader {
+
+    private static final String VALUE_FIELD = "value";
+    private static final String NEXT_LINK_FIELD = "@odata.nextLink";
+    private static final String ID_FIELD = "id";
+    private static final String DISPLAY_NAME_FIELD = "displayName";
+
+    private GraphPageReader() {
+    }
+
+    public record GraphPage(List<String> displayNames, String nextLink) {
+    }
+
+    public static GraphPage read(JsonFactory jsonFactory, InputStream body) throws IOException {
+        List<String> displayNames = new ArrayList<>();
+
+        var nextLink = readCollection(jsonFactory, body, displayNamesReader(displayNames));
+
+        return new GraphPage(displayNames, nextLink);
+    }
+
+    // Same as read, for a page embedded in a larger document, such as a $batch response. The parser is on the
+    // START_OBJECT of the page, and is left on its END_OBJECT.
+    public static GraphPage read(JsonParser parser) throws IOException {
+        List<String> displayNames = new ArrayList<>();
+
+        var nextLink = readCollectionFields(parser, displayNamesReader(displayNames));
+
+        return new GraphPage(displayNames, nextLink);
+    }
+
+    // Display names of the entries in value, keyed by their id. Entries without both of them are left out.
+    public static Map<String, String> readDisplayNamesById(JsonFactory jsonFactory, InputStream body)
+            throws IOException {
+        Map<String, String> displayNamesById = new HashMap<>();
+
+        readCollection(jsonFactory, body, parser -> readEntries(parser, (id, displayName) -> {
+            if (id != null && displayName != null) {
+                displayNamesById.put(id, displayName);
+            }
+        }));
+
+        return displayNamesById;
+    }
+
+    // Hands the id and displayName of every entry in value to the consumer, either of them null when missing, and
+    // returns the next page link, or null when there is none
+    public static String readEntries(JsonFactory jsonFactory, InputStream body, BiConsumer<String, String> consumer)
+            throws IOException {
+        return readCollection(jsonFactory, body, parser -> readEntries(parser, consumer));
+    }
+
+    // Strings in value, as returned by actions such as getMemberGroups. Any other entry is left out.
+    public static List<String> readStrings(JsonFactory jsonFactory, InputStream body) throws IOException {
+        List<String> values = new ArrayList<>();
+
+        readCollection(jsonFactory, body, parser -> {
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (parser.currentToken() == JsonToken.VALUE_STRING) {
+                    values.add(parser.getText());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        });
+
+        return values;
+    }
+
+    // Hands the value array to the reader and returns the next page link, or null when there is none
+    private static String readCollection(JsonFactory jsonFactory, InputStream body, ValueReader valueReader)
+            throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            JsonToken rootToken = parser.nextToken();
+
+            if (rootToken == null) {
+                // Empty body, as for a 204
+                return null;
+            }
+
+            if (rootToken != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected a Graph collection object, found " + rootToken);
+            }
+
+            return readCollectionFields(parser, valueReader);
+        }
+    }
+
+    // Reads the fields of a collection object, up to and including its END_OBJECT
+    private static String readCollectionFields(JsonParser parser, ValueReader valueReader) throws IOException {
+        String nextLink = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken valueToken = parser.nextToken();
+
+            if (VALUE_FIELD.equals(field) && valueToken == JsonToken.START_ARRAY) {
+                valueReader.read(parser);
+            } else if (NEXT_LINK_FIELD.equals(field) && valueToken == JsonToken.VALUE_STRING) {
+                nextLink = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        return nextLink;
+    }
+
+    private static ValueReader displayNamesReader(List<String> displayNames) {
+        return parser -> readEntries(parser, (id, displayName) -> {
+            if (displayName != null) {
+                displayNames.add(displayName);
+            }
+        });
+    }
+
+    // Hands the id and displayName of every object in the array to the consumer, either of them null when missing
+    private static void readEntries(JsonParser parser, BiConsumer<String, String> consumer) throws IOException {
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (parser.currentToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+
+            String id = null;
+            String displayName = null;
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken valueToken = parser.nextToken();
+
+                if (DISPLAY_NAME_FIELD.equals(field) && valueToken == JsonToken.VALUE_STRING) {
+                    displayName = parser.getText();
+                } else if (ID_FIELD.equals(field) && valueToken == JsonToken.VALUE_STRING) {
+                    id = parser.getText();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+
+            consumer.accept(id, displayName);
+        }
+    }
+
+    // Reads the value array, from its START_ARRAY up to and including its END_ARRAY
+    @FunctionalInterface
+    private interface ValueReader {
+        void read(JsonParser parser) throws IOException;
+    }
+}
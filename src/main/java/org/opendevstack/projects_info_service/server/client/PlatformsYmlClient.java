@@ -17,10 +17,14 @@ import java.util.List;
 @Service
 public class PlatformsYmlClient {
 
+    public static final String SECTIONS_CACHE_NAME = "sectionsConfigurationCache";
+    public static final String PLATFORMS_CACHE_NAME = "platformsConfigurationCache";
+
     private final SimpleConfigurationYmlClient simpleConfigurationYmlClient;
 
     @SneakyThrows
-    @Cacheable("sectionsConfigurationCache")
+    // Synchronized, so concurrent renders of a batch of projects share a single fetch of the file
+    @Cacheable(value = SECTIONS_CACHE_NAME, sync = true)
     public List<PlatformSection> fetchSectionsFromYaml(String url) {
         var root = simpleConfigurationYmlClient.fetch(url, PlatformsYml.class);
 
@@ -28,7 +32,7 @@ public class PlatformsYmlClient {
     }
 
     @SneakyThrows
-    @Cacheable("platformsConfigurationCache")
+    @Cacheable(value = PLATFORMS_CACHE_NAME, sync = true)
     public Pair<String, List<Platform>> fetchPlatformsFromYaml(String url) {
         var root = simpleConfigurationYmlClient.fetch(url, PlatformsYml.class);
 
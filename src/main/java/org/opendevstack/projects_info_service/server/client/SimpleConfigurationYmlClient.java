@@ -5,6 +5,7 @@ import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.opendevstack.projects_info_service.configuration.ConfigurationRepositoryConfiguration;
+import org.opendevstack.projects_info_service.server.metrics.DependencyMetrics;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
@@ -15,15 +16,21 @@ import org.springframework.web.client.RestTemplate;
 @Slf4j
 @Service
 public class SimpleConfigurationYmlClient {
+
+    public static final String DEPENDENCY_NAME = "bitbucket";
+
     private final RestTemplate restTemplate;
     private final ObjectMapper yamlMapper;
     private final ConfigurationRepositoryConfiguration configurationRepositoryConfiguration;
+    private final DependencyMetrics dependencyMetrics;
 
 
-    public SimpleConfigurationYmlClient(RestTemplate restTemplate, ConfigurationRepositoryConfiguration configurationRepositoryConfiguration) {
+    public SimpleConfigurationYmlClient(RestTemplate restTemplate, ConfigurationRepositoryConfiguration configurationRepositoryConfiguration,
+                                        DependencyMetrics dependencyMetrics) {
         this.restTemplate = restTemplate;
         this.yamlMapper = new ObjectMapper(new YAMLFactory());
         this.configurationRepositoryConfiguration = configurationRepositoryConfiguration;
+        this.dependencyMetrics = dependencyMetrics;
     }
 
     @SneakyThrows
@@ -35,7 +42,8 @@ public class SimpleConfigurationYmlClient {
 
         log.debug("Fetching YAML from URL={}", url);
 
-        ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
+        ResponseEntity<String> response = dependencyMetrics.record(DEPENDENCY_NAME, "fetch-yaml",
+                () -> restTemplate.exchange(url, HttpMethod.GET, entity, String.class));
 
         String yamlContent = response.getBody();
 
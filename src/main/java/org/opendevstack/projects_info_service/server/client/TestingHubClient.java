@@ -1,5 +1,6 @@
 package org.opendevstack.projects_info_service.server.client;
 
+import org.opendevstack.projects_info_service.server.metrics.DependencyMetrics;
 import org.opendevstack.projects_info_service.server.model.TestingHubProject;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
@@ -21,6 +22,8 @@ import java.util.stream.Collectors;
 @Service
 public class TestingHubClient {
 
+    public static final String DEPENDENCY_NAME = "testing-hub";
+
     @Value("${testing-hub.api.url}")
     private String url;
 
@@ -35,10 +38,12 @@ public class TestingHubClient {
 
     private final RestTemplate restTemplate;
     private final ObjectMapper jacksonMapper;
+    private final DependencyMetrics dependencyMetrics;
 
-    public TestingHubClient(RestTemplate restTemplate, ObjectMapper jacksonMapper) {
+    public TestingHubClient(RestTemplate restTemplate, ObjectMapper jacksonMapper, DependencyMetrics dependencyMetrics) {
         this.restTemplate = restTemplate;
         this.jacksonMapper = jacksonMapper;
+        this.dependencyMetrics = dependencyMetrics;
     }
 
     public Set<TestingHubProject> getDefaultProjects() {
@@ -60,12 +65,13 @@ public class TestingHubClient {
         // Let's discuss later about pagination handling
         var requestUrl = url + "?pageNumber=0&itemsPerPage=" + pageSize;
 
-        ResponseEntity<String> response = restTemplate.exchange(
-                requestUrl,
-                HttpMethod.GET,
-                entity,
-                String.class
-        );
+        ResponseEntity<String> response = dependencyMetrics.record(DEPENDENCY_NAME, "list-projects",
+                () -> restTemplate.exchange(
+                        requestUrl,
+                        HttpMethod.GET,
+                        entity,
+                        String.class
+                ));
 
         if (response.getStatusCode() == HttpStatus.OK) {
             String responseBody = response.getBody();
@@ -6,8 +6,11 @@ import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.opendevstack.projects_info_service.server.exception.GraphTokenException;
 import org.opendevstack.projects_info_service.server.facade.AuthenticationFacade;
+import org.opendevstack.projects_info_service.server.http.CacheableResponses;
+import org.opendevstack.projects_info_service.server.model.UserProfile;
 import org.opendevstack.projects_info_service.server.service.GraphTokenService;
 import org.opendevstack.projects_info_service.server.service.MocksService;
+import org.opendevstack.projects_info_service.server.service.UserGroupsService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -26,13 +29,19 @@ public class AzureGroupsApiController implements AzureGroupsApi {
     private final AzureGraphClient azureGraphClient;
     private final MocksService mocksService;
     private final GraphTokenService graphTokenService;
+    private final UserGroupsService userGroupsService;
+    private final CacheableResponses cacheableResponses;
 
     @Override
     public ResponseEntity<List<String>> getAzureGroups() {
         var accessToken = authenticationFacade.getAccessToken();
         var graphToken = graphTokenService.getGraphToken(accessToken);
-        var userEmail = azureGraphClient.getUserEmail(graphToken);
-        var userGroups = azureGraphClient.getUserGroups(graphToken);
+        var userProfile = userGroupsService.batchesWithEmail()
+                ? azureGraphClient.getUserProfile(graphToken)
+                : new UserProfile(azureGraphClient.getUserEmail(graphToken),
+                        userGroupsService.getUserGroups(graphToken));
+        var userEmail = userProfile.email();
+        var userGroups = userProfile.groups();
         var mockGroups = mocksService.getUserGroups(userEmail);
 
         var allGroups = Stream.concat(userGroups.stream(), mockGroups.stream())
@@ -40,6 +49,7 @@ public class AzureGroupsApiController implements AzureGroupsApi {
 
         log.debug("Returning all groups: {} for userEmail: {}", allGroups, userEmail);
 
-        return ResponseEntity.ok(allGroups.stream().toList());
+        // Sorted, so the same groups always give the same body and ETag
+        return cacheableResponses.userResponse(allGroups.stream().sorted().toList());
     }
 }
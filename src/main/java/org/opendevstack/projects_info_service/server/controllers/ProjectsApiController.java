@@ -2,17 +2,25 @@ package org.opendevstack.projects_info_service.server.controllers;
 
 import org.opendevstack.projects_info_service.server.api.ProjectsApi;
 import org.opendevstack.projects_info_service.server.dto.ProjectPlatforms;
+import org.opendevstack.projects_info_service.server.dto.ProjectPlatformsBatchRequest;
+import org.opendevstack.projects_info_service.server.exception.GraphTokenException;
+import org.opendevstack.projects_info_service.server.exception.InvalidTokenException;
+import org.opendevstack.projects_info_service.server.exception.UnableToReachAzureException;
+import org.opendevstack.projects_info_service.server.exception.UserNotInValidGroupException;
 import org.opendevstack.projects_info_service.server.facade.AuthenticationFacade;
 import org.opendevstack.projects_info_service.server.facade.ProjectsFacade;
+import org.opendevstack.projects_info_service.server.http.CacheableResponses;
 import org.opendevstack.projects_info_service.server.dto.ProjectInfo;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.client.ResourceAccessException;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @Controller
 @RequestMapping("${openapi.componentProvisionerREST.base-path:/v1}")
@@ -22,39 +30,69 @@ public class ProjectsApiController implements ProjectsApi {
 
     private final AuthenticationFacade authenticationFacade;
     private final ProjectsFacade projectsFacade;
+    private final CacheableResponses cacheableResponses;
 
     @Override
     public ResponseEntity<List<String>> getProjects() {
         var accessToken = authenticationFacade.getAccessToken();
 
-        var projects = new ArrayList<>(projectsFacade.getProjects(accessToken).keySet());
+        var projectsInfo = projectsFacade.getProjects(accessToken);
+        var projects = new ArrayList<>(projectsInfo.keySet());
 
-        return ResponseEntity.ok(projects);
+        return cacheableResponses.userResponse(projectsInfo, projects);
     }
 
     @Override
     public ResponseEntity<ProjectInfo> getProjectClusters(String projectKey) {
         var accessToken = authenticationFacade.getAccessToken();
 
-        var projects = projectsFacade.getProjects(accessToken);
-        var project = projects.get(projectKey);
+        var project = projectsFacade.isProjectLookupReady()
+                ? lookUpProject(accessToken, projectKey)
+                : projectsFacade.getProjects(accessToken).get(projectKey);
 
         if (project == null) {
             return ResponseEntity.notFound().build();
         } else {
-            return ResponseEntity.ok(projects.get(projectKey));
+            return cacheableResponses.userResponse(project);
+        }
+    }
+
+    // The single project lookup has no cache fallback of its own. When an upstream fails, the user's project map
+    // answers instead, which falls back to its cached copy as before. A user outside the valid groups has no project.
+    private ProjectInfo lookUpProject(String accessToken, String projectKey) {
+        try {
+            return projectsFacade.getProject(accessToken, projectKey);
+        } catch (UserNotInValidGroupException e) {
+            log.debug("User is not in a valid group. Project {} is not found.", projectKey);
+
+            return null;
+        } catch (InvalidTokenException | GraphTokenException | UnableToReachAzureException
+                 | ResourceAccessException e) {
+            log.warn("Unable to look up project {} on its own: {}. Taking it from the user's projects.", projectKey,
+                    e.getMessage());
+
+            return projectsFacade.getProjects(accessToken).get(projectKey);
         }
     }
 
     @Override
     public ResponseEntity<ProjectPlatforms> getProjectPlatforms(String projectKey) {
-        var projectPlatforms = projectsFacade.getProjectPlatforms(projectKey);
+        var renderedProjectPlatforms = projectsFacade.getRenderedProjectPlatforms(projectKey);
 
-        if (projectPlatforms == null) {
+        if (renderedProjectPlatforms == null) {
             return ResponseEntity.notFound().build();
         } else {
-            return ResponseEntity.ok(projectPlatforms);
+            return cacheableResponses.publicResponse(renderedProjectPlatforms.eTag(),
+                    renderedProjectPlatforms.projectPlatforms());
         }
 
     }
+
+    @Override
+    public ResponseEntity<Map<String, ProjectPlatforms>> getProjectsPlatforms(
+            ProjectPlatformsBatchRequest projectPlatformsBatchRequest) {
+        var projectsPlatforms = projectsFacade.getProjectsPlatforms(projectPlatformsBatchRequest.getProjectKeys());
+
+        return cacheableResponses.publicResponse(projectsPlatforms);
+    }
 }
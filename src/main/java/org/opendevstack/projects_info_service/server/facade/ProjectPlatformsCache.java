@@ -0,0 +1,121 @@
+package org.opendevstack.projects_info_service.server.facade;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.opendevstack.projects_info_service.configuration.CacheEntryRemovedEvent;
+import org.opendevstack.projects_info_service.server.client.PlatformsYmlClient;
+import org.opendevstack.projects_info_service.server.dto.ProjectPlatforms;
+import org.opendevstack.projects_info_service.server.http.EntityTags;
+import org.opendevstack.projects_info_service.server.model.RenderedProjectPlatforms;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Rendered platforms responses, per project.
+ * <p>
+ * The response does not depend on the caller, so it is rendered once and then served from here. An entry is
+ * rendered again when the clusters of the project change in the project index, when the platforms YAML caches drop
+ * the configuration it was built from, or when it outlives its TTL.
+ */
+@Slf4j
+@Component
+public class ProjectPlatformsCache {
+
+    public static final String CACHE_NAME = "projectPlatforms";
+
+    // Caches the rendered responses are built from. They publish their removals, see custom.cache.specs.
+    private static final Set<String> SOURCE_CACHES =
+            Set.of(PlatformsYmlClient.PLATFORMS_CACHE_NAME, PlatformsYmlClient.SECTIONS_CACHE_NAME);
+
+    private final Cache<String, RenderedProjectPlatforms> renderedPlatforms;
+
+    private final ObjectMapper mapper;
+
+    // Bumped on every invalidation, so a response rendered from the previous configuration is not stored afterwards
+    private final AtomicLong generation = new AtomicLong();
+
+    public ProjectPlatformsCache(ObjectMapper mapper,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${platforms.response-cache.ttl:10m}") Duration ttl,
+                                 @Value("${platforms.response-cache.max-size:10000}") long maxSize) {
+        this.mapper = mapper;
+        this.renderedPlatforms = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, renderedPlatforms, CACHE_NAME);
+    }
+
+    public RenderedProjectPlatforms get(String projectKey, List<String> clusters, Supplier<ProjectPlatforms> renderer) {
+        var cached = getIfCurrent(projectKey, clusters);
+
+        if (cached != null) {
+            return cached;
+        }
+
+        var rendered = new AtomicReference<RenderedProjectPlatforms>();
+
+        // Concurrent misses of a project wait for a single render, and an invalidation waits for the render to be
+        // stored before dropping it
+        renderedPlatforms.asMap().compute(projectKey, (key, current) -> {
+            if (current != null && current.clusters().equals(clusters)) {
+                rendered.set(current);
+
+                return current;
+            }
+
+            var renderedGeneration = generation.get();
+            var projectPlatforms = renderer.get();
+            rendered.set(new RenderedProjectPlatforms(projectPlatforms, eTagOf(projectPlatforms), clusters));
+
+            // Invalidated while rendering, so it may have been built from the previous configuration
+            return renderedGeneration == generation.get() ? rendered.get() : null;
+        });
+
+        return rendered.get();
+    }
+
+    // The rendered response of the project, or null when it is missing or was rendered for other clusters
+    public RenderedProjectPlatforms getIfCurrent(String projectKey, List<String> clusters) {
+        var cached = renderedPlatforms.getIfPresent(projectKey);
+
+        return cached != null && cached.clusters().equals(clusters) ? cached : null;
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        renderedPlatforms.invalidateAll();
+    }
+
+    @EventListener
+    public void onCacheEntryRemoved(CacheEntryRemovedEvent event) {
+        if (SOURCE_CACHES.contains(event.cacheName())) {
+            log.debug("Platforms configuration left cache {}. Rendering platforms responses again.", event.cacheName());
+
+            invalidateAll();
+        }
+    }
+
+    private String eTagOf(ProjectPlatforms projectPlatforms) {
+        try {
+            return EntityTags.strong(mapper.writeValueAsBytes(projectPlatforms));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize the platforms response", e);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package org.opendevstack.projects_info_service.server.facade;
 
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.opendevstack.projects_info_service.configuration.ExecutorConfiguration;
 import org.opendevstack.projects_info_service.server.annotations.CacheableWithFallback;
 import org.opendevstack.projects_info_service.server.client.AzureGraphClient;
 import org.opendevstack.projects_info_service.server.client.ProjectWhitelistYmlClient;
@@ -9,22 +10,37 @@ import org.opendevstack.projects_info_service.server.dto.Link;
 import org.opendevstack.projects_info_service.server.dto.ProjectInfo;
 import org.opendevstack.projects_info_service.server.dto.ProjectPlatforms;
 import org.opendevstack.projects_info_service.server.dto.Section;
-import org.opendevstack.projects_info_service.server.model.OpenshiftProjectCluster;
 import org.opendevstack.projects_info_service.server.model.PlatformsWithTitle;
+import org.opendevstack.projects_info_service.server.model.RenderedProjectPlatforms;
+import org.opendevstack.projects_info_service.server.model.UserProfile;
 import org.opendevstack.projects_info_service.server.security.GroupValidatorService;
+import org.opendevstack.projects_info_service.server.security.UserIdentityKeyGenerator;
 import org.opendevstack.projects_info_service.server.service.EdpProjectsService;
 import org.opendevstack.projects_info_service.server.service.GraphTokenService;
+import org.opendevstack.projects_info_service.server.service.GroupMembershipIndex;
 import org.opendevstack.projects_info_service.server.service.MocksService;
 import org.opendevstack.projects_info_service.server.service.OpenShiftProjectService;
 import org.opendevstack.projects_info_service.server.service.PlatformService;
+import org.opendevstack.projects_info_service.server.service.ProjectClusterIndex;
+import org.opendevstack.projects_info_service.server.service.TokenClaimsService;
+import org.opendevstack.projects_info_service.server.service.UserGroupsService;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 @Slf4j
@@ -47,6 +63,21 @@ public class ProjectsFacade {
 
     private final GraphTokenService graphTokenService;
 
+    private final TokenClaimsService tokenClaimsService;
+
+    private final UserGroupsService userGroupsService;
+
+    private final GroupMembershipIndex groupMembershipIndex;
+
+    private final ProjectClusterIndex projectClusterIndex;
+
+    private final ProjectPlatformsCache projectPlatformsCache;
+
+    private final ExecutorService executor;
+
+    // Shared by every batch request, so anonymous batches cannot start an unbounded number of renders
+    private final Semaphore batchRenderPermits;
+
     public ProjectsFacade(AzureGraphClient azureGraphClient,
                           OpenShiftProjectService openShiftProjectService,
                           EdpProjectsService edpProjectsService,
@@ -54,7 +85,14 @@ public class ProjectsFacade {
                           PlatformService platformService,
                           GroupValidatorService groupValidatorService,
                           ProjectWhitelistYmlClient projectWhitelistYmlClient,
-                          GraphTokenService graphTokenService) {
+                          GraphTokenService graphTokenService,
+                          TokenClaimsService tokenClaimsService,
+                          UserGroupsService userGroupsService,
+                          GroupMembershipIndex groupMembershipIndex,
+                          ProjectClusterIndex projectClusterIndex,
+                          ProjectPlatformsCache projectPlatformsCache,
+                          @Qualifier(ExecutorConfiguration.VIRTUAL_THREAD_EXECUTOR_NAME) ExecutorService executor,
+                          @Value("${platforms.batch.max-concurrent-renders:4}") int maxConcurrentBatchRenders) {
         this.azureGraphClient = azureGraphClient;
         this.openShiftProjectService = openShiftProjectService;
         this.edpProjectsService = edpProjectsService;
@@ -63,24 +101,29 @@ public class ProjectsFacade {
         this.groupValidatorService = groupValidatorService;
         this.projectWhitelistYmlClient = projectWhitelistYmlClient;
         this.graphTokenService = graphTokenService;
+        this.tokenClaimsService = tokenClaimsService;
+        this.userGroupsService = userGroupsService;
+        this.groupMembershipIndex = groupMembershipIndex;
+        this.projectClusterIndex = projectClusterIndex;
+        this.projectPlatformsCache = projectPlatformsCache;
+        this.executor = executor;
+        this.batchRenderPermits = new Semaphore(maxConcurrentBatchRenders);
     }
 
-    @CacheableWithFallback(primary = "projectsInfoCache", fallback = "projectsInfoCache-fallback", defaultValue = "T(java.util.Collections).emptyMap()")
+    @CacheableWithFallback(primary = "projectsInfoCache", fallback = "projectsInfoCache-fallback",
+            defaultValue = "T(java.util.Collections).emptyMap()", keyGenerator = UserIdentityKeyGenerator.NAME,
+            staleWhileRevalidate = true)
     public Map<String, ProjectInfo> getProjects(String token) {
-        var graphToken = graphTokenService.getGraphToken(token);
-        var azureUserGroups = azureGraphClient.getUserGroups(graphToken);
-        var mockUserGroups = mocksService.getUserGroups(azureGraphClient.getUserEmail(graphToken));
+        // Independent upstream calls run concurrently, so a cold request waits for the slowest one instead of all
+        var allEdpProjectsInfoFetch = supplyAsync(openShiftProjectService::fetchProjects);
+        var userFetch = fetchUser(token);
 
-        var allUserGroups = Stream.concat(azureUserGroups.stream(), mockUserGroups.stream())
-                .filter(Objects::nonNull)
-                .map(String::trim)
-                .filter(StringUtils::isNotBlank)
-                .collect(java.util.stream.Collectors.toSet());
+        var azureUserGroups = join(userFetch.groups());
+        var userEmail = join(userFetch.email());
 
-        groupValidatorService.validate(allUserGroups);
+        validateUserGroups(azureUserGroups, mocksService.getUserGroups(userEmail));
 
-        var userEmail = azureGraphClient.getUserEmail(graphToken);
-        var allEdpProjectsInfo = openShiftProjectService.fetchProjects();
+        var allEdpProjectsInfo = join(allEdpProjectsInfoFetch);
 
         var edpProjects = edpProjectsService.filterProjects(azureUserGroups, allEdpProjectsInfo);
         log.info("EDP Projects found: {}", edpProjects);
@@ -120,53 +163,173 @@ public class ProjectsFacade {
         return sanitize(result);
     }
 
-    public ProjectPlatforms getProjectPlatforms(String projectKey) {
-        var allEdpProjectsInfo = openShiftProjectService.fetchProjects();
-        var mockProjectsAndClusters = mocksService.getDefaultProjectsAndClusters();
+    // Whether getProject can be answered from the project cluster index. When it cannot, getProjects is the way.
+    public boolean isProjectLookupReady() {
+        return projectClusterIndex.isReady();
+    }
 
-        var edpProjectsInfo = allEdpProjectsInfo.stream()
-                .filter(p -> p.getProject().equals(projectKey))
-                .toList();
+    // One project of the user, or null if the user has no access to it. Same as getProjects(token).get(projectKey),
+    // but membership is checked against the user groups and the project cluster index instead of building the map.
+    public ProjectInfo getProject(String token, String projectKey) {
+        var userFetch = fetchUser(token);
 
-        var mockClusters = mockProjectsAndClusters.entrySet().stream()
-                .filter(e -> e.getValue().getProjectKey().equals(projectKey))
-                .flatMap(e -> e.getValue().getClusters().stream())
-                .toList();
+        var azureUserGroups = join(userFetch.groups());
+        var userEmail = join(userFetch.email());
+
+        validateUserGroups(azureUserGroups, mocksService.getUserGroups(userEmail));
+
+        var whitelistedProjects = whitelistedProjects();
+
+        if (!whitelistedProjects.isEmpty() && !whitelistedProjects.contains(projectKey)) {
+            log.debug("Project {} is not whitelisted.", projectKey);
+
+            return null;
+        }
+
+        // If mock, clusters are overridden, as we intend mocks for testing purposes
+        var mockProject = mocksService.getProjectsAndClusters(userEmail).get(projectKey);
+
+        if (mockProject != null) {
+            return new ProjectInfo(projectKey, orderClusters(mockProject.getClusters()));
+        }
+
+        var openshiftClusters = projectClusterIndex.openshiftClustersOf(projectKey);
 
-        // If EDP project exists, add its clusters to the front of the list, so we prioritize them
-        var mergedClusters = new ArrayList<String>();
+        if (openshiftClusters.isEmpty() || !edpProjectsService.hasAccess(azureUserGroups, projectKey)) {
+            log.debug("Project {} not found for the user.", projectKey);
 
-        if (!edpProjectsInfo.isEmpty()) {
-            mergedClusters.addAll(
-                    edpProjectsInfo.stream()
-                            .map(OpenshiftProjectCluster::getCluster)
-                            .filter(StringUtils::isNotBlank)
-                            .toList()
-            );
+            return null;
         }
 
-        mergedClusters.addAll(mockClusters);
+        return new ProjectInfo(projectKey, orderClusters(openshiftClusters));
+    }
+
+    public ProjectPlatforms getProjectPlatforms(String projectKey) {
+        var renderedProjectPlatforms = getRenderedProjectPlatforms(projectKey);
+
+        return renderedProjectPlatforms != null ? renderedProjectPlatforms.projectPlatforms() : null;
+    }
+
+    // Rendered once per project, and served from the platforms cache while its clusters and configuration are the same
+    public RenderedProjectPlatforms getRenderedProjectPlatforms(String projectKey) {
+        // EDP clusters come before mocked ones, and both are already ordered by the index
+        var mergedClusters = projectClusterIndex.clustersOf(projectKey);
 
         if (mergedClusters.isEmpty()) {
             log.debug("Project not found: {}", projectKey);
 
             return null;
         } else {
-            mergedClusters = new ArrayList<>(orderClusters(mergedClusters));
             log.debug("Project found: {}, returning ProjectPlatforms for clusters: {}.", projectKey, mergedClusters);
 
-            List<Section> sections = getSectionFromFirstAvailableCluster(projectKey, mergedClusters);
-            var disabledPlatforms = platformService.getDisabledPlatforms(projectKey);
-            var platformsWithTitle = getPlatformsWithTitleFromFirstAvailableCluster(projectKey, mergedClusters);
+            return projectPlatformsCache.get(projectKey, mergedClusters,
+                    () -> renderProjectPlatforms(projectKey, mergedClusters));
+        }
+    }
+
+    // Platforms of several projects, keyed in request order. Unknown projects are left out.
+    public Map<String, ProjectPlatforms> getProjectsPlatforms(List<String> projectKeys) {
+        // A single index snapshot resolves the clusters of the whole batch
+        var clustersByProject = projectClusterIndex.clustersOf(projectKeys);
 
-            var firstSection = componseFirstSection(platformsWithTitle, disabledPlatforms);
+        log.debug("Returning ProjectPlatforms for {} of {} requested projects.", clustersByProject.size(),
+                projectKeys.size());
 
-            sections.addFirst(firstSection);
+        // Current renders are served from the platforms cache, and only the missing ones are rendered concurrently
+        Map<String, CompletableFuture<RenderedProjectPlatforms>> renders = new LinkedHashMap<>();
+
+        clustersByProject.forEach((projectKey, clusters) -> {
+            var cached = projectPlatformsCache.getIfCurrent(projectKey, clusters);
+
+            renders.put(projectKey, cached != null
+                    ? CompletableFuture.completedFuture(cached)
+                    : renderWithPermit(projectKey, clusters));
+        });
+
+        Map<String, ProjectPlatforms> result = new LinkedHashMap<>();
+
+        renders.forEach((projectKey, render) -> result.put(projectKey, join(render).projectPlatforms()));
+
+        return result;
+    }
 
-            return ProjectPlatforms.builder()
-                    .sections(sections)
-                    .build();
+    // Groups and e-mail of the user. What the access token carries, or the group membership index knows, is taken
+    // from there, and only the rest is fetched from Graph, concurrently and with a single on-behalf-of exchange. When
+    // both are missing, they can share a single $batch request.
+    private UserFetch fetchUser(String token) {
+        var localGroups = tokenClaimsService.getUserGroups(token)
+                .or(() -> tokenClaimsService.getUserObjectId(token).flatMap(groupMembershipIndex::groupsOf));
+        var localEmail = tokenClaimsService.getUserEmail(token);
+
+        if (localGroups.isPresent() && localEmail.isPresent()) {
+            log.debug("User groups and e-mail taken without asking Graph.");
+
+            return new UserFetch(CompletableFuture.completedFuture(localGroups.get()),
+                    CompletableFuture.completedFuture(localEmail.get()));
+        }
+
+        var graphToken = graphTokenService.getGraphToken(token);
+
+        if (localGroups.isEmpty() && localEmail.isEmpty() && userGroupsService.batchesWithEmail()) {
+            var userProfile = supplyAsync(() -> azureGraphClient.getUserProfile(graphToken));
+
+            return new UserFetch(userProfile.thenApply(UserProfile::groups), userProfile.thenApply(UserProfile::email));
         }
+
+        return new UserFetch(
+                localGroups.map(CompletableFuture::completedFuture)
+                        .orElseGet(() -> supplyAsync(() -> userGroupsService.getUserGroups(graphToken))),
+                localEmail.map(CompletableFuture::completedFuture)
+                        .orElseGet(() -> supplyAsync(() -> azureGraphClient.getUserEmail(graphToken))));
+    }
+
+    // Waits for a free permit before starting the render, so at most max-concurrent-renders are in flight
+    private CompletableFuture<RenderedProjectPlatforms> renderWithPermit(String projectKey, List<String> clusters) {
+        batchRenderPermits.acquireUninterruptibly();
+
+        try {
+            return supplyAsync(() -> projectPlatformsCache.get(projectKey, clusters,
+                    () -> renderProjectPlatforms(projectKey, clusters)))
+                    .whenComplete((rendered, failure) -> batchRenderPermits.release());
+        } catch (RuntimeException e) {
+            batchRenderPermits.release();
+
+            throw e;
+        }
+    }
+
+    private <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier) {
+        return CompletableFuture.supplyAsync(supplier, executor);
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            // Surfaces the same exception the call would have thrown on the calling thread
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+
+            throw e;
+        }
+    }
+
+    private record UserFetch(CompletableFuture<Set<String>> groups, CompletableFuture<String> email) {
+    }
+
+    private ProjectPlatforms renderProjectPlatforms(String projectKey, List<String> mergedClusters) {
+        List<Section> sections = getSectionFromFirstAvailableCluster(projectKey, mergedClusters);
+        var disabledPlatforms = platformService.getDisabledPlatforms(projectKey);
+        var platformsWithTitle = getPlatformsWithTitleFromFirstAvailableCluster(projectKey, mergedClusters);
+
+        var firstSection = componseFirstSection(platformsWithTitle, disabledPlatforms);
+
+        sections.addFirst(firstSection);
+
+        return ProjectPlatforms.builder()
+                .sections(sections)
+                .build();
     }
 
     private Section componseFirstSection(PlatformsWithTitle platformsWithTitle, List<String> disabledPlatforms) {
@@ -192,29 +355,41 @@ public class ProjectsFacade {
 
         projectInfoMap.forEach((key, value) -> result.put(key, new ProjectInfo(key, orderClusters(value.getClusters()))));
 
+        var whitelistedProjects = whitelistedProjects();
+
+        if (!whitelistedProjects.isEmpty()) {
+            log.debug("Whitelisted configuration found: {}. Cleaning results.", whitelistedProjects);
+            result.keySet().retainAll(whitelistedProjects);
+        }
+
+        return result;
+    }
+
+    private void validateUserGroups(Set<String> azureUserGroups, Set<String> mockUserGroups) {
+        var allUserGroups = Stream.concat(azureUserGroups.stream(), mockUserGroups.stream())
+                .filter(Objects::nonNull)
+                .map(String::trim)
+                .filter(StringUtils::isNotBlank)
+                .collect(java.util.stream.Collectors.toSet());
+
+        groupValidatorService.validate(allUserGroups);
+    }
+
+    // Whitelisted project keys, or an empty list when every project is allowed
+    private List<String> whitelistedProjects() {
         var projectWhitelistedConfiguration = projectWhitelistYmlClient.fetch();
 
         if (projectWhitelistedConfiguration != null
-                && projectWhitelistedConfiguration.getProjects().getWhitelisted() != null
-                && !projectWhitelistedConfiguration.getProjects().getWhitelisted().isEmpty()) {
-            log.debug("Whitelisted configuration found: {}. Cleaning results.", projectWhitelistedConfiguration.getProjects().getWhitelisted());
-            result.keySet().retainAll(projectWhitelistedConfiguration.getProjects().getWhitelisted());
+                && projectWhitelistedConfiguration.getProjects().getWhitelisted() != null) {
+            return projectWhitelistedConfiguration.getProjects().getWhitelisted();
         }
 
-        return result;
+        return List.of();
     }
 
     private List<String> orderClusters(List<String> clusters) {
         return clusters.stream()
-                .sorted((a, b) -> {
-                    // Case-insensitive comparison
-                    int caseInsensitiveResult = a.compareToIgnoreCase(b);
-                    if (caseInsensitiveResult != 0) {
-                        return caseInsensitiveResult;
-                    }
-                    // If equal ignoring case, uppercase comes first
-                    return Boolean.compare(Character.isUpperCase(b.charAt(0)), Character.isUpperCase(a.charAt(0)));
-                })
+                .sorted(ProjectClusterIndex.CLUSTER_ORDER)
                 .toList();
     }
 
@@ -0,0 +1,86 @@
+package org.opendevstack.projects_info_service.server.http;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.opendevstack.projects_info_service.configuration.CacheControlConfiguration;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Builds 200 responses with an ETag and the configured Cache-Control.
+ * <p>
+ * Spring MVC answers a GET whose If-None-Match matches the ETag of the returned entity with a 304, without writing
+ * the body, so repeated polls of unchanged data cost neither serialization nor bandwidth.
+ */
+@Component
+public class CacheableResponses {
+
+    // Keyed by identity of the cached value a body is built from. Entries go away with the value they belong to.
+    private final Cache<Object, String> eTagsBySource = Caffeine.newBuilder()
+            .weakKeys()
+            .maximumSize(10_000)
+            .build();
+
+    private final ObjectMapper mapper;
+
+    private final CacheControlConfiguration cacheControlConfig;
+
+    public CacheableResponses(ObjectMapper mapper, CacheControlConfiguration cacheControlConfig) {
+        this.mapper = mapper;
+        this.cacheControlConfig = cacheControlConfig;
+    }
+
+    // Caller dependent body built from a cached value. Its ETag is computed once per instance of that value.
+    public <T> ResponseEntity<T> userResponse(Object source, T body) {
+        var eTag = eTagsBySource.get(source, key -> eTagOf(body));
+
+        return userResponseWithETag(eTag, body);
+    }
+
+    // Caller dependent body without a cached value behind it, so its ETag is computed on every call
+    public <T> ResponseEntity<T> userResponse(T body) {
+        return userResponseWithETag(eTagOf(body), body);
+    }
+
+    // Same body for every caller, without a single cached value behind it, so its ETag is computed on every call
+    public <T> ResponseEntity<T> publicResponse(T body) {
+        return publicResponse(eTagOf(body), body);
+    }
+
+    public <T> ResponseEntity<T> publicResponse(String eTag, T body) {
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .cacheControl(cacheControl(cacheControlConfig.getPublicMaxAge()).cachePublic())
+                .body(body);
+    }
+
+    private <T> ResponseEntity<T> userResponseWithETag(String eTag, T body) {
+        var response = ResponseEntity.ok()
+                .eTag(eTag)
+                .cacheControl(cacheControl(cacheControlConfig.getUserMaxAge()).cachePrivate());
+
+        if (cacheControlConfig.isVaryByAuthorization()) {
+            response.varyBy(HttpHeaders.AUTHORIZATION);
+        }
+
+        return response.body(body);
+    }
+
+    private static CacheControl cacheControl(Duration maxAge) {
+        return maxAge.isZero() || maxAge.isNegative() ? CacheControl.noCache() : CacheControl.maxAge(maxAge);
+    }
+
+    private String eTagOf(Object body) {
+        try {
+            return EntityTags.strong(mapper.writeValueAsBytes(body));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize the response body", e);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package org.opendevstack.projects_info_service.server.http;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Strong entity tags derived from the serialized body, so equal bodies always get the same tag.
+ */
+public final class EntityTags {
+
+    private EntityTags() {
+    }
+
+    public static String strong(byte[] content) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+
+            return "\"" + HexFormat.of().formatHex(digest.digest(content)) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 algorithm is not available", e);
+        }
+    }
+}
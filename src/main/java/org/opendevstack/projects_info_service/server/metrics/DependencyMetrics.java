@@ -0,0 +1,108 @@
+package org.opendevstack.projects_info_service.server.metrics;
+
+import com.microsoft.aad.msal4j.MsalServiceException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Times calls to outbound dependencies (Azure Graph, MSAL, OpenShift, Bitbucket and TestingHub).
+ * <p>
+ * Every call is recorded in a single timer, tagged by dependency, operation, target and outcome. The target is the
+ * cluster for OpenShift calls and {@link #NO_TARGET} otherwise. This way p99 latency can be attributed to one
+ * upstream.
+ */
+@Component
+public class DependencyMetrics {
+
+    public static final String DEPENDENCY_CALLS_TIMER_NAME = "dependency.calls";
+
+    public static final String NO_TARGET = "none";
+
+    public static final String OUTCOME_SUCCESS = "success";
+    public static final String OUTCOME_CLIENT_ERROR = "4xx";
+    public static final String OUTCOME_SERVER_ERROR = "5xx";
+    public static final String OUTCOME_TIMEOUT = "timeout";
+    public static final String OUTCOME_ERROR = "error";
+
+    private final MeterRegistry meterRegistry;
+
+    public DependencyMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <T> T record(String dependency, String operation, Supplier<T> call) {
+        return record(dependency, operation, NO_TARGET, call);
+    }
+
+    public <T> T record(String dependency, String operation, String target, Supplier<T> call) {
+        var sample = start();
+        var outcome = OUTCOME_ERROR;
+
+        try {
+            T result = call.get();
+            outcome = OUTCOME_SUCCESS;
+
+            return result;
+        } catch (RuntimeException e) {
+            outcome = outcomeOf(e);
+
+            throw e;
+        } finally {
+            stop(sample, dependency, operation, target, outcome);
+        }
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(meterRegistry);
+    }
+
+    public void stop(Timer.Sample sample, String dependency, String operation, String target, String outcome) {
+        sample.stop(Timer.builder(DEPENDENCY_CALLS_TIMER_NAME)
+                .description("Time spent in calls to outbound dependencies")
+                .tag("dependency", dependency)
+                .tag("operation", operation)
+                .tag("target", target)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    public static String outcomeOf(Throwable throwable) {
+        var cause = throwable;
+
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+
+        if (cause instanceof HttpStatusCodeException e) {
+            return outcomeOfStatus(e.getStatusCode().value());
+        } else if (cause instanceof MsalServiceException e && e.statusCode() != null) {
+            return outcomeOfStatus(e.statusCode());
+        } else if (cause instanceof TimeoutException || cause instanceof InterruptedIOException
+                || (cause instanceof ResourceAccessException && cause.getCause() instanceof InterruptedIOException)) {
+            // Read, connect and connection pool timeouts of the HTTP client are all interrupted I/O
+            return OUTCOME_TIMEOUT;
+        }
+
+        return OUTCOME_ERROR;
+    }
+
+    private static String outcomeOfStatus(int status) {
+        if (status >= 400 && status < 500) {
+            return OUTCOME_CLIENT_ERROR;
+        } else if (status >= 500) {
+            return OUTCOME_SERVER_ERROR;
+        }
+
+        return OUTCOME_ERROR;
+    }
+}
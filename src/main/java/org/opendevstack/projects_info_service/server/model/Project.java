@@ -1,12 +0,0 @@
-package org.opendevstack.projects_info_service.server.model;
-
-import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
-import lombok.Getter;
-import lombok.Setter;
-
-@Setter
-@Getter
-@JsonIgnoreProperties(ignoreUnknown = true)
-public class Project {
-    private Metadata metadata;
-}
\ No newline at end of file
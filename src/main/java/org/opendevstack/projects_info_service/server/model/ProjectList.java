@@ -1,14 +0,0 @@
-package org.opendevstack.projects_info_service.server.model;
-
-import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
-import lombok.Getter;
-import lombok.Setter;
-
-import java.util.List;
-
-@Setter
-@Getter
-@JsonIgnoreProperties(ignoreUnknown = true)
-public class ProjectList {
-    private List<Project> items;
-}
\ No newline at end of file
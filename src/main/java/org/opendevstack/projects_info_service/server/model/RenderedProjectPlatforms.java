@@ -0,0 +1,11 @@
+package org.opendevstack.projects_info_service.server.model;
+
+import org.opendevstack.projects_info_service.server.dto.ProjectPlatforms;
+
+import java.util.List;
+
+/**
+ * Platforms response of a project, with the strong ETag of its JSON body and the clusters it was rendered for.
+ */
+public record RenderedProjectPlatforms(ProjectPlatforms projectPlatforms, String eTag, List<String> clusters) {
+}
@@ -0,0 +1,9 @@
+package org.opendevstack.projects_info_service.server.model;
+
+import java.util.Set;
+
+/**
+ * E-mail and group names of a user, as fetched from Graph together in one $batch request.
+ */
+public record UserProfile(String email, Set<String> groups) {
+}
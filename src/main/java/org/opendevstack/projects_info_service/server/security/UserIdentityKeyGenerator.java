@@ -0,0 +1,58 @@
+package org.opendevstack.projects_info_service.server.security;
+
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.JWTParser;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.cache.interceptor.SimpleKeyGenerator;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.text.ParseException;
+import java.util.Arrays;
+
+/**
+ * Keys cache entries by the user a bearer token belongs to, instead of by the token itself.
+ * <p>
+ * Every token of the same user maps to the same key, so a token refresh does not empty the user's cache entries.
+ * The tenant and object id claims are used when present, then the user principal name. Tokens without any of them
+ * are reduced to their SHA-256 hash. Claims are read without checking the signature: incoming tokens were already
+ * validated by the security filter, and Graph tokens come straight from Entra ID.
+ */
+@Slf4j
+@Component(UserIdentityKeyGenerator.NAME)
+public class UserIdentityKeyGenerator implements KeyGenerator {
+
+    public static final String NAME = "userIdentityKeyGenerator";
+
+    @Override
+    public Object generate(Object target, Method method, Object... params) {
+        var keyParams = Arrays.stream(params)
+                .map(param -> param instanceof String token ? identityOf(token) : param)
+                .toArray();
+
+        return SimpleKeyGenerator.generateKey(keyParams);
+    }
+
+    protected String identityOf(String token) {
+        try {
+            JWTClaimsSet claims = JWTParser.parse(token).getJWTClaimsSet();
+
+            var objectId = claims.getStringClaim("oid");
+            if (objectId != null) {
+                var tenantId = claims.getStringClaim("tid");
+
+                return tenantId != null ? tenantId + ":" + objectId : objectId;
+            }
+
+            var userPrincipalName = claims.getStringClaim("upn");
+            if (userPrincipalName != null) {
+                return userPrincipalName;
+            }
+        } catch (ParseException e) {
+            log.trace("Token is not a readable JWT. Keying it by its hash.");
+        }
+
+        return TokenHasher.sha256(token);
+    }
+}
@@ -22,12 +22,7 @@ public class EdpProjectsService {
         log.debug("Azure groups. Size: {}", azureGroups.size());
         log.debug("All EDP projects. Size: {}", edpProjects.size());
 
-        var edpAzureProjects = azureGroups.stream()
-                .filter( group -> group.startsWith(projectFilterConfiguration.getProjectRolesGroupPrefix()) )
-                .filter(group -> projectFilterConfiguration.getProjectRolesGroupSuffixes().stream().anyMatch(group::endsWith))
-                .map(group -> group.replaceFirst(projectFilterConfiguration.getProjectRolesGroupPrefix() + "-", ""))
-                .map( this::removeSuffixes)
-                .collect(Collectors.toSet());
+        var edpAzureProjects = edpAzureProjects(azureGroups);
 
         log.debug("EDP Azure groups. Size: {}", edpAzureProjects.size());
 
@@ -41,6 +36,20 @@ public class EdpProjectsService {
         return allEdpProjectsInfo;
     }
 
+    // Whether the groups give access to the project, without going through the projects of every cluster
+    public boolean hasAccess(Set<String> azureGroups, String projectKey) {
+        return edpAzureProjects(azureGroups).contains(projectKey.toUpperCase());
+    }
+
+    private Set<String> edpAzureProjects(Set<String> azureGroups) {
+        return azureGroups.stream()
+                .filter( group -> group.startsWith(projectFilterConfiguration.getProjectRolesGroupPrefix()) )
+                .filter(group -> projectFilterConfiguration.getProjectRolesGroupSuffixes().stream().anyMatch(group::endsWith))
+                .map(group -> group.replaceFirst(projectFilterConfiguration.getProjectRolesGroupPrefix() + "-", ""))
+                .map( this::removeSuffixes)
+                .collect(Collectors.toSet());
+    }
+
     private String removeSuffixes(String azureGroupName) {
         String result = azureGroupName;
 
@@ -1,21 +1,36 @@
 package org.opendevstack.projects_info_service.server.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.microsoft.aad.msal4j.ClientCredentialFactory;
 import com.microsoft.aad.msal4j.ConfidentialClientApplication;
 import com.microsoft.aad.msal4j.IAuthenticationResult;
 import com.microsoft.aad.msal4j.OnBehalfOfParameters;
 import com.microsoft.aad.msal4j.UserAssertion;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
 import org.opendevstack.projects_info_service.server.exception.GraphTokenException;
+import org.opendevstack.projects_info_service.server.metrics.DependencyMetrics;
+import org.opendevstack.projects_info_service.server.security.TokenHasher;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.net.MalformedURLException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
 
+@Slf4j
 @Service
 public class GraphTokenService {
 
+    public static final String TOKEN_CACHE_NAME = "graphTokens";
+
+    public static final String DEPENDENCY_NAME = "msal";
+
     @Value("${spring.cloud.azure.active-directory.credential.client-id}")
     private String clientId;
 
@@ -25,27 +40,125 @@ public class GraphTokenService {
     @Value("${spring.cloud.azure.active-directory.profile.tenant-id}")
     private String tenantId;
 
+    // Tokens are dropped from the cache this long before they expire, so callers never get an almost expired token
+    @Value("${azure.graph-token.refresh-margin-seconds:300}")
+    private long refreshMarginSeconds;
+
     private static final Set<String> GRAPH_SCOPES = Set.of("https://graph.microsoft.com/.default");
 
+    // Keyed by the hash of the incoming assertion
+    private final Cache<String, IAuthenticationResult> tokenCache;
+
+    private volatile ConfidentialClientApplication application;
+
+    private final DependencyMetrics dependencyMetrics;
+
+    public GraphTokenService(MeterRegistry meterRegistry,
+                             DependencyMetrics dependencyMetrics,
+                             @Value("${azure.graph-token.cache.max-size:10000}") long cacheMaxSize) {
+        this.dependencyMetrics = dependencyMetrics;
+        this.tokenCache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new TokenExpiry())
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, tokenCache, TOKEN_CACHE_NAME);
+    }
+
     public String getGraphToken(String incomingAccessToken) {
-        String authority = "https://login.microsoftonline.com/" + tenantId;
+        var cacheKey = TokenHasher.sha256(incomingAccessToken);
+        var cachedResult = tokenCache.getIfPresent(cacheKey);
+
+        if (cachedResult != null) {
+            log.trace("Returning cached Graph token");
+
+            return cachedResult.accessToken();
+        }
+
+        var result = acquireOnBehalfOf(incomingAccessToken);
+        tokenCache.put(cacheKey, result);
+
+        return result.accessToken();
+    }
+
+    private IAuthenticationResult acquireOnBehalfOf(String incomingAccessToken) {
+        var sample = dependencyMetrics.start();
+        var outcome = DependencyMetrics.OUTCOME_ERROR;
 
         try {
-            ConfidentialClientApplication app = ConfidentialClientApplication
-                    .builder(clientId, ClientCredentialFactory.createFromSecret(clientSecret))
-                    .authority(authority)
+            UserAssertion userAssertion = new UserAssertion(incomingAccessToken);
+            // Tokens are cached above, with eviction and metrics, so the unbounded MSAL cache is not consulted
+            OnBehalfOfParameters params = OnBehalfOfParameters.builder(GRAPH_SCOPES, userAssertion)
+                    .skipCache(true)
                     .build();
 
-            UserAssertion userAssertion = new UserAssertion(incomingAccessToken);
-            OnBehalfOfParameters params = OnBehalfOfParameters.builder(GRAPH_SCOPES, userAssertion).build();
+            var result = getApplication().acquireToken(params).get();
+            outcome = DependencyMetrics.OUTCOME_SUCCESS;
 
-            IAuthenticationResult result = app.acquireToken(params).get();
-            return result.accessToken();
+            return result;
         } catch (MalformedURLException e) {
             throw new GraphTokenException("Invalid authority URL for tenant: " + tenantId, e);
         } catch (ExecutionException | InterruptedException e) {
+            outcome = DependencyMetrics.outcomeOf(e);
             Thread.currentThread().interrupt();
             throw new GraphTokenException("Failed to acquire Graph token via OBO flow", e);
+        } finally {
+            dependencyMetrics.stop(sample, DEPENDENCY_NAME, "on-behalf-of", DependencyMetrics.NO_TARGET, outcome);
+        }
+    }
+
+    // Built once and reused, so authority discovery and the HTTP plumbing are not repeated on every request
+    private ConfidentialClientApplication getApplication() throws MalformedURLException {
+        var app = application;
+
+        if (app == null) {
+            synchronized (this) {
+                app = application;
+
+                if (app == null) {
+                    String authority = "https://login.microsoftonline.com/" + tenantId;
+
+                    app = ConfidentialClientApplication
+                            .builder(clientId, ClientCredentialFactory.createFromSecret(clientSecret))
+                            .authority(authority)
+                            .build();
+                    application = app;
+                }
+            }
+        }
+
+        return app;
+    }
+
+    private Duration remainingLifetime(IAuthenticationResult result) {
+        if (result.expiresOnDate() == null) {
+            return Duration.ZERO;
+        }
+
+        var remaining = Duration.between(Instant.now(), result.expiresOnDate().toInstant())
+                .minusSeconds(refreshMarginSeconds);
+
+        return remaining.isNegative() ? Duration.ZERO : remaining;
+    }
+
+    private class TokenExpiry implements Expiry<String, IAuthenticationResult> {
+
+        @Override
+        public long expireAfterCreate(String key, IAuthenticationResult value, long currentTime) {
+            return remainingLifetime(value).toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, IAuthenticationResult value, long currentTime,
+                                      long currentDuration) {
+            return remainingLifetime(value).toNanos();
+        }
+
+        @Override
+        public long expireAfterRead(String key, IAuthenticationResult value, long currentTime,
+                                    long currentDuration) {
+            return currentDuration;
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,102 @@
+package org.opendevstack.projects_info_service.server.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.opendevstack.projects_info_service.server.client.AzureGraphClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Display names of Azure groups, keyed by group object id, shared by every user.
+ * <p>
+ * Group ids are the same for all the members of a group, so a name is looked up in Graph once and then served from
+ * here. The ids missing in a request are looked up together, with a single getByIds call per thousand ids. Every
+ * refresh interval, all the known names are looked up again in bulk, which keeps renamed groups current and drops
+ * deleted ones. A name is only served for its TTL after its last successful lookup.
+ * <p>
+ * Ids that are not groups, such as directory roles in a groups claim or deleted groups, are kept too, with an empty
+ * name that is never served, so they are not looked up again on every request. They expire and are refreshed like
+ * any other id.
+ */
+@Slf4j
+@Component
+public class GroupDirectory {
+
+    public static final String CACHE_NAME = "groupDirectory";
+
+    // Name kept for the ids that are not groups of the directory
+    private static final String NOT_A_GROUP = "";
+
+    private final AzureGraphClient azureGraphClient;
+
+    private final Cache<String, String> displayNames;
+
+    public GroupDirectory(AzureGraphClient azureGraphClient,
+                          MeterRegistry meterRegistry,
+                          @Value("${azure.group-directory.ttl:12h}") Duration ttl,
+                          @Value("${azure.group-directory.max-size:100000}") long maxSize) {
+        this.azureGraphClient = azureGraphClient;
+        this.displayNames = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, displayNames, CACHE_NAME);
+    }
+
+    // Display names of the groups, keyed by id. Ids that are not groups of the directory are left out.
+    public Map<String, String> displayNamesOf(Collection<String> groupIds) {
+        var found = displayNames.getAll(groupIds, missingIds -> {
+            log.debug("Looking up the names of {} groups", missingIds.size());
+
+            return withNotAGroupMarkers(missingIds, azureGraphClient.getGroupDisplayNames(List.copyOf(missingIds)));
+        });
+
+        return found.entrySet().stream()
+                .filter(entry -> !NOT_A_GROUP.equals(entry.getValue()))
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    }
+
+    @Scheduled(initialDelayString = "${azure.group-directory.refresh-interval:1h}",
+            fixedDelayString = "${azure.group-directory.refresh-interval:1h}")
+    public void refresh() {
+        var groupIds = List.copyOf(displayNames.asMap().keySet());
+
+        if (groupIds.isEmpty()) {
+            return;
+        }
+
+        try {
+            var refreshed = azureGraphClient.getGroupDisplayNames(groupIds);
+
+            displayNames.putAll(withNotAGroupMarkers(groupIds, refreshed));
+
+            log.debug("Group directory refreshed with {} groups. {} ids are not groups.", refreshed.size(),
+                    groupIds.size() - refreshed.size());
+        } catch (RuntimeException e) {
+            log.warn("Unable to refresh the group directory. Keeping the current names.", e);
+        }
+    }
+
+    // The names found, plus the not a group marker for every requested id that was not found
+    private static Map<String, String> withNotAGroupMarkers(Collection<? extends String> groupIds,
+                                                           Map<String, String> found) {
+        Map<String, String> names = new HashMap<>(found);
+
+        groupIds.forEach(groupId -> names.putIfAbsent(groupId, NOT_A_GROUP));
+
+        return names;
+    }
+}
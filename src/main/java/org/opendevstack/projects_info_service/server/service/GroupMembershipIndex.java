@@ -0,0 +1,82 @@
+package org.opendevstack.projects_info_service.server.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Project role groups of every user, keyed by user object id, as last synced from Graph by
+ * {@link GroupMembershipSync}.
+ * <p>
+ * Each sync publishes a new immutable snapshot, so lookups never lock and never see a half applied change. Only
+ * the direct members of the project role groups are known. A user that is not a member of any of them, or a
+ * snapshot older than the max staleness, gets no answer, and the caller asks Graph instead.
+ */
+@Slf4j
+@Component
+public class GroupMembershipIndex {
+
+    private final Duration maxStaleness;
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+
+    public GroupMembershipIndex(@Value("${azure.groups.sync.max-staleness:15m}") Duration maxStaleness) {
+        this.maxStaleness = maxStaleness;
+    }
+
+    public Optional<Set<String>> groupsOf(String userId) {
+        var current = snapshot.get();
+
+        if (current == null || userId == null) {
+            return Optional.empty();
+        }
+
+        if (current.syncedAt().plus(maxStaleness).isBefore(Instant.now())) {
+            log.debug("Group membership index was last synced at {}. Getting the user groups from Graph.",
+                    current.syncedAt());
+
+            return Optional.empty();
+        }
+
+        return Optional.ofNullable(current.groupsByUser().get(userId));
+    }
+
+    // Publishes the memberships of the groups, keyed by group id, as the new content of the index
+    public void replace(Map<String, String> groupNames, Map<String, Set<String>> membersByGroup) {
+        Map<String, Set<String>> groupsByUser = new HashMap<>();
+
+        membersByGroup.forEach((groupId, userIds) -> {
+            var groupName = groupNames.get(groupId);
+
+            if (groupName != null) {
+                userIds.forEach(userId -> groupsByUser.computeIfAbsent(userId, id -> new HashSet<>()).add(groupName));
+            }
+        });
+
+        groupsByUser.replaceAll((userId, groups) -> Set.copyOf(groups));
+
+        snapshot.set(new Snapshot(Map.copyOf(groupsByUser), Instant.now()));
+
+        log.debug("Group membership index holds {} users of {} groups.", groupsByUser.size(),
+                membersByGroup.size());
+    }
+
+    // Keeps the current content, which was found to be up to date
+    public void markSynced() {
+        snapshot.updateAndGet(current -> current != null
+                ? new Snapshot(current.groupsByUser(), Instant.now())
+                : null);
+    }
+
+    private record Snapshot(Map<String, Set<String>> groupsByUser, Instant syncedAt) {
+    }
+}
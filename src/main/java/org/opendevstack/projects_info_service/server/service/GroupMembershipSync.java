@@ -0,0 +1,171 @@
+package org.opendevstack.projects_info_service.server.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.opendevstack.projects_info_service.configuration.ProjectFilterConfiguration;
+import org.opendevstack.projects_info_service.server.client.AzureGraphClient;
+import org.opendevstack.projects_info_service.server.client.GraphDeltaReader.GroupChange;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the {@link GroupMembershipIndex} in sync with the members of the project role groups, with the application
+ * token, so the groups of most users are known without asking Graph on their behalf.
+ * <p>
+ * The first run loads every group starting with the project roles group prefix, and the users of each of them.
+ * Every later run only reads the groups delta since the previous one, and applies its renames, deletions and member
+ * changes. Any failure discards the delta link, so the next run loads everything again.
+ * <p>
+ * Runs are serialized by the fixed delay, so the sync state is only ever touched by one thread.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "azure.groups.sync", name = "enabled", havingValue = "true")
+public class GroupMembershipSync {
+
+    public static final String SYNC_TIMER_NAME = "azure.groups.sync";
+
+    private final AzureGraphClient azureGraphClient;
+    private final GroupMembershipIndex groupMembershipIndex;
+    private final ProjectFilterConfiguration projectFilterConfiguration;
+    private final MeterRegistry meterRegistry;
+
+    private Map<String, String> groupNames = new HashMap<>();
+    private Map<String, Set<String>> membersByGroup = new HashMap<>();
+    // Where the next run starts reading the delta from, or null when everything has to be loaded again
+    private String deltaLink;
+
+    public GroupMembershipSync(AzureGraphClient azureGraphClient,
+                               GroupMembershipIndex groupMembershipIndex,
+                               ProjectFilterConfiguration projectFilterConfiguration,
+                               MeterRegistry meterRegistry) {
+        this.azureGraphClient = azureGraphClient;
+        this.groupMembershipIndex = groupMembershipIndex;
+        this.projectFilterConfiguration = projectFilterConfiguration;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Scheduled(initialDelayString = "${azure.groups.sync.initial-delay:0s}",
+            fixedDelayString = "${azure.groups.sync.interval:1m}")
+    public void sync() {
+        var mode = deltaLink == null ? "full" : "delta";
+        var sample = Timer.start(meterRegistry);
+        var outcome = "error";
+
+        try {
+            if (deltaLink == null) {
+                loadAll();
+            } else {
+                applyDelta();
+            }
+
+            outcome = "success";
+        } catch (RuntimeException e) {
+            log.warn("Unable to sync the project role group members. Loading them all on the next run.", e);
+
+            deltaLink = null;
+        } finally {
+            sample.stop(Timer.builder(SYNC_TIMER_NAME)
+                    .description("Time spent syncing the members of the project role groups")
+                    .tag("mode", mode)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+    }
+
+    private void loadAll() {
+        // The delta starts before the groups are listed, so no change made while they are listed is missed
+        var nextDeltaLink = readDelta(AzureGraphClient.LATEST_GROUPS_DELTA_URL, change -> { });
+
+        Map<String, String> loadedGroupNames = new HashMap<>(azureGraphClient.getGroupsByPrefix(prefix()));
+        Map<String, Set<String>> loadedMembersByGroup = new HashMap<>();
+
+        loadedGroupNames.keySet().forEach(groupId ->
+                loadedMembersByGroup.put(groupId, new HashSet<>(azureGraphClient.getGroupUserMemberIds(groupId))));
+
+        groupNames = loadedGroupNames;
+        membersByGroup = loadedMembersByGroup;
+        deltaLink = nextDeltaLink;
+
+        groupMembershipIndex.replace(groupNames, membersByGroup);
+
+        log.info("Loaded the members of {} project role groups.", groupNames.size());
+    }
+
+    private void applyDelta() {
+        var changed = new boolean[1];
+
+        deltaLink = readDelta(deltaLink, change -> changed[0] |= apply(change));
+
+        if (changed[0]) {
+            groupMembershipIndex.replace(groupNames, membersByGroup);
+        } else {
+            groupMembershipIndex.markSynced();
+        }
+    }
+
+    // Reads every page of a delta round, handing each change to the handler, and returns the link to the next round
+    private String readDelta(String url, Consumer<GroupChange> handler) {
+        while (url != null) {
+            var page = azureGraphClient.getGroupsDelta(url);
+
+            page.changes().forEach(handler);
+
+            if (page.deltaLink() != null) {
+                return page.deltaLink();
+            }
+
+            url = page.nextLink();
+        }
+
+        throw new IllegalStateException("Groups delta ended without a delta link");
+    }
+
+    // Applies a change of a group and returns whether any project role group changed
+    private boolean apply(GroupChange change) {
+        var groupId = change.id();
+        var known = groupNames.containsKey(groupId);
+
+        if (change.removed() || (change.displayName() != null && !change.displayName().startsWith(prefix()))) {
+            groupNames.remove(groupId);
+            membersByGroup.remove(groupId);
+
+            return known;
+        }
+
+        if (!known) {
+            if (change.displayName() == null) {
+                return false;
+            }
+
+            // A group new to the prefix is loaded whole, which already covers the member changes of the delta
+            groupNames.put(groupId, change.displayName());
+            membersByGroup.put(groupId, new HashSet<>(azureGraphClient.getGroupUserMemberIds(groupId)));
+
+            return true;
+        }
+
+        var renamed = change.displayName() != null && !change.displayName().equals(groupNames.get(groupId));
+
+        if (renamed) {
+            groupNames.put(groupId, change.displayName());
+        }
+
+        var members = membersByGroup.computeIfAbsent(groupId, id -> new HashSet<>());
+        var membersChanged = members.addAll(change.addedUserIds()) | members.removeAll(change.removedUserIds());
+
+        return renamed || membersChanged;
+    }
+
+    private String prefix() {
+        return projectFilterConfiguration.getProjectRolesGroupPrefix();
+    }
+}
@@ -1,90 +1,325 @@
 package org.opendevstack.projects_info_service.server.service;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.opendevstack.projects_info_service.configuration.ExecutorConfiguration;
 import org.opendevstack.projects_info_service.configuration.OpenshiftClusterConfiguration;
 import org.opendevstack.projects_info_service.server.annotations.CacheableWithFallback;
+import org.opendevstack.projects_info_service.server.metrics.DependencyMetrics;
 import org.opendevstack.projects_info_service.server.model.OpenshiftProjectCluster;
-import org.opendevstack.projects_info_service.server.model.ProjectList;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.ResourceAccessException;
-import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Slf4j
 @Service
 public class OpenShiftProjectService {
+
+    public static final String DEPENDENCY_NAME = "openshift";
+    public static final String LIST_PROJECTS_OPERATION = "list-projects";
+
+    public static final String PROJECTS_CACHE_NAME = "openshiftProjects";
+    public static final String PROJECTS_FALLBACK_CACHE_NAME = "openshiftProjects-fallback";
+
+    // fetchProjects has no arguments, so the aspect keys its cache entry by the method name
+    public static final String PROJECTS_CACHE_KEY = "fetchProjects";
+
     @Value("${openshift.api.project.url}")
     private String projectApiUrl;
 
     private final RestTemplate restTemplate;
+    private final ObjectMapper mapper;
     private final OpenshiftClusterConfiguration openshiftClusterConfig;
+    private final ExecutorService executor;
+    private final DependencyMetrics dependencyMetrics;
+    private final OpenshiftProjectIndex projectIndex;
 
-    public OpenShiftProjectService(RestTemplate restTemplate, OpenshiftClusterConfiguration openshiftClusterConfig) {
+    public OpenShiftProjectService(RestTemplate restTemplate,
+                                   ObjectMapper mapper,
+                                   OpenshiftClusterConfiguration openshiftClusterConfig,
+                                   @Qualifier(ExecutorConfiguration.VIRTUAL_THREAD_EXECUTOR_NAME) ExecutorService executor,
+                                   DependencyMetrics dependencyMetrics,
+                                   OpenshiftProjectIndex projectIndex) {
         this.restTemplate = restTemplate;
+        this.mapper = mapper;
         this.openshiftClusterConfig = openshiftClusterConfig;
+        this.executor = executor;
+        this.dependencyMetrics = dependencyMetrics;
+        this.projectIndex = projectIndex;
     }
 
-    @CacheableWithFallback(primary = "openshiftProjects", fallback = "openshiftProjects-fallback", defaultValue = "T(java.util.Collections).emptyList()")
+    @CacheableWithFallback(primary = PROJECTS_CACHE_NAME, fallback = PROJECTS_FALLBACK_CACHE_NAME,
+            defaultValue = "T(java.util.Collections).emptyList()", staleWhileRevalidate = true)
     public List<OpenshiftProjectCluster> fetchProjects() {
-        final List<OpenshiftProjectCluster> result = new ArrayList<>();
-
-        openshiftClusterConfig.getClusters().forEach((cluster, clusterValues) -> {
-            log.debug("Fetching projects for cluster: {}", cluster);
-
-            final HttpHeaders headers = new HttpHeaders();
-            headers.set("Authorization", "Bearer " + clusterValues.get("token"));
-            headers.setAccept(List.of(MediaType.APPLICATION_JSON));
-
-            final String url = clusterValues.get("url") + projectApiUrl;
-            final HttpEntity<String> entity = new HttpEntity<>(headers);
-
-            log.debug("Setting headers to request: {} for url {}", headers, url);
-
-            try {
-                ResponseEntity<ProjectList> response = restTemplate.exchange(url, HttpMethod.GET, entity, ProjectList.class);
-                ProjectList body = response.getBody();
-
-                if (body != null && body.getItems() != null) {
-                    log.debug("Found {} projects for cluster {}:", body.getItems().size(), cluster);
-                    log.debug("Projects: \n {}", body.getItems().stream()
-                            .map(project -> project.getMetadata().getName())
-                            .collect(Collectors.joining(", ")));
-
-                    List<OpenshiftProjectCluster> clusterProjects = body.getItems().stream()
-                            .filter(project -> project.getMetadata() != null)
-                            .map(project -> project.getMetadata().getName())
-                            .filter(projectName -> projectName.endsWith("-cd"))
-                            .map(projectName -> projectName.replace("-cd", ""))
-                            .map(String::toUpperCase)
-                            .map(projectName -> OpenshiftProjectCluster.builder()
-                                    .project(projectName)
+        return loadProjects();
+    }
+
+    // Queries the clusters without going through the caches. Used by the cache warmer to refresh them.
+    // Clusters kept current by the project watcher are read from its index instead.
+    public List<OpenshiftProjectCluster> loadProjects() {
+        // Clusters are queried concurrently, and their projects are merged in the order they answer
+        final List<OpenshiftProjectCluster> result = Collections.synchronizedList(new ArrayList<>());
+
+        var clusterFetches = openshiftClusterConfig.getClusters().entrySet().stream()
+                .map(entry -> projectIndex.isSynced(entry.getKey())
+                        ? CompletableFuture.completedFuture(projectIndex.projects(entry.getKey()))
+                        : fetchClusterProjectsAsync(entry.getKey(), entry.getValue()))
+                .map(clusterFetch -> clusterFetch.thenAccept(result::addAll))
+                .toArray(CompletableFuture[]::new);
+
+        var overallTimeout = openshiftClusterConfig.getOverallTimeout();
+
+        try {
+            CompletableFuture.allOf(clusterFetches).get(overallTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Not all clusters answered within {}. Returning projects of the clusters that did.", overallTimeout);
+        } catch (ExecutionException e) {
+            log.error("Unexpected error while merging projects from clusters: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while waiting for clusters. Returning projects of the clusters that answered.");
+        }
+
+        synchronized (result) {
+            return new ArrayList<>(result);
+        }
+    }
+
+    private CompletableFuture<List<OpenshiftProjectCluster>> fetchClusterProjectsAsync(String cluster,
+                                                                                      Map<String, String> clusterValues) {
+        var clusterTimeout = openshiftClusterConfig.getClusterTimeout();
+        var sample = dependencyMetrics.start();
+
+        return CompletableFuture.supplyAsync(() -> fetchClusterProjects(cluster, clusterValues), executor)
+                .orTimeout(clusterTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .handle((clusterProjects, throwable) -> {
+                    if (throwable == null) {
+                        dependencyMetrics.stop(sample, DEPENDENCY_NAME, LIST_PROJECTS_OPERATION, cluster,
+                                DependencyMetrics.OUTCOME_SUCCESS);
+
+                        return clusterProjects;
+                    }
+
+                    var cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+
+                    logClusterFetchError(cluster, cause);
+                    dependencyMetrics.stop(sample, DEPENDENCY_NAME, LIST_PROJECTS_OPERATION, cluster,
+                            DependencyMetrics.outcomeOf(cause));
+
+                    return List.of();
+                });
+    }
+
+    private List<OpenshiftProjectCluster> fetchClusterProjects(String cluster, Map<String, String> clusterValues) {
+        log.debug("Fetching projects for cluster: {}", cluster);
+
+        return listClusterProjects(cluster, clusterValues).projects();
+    }
+
+    // Lists every page of the cluster. The resource version of the listing is where a watch can resume from.
+    public ClusterListing listClusterProjects(String cluster, Map<String, String> clusterValues) {
+        try {
+            return listAllPages(cluster, clusterValues);
+        } catch (HttpClientErrorException.Gone e) {
+            // The continue token expired between two pages, so the listing is started over from the first page
+            log.warn("Continue token expired while listing projects of cluster {}. Listing them again.", cluster);
+
+            return listAllPages(cluster, clusterValues);
+        }
+    }
+
+    public String projectsUrl(Map<String, String> clusterValues) {
+        return clusterValues.get("url") + projectApiUrl;
+    }
+
+    // Maps a -cd namespace to the name of its project, or null for any other namespace
+    public static String projectKey(String namespace) {
+        if (namespace == null || !namespace.endsWith("-cd")) {
+            return null;
+        }
+
+        return namespace.replace("-cd", "").toUpperCase();
+    }
+
+    private ClusterListing listAllPages(String cluster, Map<String, String> clusterValues) {
+        List<OpenshiftProjectCluster> projects = new ArrayList<>();
+        String continueToken = null;
+        String resourceVersion = null;
+
+        do {
+            final URI uri = projectsUri(clusterValues, continueToken);
+
+            log.debug("Requesting projects from url {}", uri);
+
+            ProjectPage page = restTemplate.execute(uri, HttpMethod.GET,
+                    request -> {
+                        request.getHeaders().setBearerAuth(clusterValues.get("token"));
+                        request.getHeaders().setAccept(List.of(MediaType.APPLICATION_JSON));
+                    },
+                    response -> readProjects(cluster, response.getBody()));
+
+            if (page == null) {
+                break;
+            }
+
+            projects.addAll(page.projects());
+            // Every page carries the resource version of the snapshot it was cut from
+            resourceVersion = page.resourceVersion();
+
+            if (page.continueToken() != null && page.continueToken().equals(continueToken)) {
+                log.warn("Cluster {} returned the same continue token twice. Stopping its listing.", cluster);
+                break;
+            }
+
+            continueToken = page.continueToken();
+        } while (continueToken != null);
+
+        log.debug("Found {} projects for cluster {}", projects.size(), cluster);
+
+        return new ClusterListing(projects, resourceVersion);
+    }
+
+    private URI projectsUri(Map<String, String> clusterValues, String continueToken) {
+        var pageSize = openshiftClusterConfig.getPageSize();
+        var labelSelector = openshiftClusterConfig.labelSelectorOf(clusterValues);
+
+        return UriComponentsBuilder.fromUriString(projectsUrl(clusterValues))
+                .queryParamIfPresent("labelSelector", Optional.ofNullable(labelSelector).filter(StringUtils::hasText))
+                .queryParamIfPresent("limit", Optional.of(pageSize).filter(size -> size > 0))
+                .queryParamIfPresent("continue", Optional.ofNullable(continueToken))
+                .encode()
+                .build()
+                .toUri();
+    }
+
+    // Reads items[].metadata.name token by token, so only the kept projects are held in memory and never the
+    // whole project list of the cluster. The continue token of the list metadata points to the next page, if any.
+    private ProjectPage readProjects(String cluster, InputStream body) throws IOException {
+        List<OpenshiftProjectCluster> projects = new ArrayList<>();
+        ListMetadata listMetadata = new ListMetadata(null, null);
+
+        try (JsonParser parser = mapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return new ProjectPage(projects, null, null);
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+
+                if ("items".equals(field) && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        String projectKey = projectKey(readProjectName(parser));
+
+                        if (projectKey != null) {
+                            projects.add(OpenshiftProjectCluster.builder()
+                                    .project(projectKey)
                                     .cluster(cluster)
-                                    .build())
-                            .toList();
+                                    .build());
+                        }
+                    }
+                } else if ("metadata".equals(field) && value == JsonToken.START_OBJECT) {
+                    listMetadata = readListMetadata(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+
+        return new ProjectPage(projects, listMetadata.continueToken(), listMetadata.resourceVersion());
+    }
+
+    // Expects the parser on the START_OBJECT of the list metadata, and leaves it on its END_OBJECT
+    private ListMetadata readListMetadata(JsonParser parser) throws IOException {
+        String continueToken = null;
+        String resourceVersion = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+
+            if (value == JsonToken.VALUE_STRING && !parser.getText().isEmpty() && "continue".equals(field)) {
+                continueToken = parser.getText();
+            } else if (value == JsonToken.VALUE_STRING && "resourceVersion".equals(field)) {
+                resourceVersion = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        return new ListMetadata(continueToken, resourceVersion);
+    }
+
+    // Expects the parser on the START_OBJECT of an item, and leaves it on its END_OBJECT
+    private String readProjectName(JsonParser parser) throws IOException {
+        String projectName = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
 
-                    result.addAll(clusterProjects);
+            if ("metadata".equals(field) && value == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String metadataField = parser.currentName();
+                    JsonToken metadataValue = parser.nextToken();
+
+                    if ("name".equals(metadataField) && metadataValue == JsonToken.VALUE_STRING) {
+                        projectName = parser.getText();
+                    } else {
+                        parser.skipChildren();
+                    }
                 }
-            } catch (HttpClientErrorException | HttpServerErrorException e) {
-                log.error("HTTP error while fetching projects for cluster {}: {} - {}", cluster, e.getStatusCode(), e.getMessage());
-            } catch (ResourceAccessException e) {
-                log.error("Resource access error for cluster {}: {}", cluster, e.getMessage());
-            } catch (RestClientException e) {
-                log.error("Unexpected error while fetching projects for cluster {}: {}", cluster, e.getMessage());
+            } else {
+                parser.skipChildren();
             }
-        });
+        }
+
+        return projectName;
+    }
+
+    private void logClusterFetchError(String cluster, Throwable cause) {
+        if (cause instanceof TimeoutException) {
+            log.error("Cluster {} did not answer within {}. Skipping it.", cluster, openshiftClusterConfig.getClusterTimeout());
+        } else if (cause instanceof HttpStatusCodeException e) {
+            log.error("HTTP error while fetching projects for cluster {}: {} - {}", cluster, e.getStatusCode(), e.getMessage());
+        } else if (cause instanceof ResourceAccessException e) {
+            log.error("Resource access error for cluster {}: {}", cluster, e.getMessage());
+        } else {
+            log.error("Unexpected error while fetching projects for cluster {}: {}", cluster, cause.getMessage());
+        }
+    }
+
+    public record ClusterListing(List<OpenshiftProjectCluster> projects, String resourceVersion) {
+    }
+
+    private record ProjectPage(List<OpenshiftProjectCluster> projects, String continueToken, String resourceVersion) {
+    }
 
-        return result;
+    private record ListMetadata(String continueToken, String resourceVersion) {
     }
 }
@@ -0,0 +1,81 @@
+package org.opendevstack.projects_info_service.server.service;
+
+import org.opendevstack.projects_info_service.server.model.OpenshiftProjectCluster;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * In-memory view of the projects of each OpenShift cluster, kept current by {@link OpenshiftProjectsWatcher}.
+ * <p>
+ * Only clusters marked as synced are served from here. Every other cluster is still listed on demand by
+ * {@link OpenShiftProjectService}, so the index is empty and unused unless the watcher is enabled.
+ */
+@Component
+public class OpenshiftProjectIndex {
+
+    private final Map<String, ClusterProjects> clusters = new ConcurrentHashMap<>();
+
+    public boolean isSynced(String cluster) {
+        var clusterProjects = clusters.get(cluster);
+
+        return clusterProjects != null && clusterProjects.synced;
+    }
+
+    public List<OpenshiftProjectCluster> projects(String cluster) {
+        var clusterProjects = clusters.get(cluster);
+
+        if (clusterProjects == null) {
+            return List.of();
+        }
+
+        return clusterProjects.projects.stream()
+                .map(project -> new OpenshiftProjectCluster(project, cluster))
+                .toList();
+    }
+
+    // Replaces the projects of the cluster with the result of a full listing, and marks it as synced
+    public void replace(String cluster, Collection<OpenshiftProjectCluster> projects) {
+        var clusterProjects = new ClusterProjects();
+        projects.forEach(project -> clusterProjects.projects.add(project.getProject()));
+        clusterProjects.synced = true;
+
+        clusters.put(cluster, clusterProjects);
+    }
+
+    // Returns whether the project was not indexed yet
+    public boolean add(String cluster, String project) {
+        return clusters.computeIfAbsent(cluster, key -> new ClusterProjects()).projects.add(project);
+    }
+
+    // Returns whether the project was indexed
+    public boolean remove(String cluster, String project) {
+        var clusterProjects = clusters.get(cluster);
+
+        return clusterProjects != null && clusterProjects.projects.remove(project);
+    }
+
+    public void markSynced(String cluster) {
+        clusters.computeIfAbsent(cluster, key -> new ClusterProjects()).synced = true;
+    }
+
+    public void markUnsynced(String cluster) {
+        var clusterProjects = clusters.get(cluster);
+
+        if (clusterProjects != null) {
+            clusterProjects.synced = false;
+        }
+    }
+
+    private static class ClusterProjects {
+
+        private final Set<String> projects = new ConcurrentSkipListSet<>();
+
+        private volatile boolean synced;
+    }
+}
@@ -0,0 +1,128 @@
+package org.opendevstack.projects_info_service.server.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.opendevstack.projects_info_service.configuration.CacheConfiguration;
+import org.opendevstack.projects_info_service.server.model.OpenshiftProjectCluster;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps the OpenShift project caches filled, so no user request has to wait for the cluster scan.
+ * <p>
+ * The caches are warmed at startup and then refreshed on a fixed delay, which should be shorter than the
+ * openshiftProjects TTL. Until the first warm succeeds the indicator reports OUT_OF_SERVICE, which keeps the pod
+ * out of the readiness group.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "openshift.projects.warmer", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class OpenshiftProjectsCacheWarmer implements HealthIndicator {
+
+    public static final String WARM_TIMER_NAME = "openshift.projects.warm";
+    public static final String STALENESS_GAUGE_NAME = "openshift.projects.staleness";
+
+    private final OpenShiftProjectService openShiftProjectService;
+    private final CacheManager cacheManager;
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicReference<WarmResult> lastSuccessfulWarm = new AtomicReference<>();
+
+    public OpenshiftProjectsCacheWarmer(OpenShiftProjectService openShiftProjectService,
+                                        @Qualifier(CacheConfiguration.CUSTOM_CACHE_MANAGER_NAME) CacheManager cacheManager,
+                                        MeterRegistry meterRegistry) {
+        this.openShiftProjectService = openShiftProjectService;
+        this.cacheManager = cacheManager;
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder(STALENESS_GAUGE_NAME, this, OpenshiftProjectsCacheWarmer::stalenessSeconds)
+                .description("Seconds since the OpenShift project caches were last warmed successfully")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${openshift.projects.warmer.initial-delay:0s}",
+            fixedDelayString = "${openshift.projects.warmer.refresh-interval:5m}")
+    public void warm() {
+        log.debug("Warming OpenShift project caches");
+
+        var sample = Timer.start(meterRegistry);
+        var outcome = "error";
+
+        try {
+            List<OpenshiftProjectCluster> projects = openShiftProjectService.loadProjects();
+
+            // No cluster answered. Keep the previous values instead of replacing them with nothing.
+            if (projects.isEmpty()) {
+                log.warn("No OpenShift projects were loaded. Keeping the cached projects.");
+            } else {
+                putInCache(OpenShiftProjectService.PROJECTS_CACHE_NAME, projects);
+                putInCache(OpenShiftProjectService.PROJECTS_FALLBACK_CACHE_NAME, projects);
+
+                lastSuccessfulWarm.set(new WarmResult(Instant.now(), projects.size()));
+                outcome = "success";
+
+                log.debug("OpenShift project caches warmed with {} projects", projects.size());
+            }
+        } catch (RuntimeException e) {
+            log.error("Unexpected error while warming OpenShift project caches: {}", e.getMessage(), e);
+        } finally {
+            sample.stop(Timer.builder(WARM_TIMER_NAME)
+                    .description("Time spent warming the OpenShift project caches")
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+    }
+
+    @Override
+    public Health health() {
+        var warmResult = lastSuccessfulWarm.get();
+
+        if (warmResult == null) {
+            return Health.outOfService()
+                    .withDetail("reason", "OpenShift project caches not warmed yet")
+                    .build();
+        }
+
+        return Health.up()
+                .withDetail("lastWarm", warmResult.warmedAt().toString())
+                .withDetail("projects", warmResult.projects())
+                .build();
+    }
+
+    private void putInCache(String cacheName, List<OpenshiftProjectCluster> projects) {
+        Cache cache = cacheManager.getCache(cacheName);
+
+        if (cache != null) {
+            cache.put(OpenShiftProjectService.PROJECTS_CACHE_KEY, projects);
+        } else {
+            log.warn("Cache {} is not configured. Skipping it.", cacheName);
+        }
+    }
+
+    private double stalenessSeconds() {
+        var warmResult = lastSuccessfulWarm.get();
+
+        if (warmResult == null) {
+            return Double.NaN;
+        }
+
+        return Duration.between(warmResult.warmedAt(), Instant.now()).toMillis() / 1000.0;
+    }
+
+    private record WarmResult(Instant warmedAt, int projects) {
+    }
+}
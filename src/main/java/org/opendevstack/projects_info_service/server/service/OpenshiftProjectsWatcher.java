@@ -0,0 +1,307 @@
+package org.opendevstack.projects_info_service.server.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.opendevstack.projects_info_service.configuration.CacheConfiguration;
+import org.opendevstack.projects_info_service.configuration.ExecutorConfiguration;
+import org.opendevstack.projects_info_service.configuration.OpenshiftClusterConfiguration;
+import org.opendevstack.projects_info_service.server.model.OpenshiftProjectCluster;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Keeps {@link OpenshiftProjectIndex} current from the Kubernetes watch stream of every cluster.
+ * <p>
+ * Each cluster is listed once to seed the index, then watched from the resource version of that listing. A watch
+ * that ends is resumed from the last resource version seen, and one that fails is resumed after the reconnect delay.
+ * Only a 410 Gone (the version is no longer kept by the API server) triggers a new listing. When a project appears
+ * or disappears the project caches are filled again from the index, so the next request already sees the change.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "openshift.projects.watch", name = "enabled", havingValue = "true")
+public class OpenshiftProjectsWatcher {
+
+    public static final String EVENTS_COUNTER_NAME = "openshift.projects.watch.events";
+
+    // Time given to the API server to close the watch before the read timeout gives up on the connection
+    private static final Duration READ_TIMEOUT_MARGIN = Duration.ofSeconds(30);
+
+    private final OpenShiftProjectService openShiftProjectService;
+    private final OpenshiftProjectIndex projectIndex;
+    private final OpenshiftClusterConfiguration openshiftClusterConfig;
+    private final CacheManager cacheManager;
+    private final RestTemplate watchRestTemplate;
+    private final ObjectMapper mapper;
+    private final ExecutorService executor;
+    private final MeterRegistry meterRegistry;
+    private final Duration watchTimeout;
+    private final Duration reconnectDelay;
+
+    private final List<Future<?>> watches = new ArrayList<>();
+
+    // Registered on the first event of each cluster and type, so counting an event does no meter lookup
+    private final ConcurrentMap<EventType, Counter> eventCounters = new ConcurrentHashMap<>();
+
+    private volatile boolean running;
+
+    @Autowired
+    public OpenshiftProjectsWatcher(OpenShiftProjectService openShiftProjectService,
+                                    OpenshiftProjectIndex projectIndex,
+                                    OpenshiftClusterConfiguration openshiftClusterConfig,
+                                    @Qualifier(CacheConfiguration.CUSTOM_CACHE_MANAGER_NAME) CacheManager cacheManager,
+                                    CloseableHttpClient httpClient,
+                                    ObjectMapper mapper,
+                                    @Qualifier(ExecutorConfiguration.VIRTUAL_THREAD_EXECUTOR_NAME) ExecutorService executor,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${openshift.projects.watch.timeout:5m}") Duration watchTimeout,
+                                    @Value("${openshift.projects.watch.reconnect-delay:5s}") Duration reconnectDelay) {
+        this(openShiftProjectService, projectIndex, openshiftClusterConfig, cacheManager,
+                watchRestTemplate(httpClient, watchTimeout), mapper, executor, meterRegistry, watchTimeout,
+                reconnectDelay);
+    }
+
+    OpenshiftProjectsWatcher(OpenShiftProjectService openShiftProjectService,
+                             OpenshiftProjectIndex projectIndex,
+                             OpenshiftClusterConfiguration openshiftClusterConfig,
+                             CacheManager cacheManager,
+                             RestTemplate watchRestTemplate,
+                             ObjectMapper mapper,
+                             ExecutorService executor,
+                             MeterRegistry meterRegistry,
+                             Duration watchTimeout,
+                             Duration reconnectDelay) {
+        this.openShiftProjectService = openShiftProjectService;
+        this.projectIndex = projectIndex;
+        this.openshiftClusterConfig = openshiftClusterConfig;
+        this.cacheManager = cacheManager;
+        this.watchRestTemplate = watchRestTemplate;
+        this.mapper = mapper;
+        this.executor = executor;
+        this.meterRegistry = meterRegistry;
+        this.watchTimeout = watchTimeout;
+        this.reconnectDelay = reconnectDelay;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        running = true;
+
+        openshiftClusterConfig.getClusters().forEach((cluster, clusterValues) ->
+                watches.add(executor.submit(() -> watchCluster(cluster, clusterValues))));
+
+        log.info("Watching OpenShift projects of {} clusters", watches.size());
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+
+        watches.forEach(watch -> watch.cancel(true));
+        watches.clear();
+    }
+
+    private void watchCluster(String cluster, Map<String, String> clusterValues) {
+        String resourceVersion = null;
+
+        while (running && !Thread.currentThread().isInterrupted()) {
+            try {
+                resourceVersion = sync(cluster, clusterValues, resourceVersion);
+            } catch (RuntimeException e) {
+                // Requests for this cluster are served by listing it again until the watch is back
+                projectIndex.markUnsynced(cluster);
+                log.warn("Watch of OpenShift projects failed for cluster {}: {}. Reconnecting in {}.",
+                        cluster, e.getMessage(), reconnectDelay);
+
+                try {
+                    Thread.sleep(reconnectDelay);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    // Lists the cluster when there is no resource version to resume from, and watches it otherwise. Returns the
+    // resource version to continue with, or null when the cluster has to be listed again.
+    String sync(String cluster, Map<String, String> clusterValues, String resourceVersion) {
+        if (resourceVersion == null) {
+            var listing = openShiftProjectService.listClusterProjects(cluster, clusterValues);
+
+            projectIndex.replace(cluster, listing.projects());
+            refreshProjectsCaches();
+
+            log.debug("Indexed {} projects of cluster {} at resource version {}", listing.projects().size(), cluster,
+                    listing.resourceVersion());
+
+            return listing.resourceVersion();
+        }
+
+        try {
+            return watchRestTemplate.execute(watchUri(clusterValues, resourceVersion), HttpMethod.GET,
+                    request -> {
+                        request.getHeaders().setBearerAuth(clusterValues.get("token"));
+                        request.getHeaders().setAccept(List.of(MediaType.APPLICATION_JSON));
+                    },
+                    response -> readEvents(cluster, resourceVersion, response.getBody()));
+        } catch (HttpClientErrorException.Gone e) {
+            log.info("Resource version {} of cluster {} is gone. Listing its projects again.", resourceVersion, cluster);
+
+            return null;
+        }
+    }
+
+    private URI watchUri(Map<String, String> clusterValues, String resourceVersion) {
+        var labelSelector = Optional.ofNullable(openshiftClusterConfig.labelSelectorOf(clusterValues))
+                .filter(StringUtils::hasText);
+
+        return UriComponentsBuilder.fromUriString(openShiftProjectService.projectsUrl(clusterValues))
+                .queryParam("watch", true)
+                .queryParam("resourceVersion", resourceVersion)
+                .queryParam("allowWatchBookmarks", true)
+                .queryParam("timeoutSeconds", watchTimeout.toSeconds())
+                .queryParamIfPresent("labelSelector", labelSelector)
+                .encode()
+                .build()
+                .toUri();
+    }
+
+    // Applies the events of the stream as they arrive. Returns the last resource version seen when the server closes
+    // the stream, or null when it reports that the resource version expired. Any other error reported by the server
+    // fails the watch, so it is resumed after the reconnect delay instead of right away.
+    private String readEvents(String cluster, String resourceVersion, InputStream body) throws IOException {
+        // The stream is open, so the index is current again for this cluster
+        projectIndex.markSynced(cluster);
+
+        String lastResourceVersion = resourceVersion;
+
+        try (MappingIterator<JsonNode> events = mapper.readerFor(JsonNode.class).readValues(body)) {
+            while (running && events.hasNextValue()) {
+                JsonNode event = events.nextValue();
+                String type = event.path("type").asText();
+                JsonNode object = event.path("object");
+
+                countEvent(cluster, type);
+
+                if ("ERROR".equals(type)) {
+                    if (object.path("code").asInt() == HttpStatus.GONE.value()) {
+                        log.info("Resource version {} of cluster {} expired. Listing its projects again.",
+                                lastResourceVersion, cluster);
+
+                        return null;
+                    }
+
+                    throw new IllegalStateException("Watch reported an error: " + object.path("message").asText());
+                }
+
+                applyEvent(cluster, type, object.path("metadata").path("name").asText(null));
+
+                String eventResourceVersion = object.path("metadata").path("resourceVersion").asText(null);
+
+                if (eventResourceVersion != null) {
+                    lastResourceVersion = eventResourceVersion;
+                }
+            }
+        }
+
+        return lastResourceVersion;
+    }
+
+    private void applyEvent(String cluster, String type, String namespace) {
+        String project = OpenShiftProjectService.projectKey(namespace);
+
+        if (project == null) {
+            return;
+        }
+
+        boolean changed = switch (type) {
+            case "ADDED", "MODIFIED" -> projectIndex.add(cluster, project);
+            case "DELETED" -> projectIndex.remove(cluster, project);
+            default -> false;
+        };
+
+        if (changed) {
+            log.debug("Project {} {} on cluster {}", project, type.toLowerCase(), cluster);
+            refreshProjectsCaches();
+        }
+    }
+
+    // Both caches are replaced, as the cache warmer does. Evicting only the primary one would have the next request
+    // served the stale fallback list while it is refreshed in background.
+    private void refreshProjectsCaches() {
+        List<OpenshiftProjectCluster> projects = openShiftProjectService.loadProjects();
+
+        // No cluster answered. Keep the previous values instead of replacing them with nothing.
+        if (projects.isEmpty()) {
+            log.warn("No OpenShift projects were loaded. Keeping the cached projects.");
+
+            return;
+        }
+
+        putInCache(OpenShiftProjectService.PROJECTS_CACHE_NAME, projects);
+        putInCache(OpenShiftProjectService.PROJECTS_FALLBACK_CACHE_NAME, projects);
+    }
+
+    private void putInCache(String cacheName, List<OpenshiftProjectCluster> projects) {
+        Cache cache = cacheManager.getCache(cacheName);
+
+        if (cache != null) {
+            cache.put(OpenShiftProjectService.PROJECTS_CACHE_KEY, projects);
+        }
+    }
+
+    private void countEvent(String cluster, String type) {
+        eventCounters.computeIfAbsent(new EventType(cluster, type.isEmpty() ? "unknown" : type),
+                        eventType -> Counter.builder(EVENTS_COUNTER_NAME)
+                                .description("Events received from the OpenShift project watch streams")
+                                .tag("cluster", eventType.cluster())
+                                .tag("type", eventType.type())
+                                .register(meterRegistry))
+                .increment();
+    }
+
+    // Watches stay open up to watchTimeout without any traffic, which the cluster routes would not allow
+    private static RestTemplate watchRestTemplate(CloseableHttpClient httpClient, Duration watchTimeout) {
+        var requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(watchTimeout.plus(READ_TIMEOUT_MARGIN));
+
+        return new RestTemplate(requestFactory);
+    }
+
+    private record EventType(String cluster, String type) {
+    }
+}
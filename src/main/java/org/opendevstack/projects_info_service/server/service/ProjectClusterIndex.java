@@ -0,0 +1,137 @@
+package org.opendevstack.projects_info_service.server.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.opendevstack.projects_info_service.server.model.OpenshiftProjectCluster;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lookup of the clusters of a project, merged from the OpenShift projects and the default mock projects, or taken
+ * from the OpenShift projects alone.
+ * <p>
+ * The lookup map is built once per OpenShift project list. The cached list is returned as the same instance until
+ * the cache refreshes, so a new instance is what triggers a rebuild, and the new map is swapped in as a whole.
+ */
+@Slf4j
+@Component
+public class ProjectClusterIndex {
+
+    // Case-insensitive alphabetical order. On a tie, clusters starting with an uppercase letter come first.
+    public static final Comparator<String> CLUSTER_ORDER = ((Comparator<String>) String::compareToIgnoreCase)
+            .thenComparing((a, b) -> Boolean.compare(Character.isUpperCase(b.charAt(0)),
+                    Character.isUpperCase(a.charAt(0))));
+
+    private final OpenShiftProjectService openShiftProjectService;
+
+    private final MocksService mocksService;
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+
+    public ProjectClusterIndex(OpenShiftProjectService openShiftProjectService, MocksService mocksService) {
+        this.openShiftProjectService = openShiftProjectService;
+        this.mocksService = mocksService;
+    }
+
+    // Ordered clusters of the project, OpenShift ones before mocked ones on ties. Empty if the project is unknown.
+    public List<String> clustersOf(String projectKey) {
+        return currentSnapshot().clustersByProject().getOrDefault(projectKey, List.of());
+    }
+
+    // Clusters the project is listed in by OpenShift, in listing order. Empty if no cluster lists the project.
+    public List<String> openshiftClustersOf(String projectKey) {
+        return currentSnapshot().openshiftClustersByProject().getOrDefault(projectKey, List.of());
+    }
+
+    // Clusters of each known project, in request order and read from a single snapshot. Unknown projects are left out.
+    public Map<String, List<String>> clustersOf(Collection<String> projectKeys) {
+        var clustersByProject = currentSnapshot().clustersByProject();
+        Map<String, List<String>> result = new LinkedHashMap<>();
+
+        projectKeys.forEach(projectKey -> {
+            var clusters = clustersByProject.get(projectKey);
+
+            if (clusters != null) {
+                result.put(projectKey, clusters);
+            }
+        });
+
+        return result;
+    }
+
+    // Whether lookups can be answered from the index. It is cold while there are no OpenShift projects, as before
+    // they are first loaded or when no cluster answered.
+    public boolean isReady() {
+        return !currentSnapshot().openshiftProjects().isEmpty();
+    }
+
+    private Snapshot currentSnapshot() {
+        var openshiftProjects = openShiftProjectService.fetchProjects();
+        var current = snapshot.get();
+
+        if (current != null && current.openshiftProjects() == openshiftProjects) {
+            return current;
+        }
+
+        var rebuilt = new Snapshot(openshiftProjects, buildIndex(openshiftProjects),
+                buildOpenshiftIndex(openshiftProjects));
+        snapshot.set(rebuilt);
+
+        log.debug("Project cluster index rebuilt with {} projects", rebuilt.clustersByProject().size());
+
+        return rebuilt;
+    }
+
+    private Map<String, List<String>> buildIndex(List<OpenshiftProjectCluster> openshiftProjects) {
+        Map<String, List<String>> clustersByProject = new HashMap<>();
+
+        openshiftProjects.stream()
+                .filter(project -> StringUtils.isNotBlank(project.getCluster()))
+                .forEach(project -> clustersByProject.computeIfAbsent(project.getProject(), key -> new ArrayList<>())
+                        .add(project.getCluster()));
+
+        mocksService.getDefaultProjectsAndClusters().values()
+                .forEach(project -> clustersByProject.computeIfAbsent(project.getProjectKey(), key -> new ArrayList<>())
+                        .addAll(project.getClusters()));
+
+        Map<String, List<String>> index = new HashMap<>();
+
+        clustersByProject.forEach((projectKey, clusters) -> {
+            if (!clusters.isEmpty()) {
+                index.put(projectKey, clusters.stream().sorted(CLUSTER_ORDER).toList());
+            }
+        });
+
+        return Map.copyOf(index);
+    }
+
+    // Same clusters a full listing filtered by the user groups would give the project, blank ones included
+    private Map<String, List<String>> buildOpenshiftIndex(List<OpenshiftProjectCluster> openshiftProjects) {
+        Map<String, List<String>> clustersByProject = new HashMap<>();
+
+        openshiftProjects.forEach(project -> {
+            var clusters = clustersByProject.computeIfAbsent(project.getProject(), key -> new ArrayList<>());
+
+            if (!clusters.contains(project.getCluster())) {
+                clusters.add(project.getCluster());
+            }
+        });
+
+        clustersByProject.replaceAll((projectKey, clusters) -> List.copyOf(clusters));
+
+        return Map.copyOf(clustersByProject);
+    }
+
+    private record Snapshot(List<OpenshiftProjectCluster> openshiftProjects,
+                            Map<String, List<String>> clustersByProject,
+                            Map<String, List<String>> openshiftClustersByProject) {
+    }
+}
@@ -0,0 +1,159 @@
+package org.opendevstack.projects_info_service.server.service;
+
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.JWTParser;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.text.ParseException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Groups and e-mail of the user, as carried in the incoming access token.
+ * <p>
+ * When the app registration emits the groups claim, the project memberships of most users are already in their
+ * token, and Graph only has to be asked when the token reports a group overage. Group ids in the claim are resolved
+ * through the shared group directory, and any other value is taken as a group name. Claims are read without checking
+ * the signature, as incoming tokens were already validated by the security filter.
+ * <p>
+ * Every method returns empty when the token cannot answer, so the caller falls back to Graph.
+ */
+@Slf4j
+@Service
+public class TokenClaimsService {
+
+    private static final String GROUPS_CLAIM = "groups";
+    // Set instead of the groups claim when the user is a member of more groups than fit in a token
+    private static final String CLAIM_NAMES_CLAIM = "_claim_names";
+    private static final String HAS_GROUPS_CLAIM = "hasgroups";
+    private static final String EMAIL_CLAIM = "email";
+    private static final String OBJECT_ID_CLAIM = "oid";
+
+    private static final Pattern OBJECT_ID = Pattern.compile(
+            "^[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}$");
+
+    private final GroupDirectory groupDirectory;
+
+    @Value("${azure.token-claims.enabled:false}")
+    private boolean enabled;
+
+    public TokenClaimsService(GroupDirectory groupDirectory) {
+        this.groupDirectory = groupDirectory;
+    }
+
+    public Optional<Set<String>> getUserGroups(String accessToken) {
+        var claims = claimsOf(accessToken);
+
+        if (claims == null) {
+            return Optional.empty();
+        }
+
+        try {
+            if (hasGroupsOverage(claims)) {
+                log.debug("Access token reports a groups overage. Getting the user groups from Graph.");
+
+                return Optional.empty();
+            }
+
+            var groupsClaim = claims.getStringListClaim(GROUPS_CLAIM);
+
+            if (groupsClaim == null) {
+                log.debug("Access token has no groups claim. Getting the user groups from Graph.");
+
+                return Optional.empty();
+            }
+
+            return Optional.of(resolve(groupsClaim));
+        } catch (ParseException e) {
+            log.debug("Access token has an unreadable groups claim. Getting the user groups from Graph.");
+        } catch (RuntimeException e) {
+            log.warn("Unable to resolve the groups of the access token. Getting the user groups from Graph.", e);
+        }
+
+        return Optional.empty();
+    }
+
+    public Optional<String> getUserEmail(String accessToken) {
+        var claims = claimsOf(accessToken);
+
+        if (claims == null) {
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.ofNullable(claims.getStringClaim(EMAIL_CLAIM)).filter(StringUtils::isNotBlank);
+        } catch (ParseException e) {
+            log.debug("Access token has an unreadable e-mail claim. Getting the user e-mail from Graph.");
+
+            return Optional.empty();
+        }
+    }
+
+    // Object id of the user, as used by the group membership index. Read whether the other claims are used or not.
+    public Optional<String> getUserObjectId(String accessToken) {
+        var claims = parse(accessToken);
+
+        if (claims == null) {
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.ofNullable(claims.getStringClaim(OBJECT_ID_CLAIM)).filter(StringUtils::isNotBlank);
+        } catch (ParseException e) {
+            log.debug("Access token has an unreadable object id claim.");
+
+            return Optional.empty();
+        }
+    }
+
+    private JWTClaimsSet claimsOf(String accessToken) {
+        return enabled ? parse(accessToken) : null;
+    }
+
+    private static JWTClaimsSet parse(String accessToken) {
+        try {
+            return JWTParser.parse(accessToken).getJWTClaimsSet();
+        } catch (ParseException e) {
+            log.trace("Access token is not a readable JWT.");
+
+            return null;
+        }
+    }
+
+    private boolean hasGroupsOverage(JWTClaimsSet claims) throws ParseException {
+        var claimNames = claims.getJSONObjectClaim(CLAIM_NAMES_CLAIM);
+
+        return (claimNames != null && claimNames.containsKey(GROUPS_CLAIM))
+                || Boolean.TRUE.equals(claims.getBooleanClaim(HAS_GROUPS_CLAIM));
+    }
+
+    private Set<String> resolve(List<String> groupsClaim) {
+        Set<String> groups = new HashSet<>();
+        Set<String> groupIds = new HashSet<>();
+
+        groupsClaim.stream()
+                .filter(StringUtils::isNotBlank)
+                .forEach(group -> (OBJECT_ID.matcher(group).matches() ? groupIds : groups).add(group));
+
+        if (!groupIds.isEmpty()) {
+            var displayNames = groupDirectory.displayNamesOf(groupIds);
+
+            if (displayNames.size() < groupIds.size()) {
+                log.debug("{} of the {} group ids of the access token are not groups of the directory.",
+                        groupIds.size() - displayNames.size(), groupIds.size());
+            }
+
+            groups.addAll(displayNames.values());
+        }
+
+        log.debug("Resolved {} user groups from the access token.", groups.size());
+
+        return groups;
+    }
+}
@@ -0,0 +1,59 @@
+package org.opendevstack.projects_info_service.server.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.opendevstack.projects_info_service.server.client.AzureGraphClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Set;
+
+/**
+ * Group names of a user, from Graph.
+ * <p>
+ * By default they are read from the memberOf pages of the user. With azure.groups.by-id, only the ids of the user
+ * groups are fetched and cached per user, and their names come from the group directory shared by every user. If
+ * the directory cannot be reached, the names are read from memberOf instead.
+ * <p>
+ * With azure.groups.batch-with-email, callers that also need the user e-mail fetch both with
+ * {@link AzureGraphClient#getUserProfile}, in one Graph $batch round trip. That only covers the memberOf groups.
+ */
+@Slf4j
+@Service
+public class UserGroupsService {
+
+    private final AzureGraphClient azureGraphClient;
+
+    private final GroupDirectory groupDirectory;
+
+    @Value("${azure.groups.by-id:false}")
+    private boolean byId;
+
+    @Value("${azure.groups.batch-with-email:false}")
+    private boolean batchWithEmail;
+
+    public UserGroupsService(AzureGraphClient azureGraphClient, GroupDirectory groupDirectory) {
+        this.azureGraphClient = azureGraphClient;
+        this.groupDirectory = groupDirectory;
+    }
+
+    // Whether the groups of a user come along with the e-mail from AzureGraphClient.getUserProfile
+    public boolean batchesWithEmail() {
+        return batchWithEmail && !byId;
+    }
+
+    public Set<String> getUserGroups(String graphToken) {
+        if (!byId) {
+            return azureGraphClient.getUserGroups(graphToken);
+        }
+
+        var groupIds = azureGraphClient.getUserGroupIds(graphToken);
+
+        try {
+            return Set.copyOf(groupDirectory.displayNamesOf(groupIds).values());
+        } catch (RuntimeException e) {
+            log.warn("Unable to resolve the user group ids. Getting the user groups from memberOf.", e);
+
+            return azureGraphClient.getUserGroups(graphToken);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package org.opendevstack.projects_info_service.configuration;
+
+import org.apache.hc.core5.http.HttpHost;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RestConfigurationTest {
+
+    @Test
+    void givenOpenshiftClusters_whenResolveRoutes_thenEachClusterHostGetsTheClusterTimeoutAsReadTimeout() {
+        // given
+        var openshiftClusterConfig = new OpenshiftClusterConfiguration();
+        openshiftClusterConfig.setClusters(Map.of(
+                "eu", Map.of("url", "https://api.eu.example.com:6443", "token", "token"),
+                "us", Map.of("url", "https://api.us.example.com", "token", "token")));
+        openshiftClusterConfig.setClusterTimeout(Duration.ofSeconds(7));
+
+        // when
+        var routes = RestConfiguration.resolveRoutes(new HttpClientConfiguration(), openshiftClusterConfig);
+
+        // then
+        assertThat(routes).hasSize(2);
+        assertThat(routes.get(new HttpHost("https", "api.eu.example.com", 6443)).getReadTimeout())
+                .isEqualTo(Duration.ofSeconds(7));
+        assertThat(routes.get(new HttpHost("https", "api.us.example.com", 443)).getReadTimeout())
+                .isEqualTo(Duration.ofSeconds(7));
+    }
+
+    @Test
+    void givenConfiguredRoutes_whenResolveRoutes_thenInvalidUrlsAreIgnored() {
+        // given
+        var graph = new HttpClientConfiguration.Route();
+        graph.setUrl("https://graph.microsoft.com");
+        graph.setMaxConnections(50);
+
+        var unresolved = new HttpClientConfiguration.Route();
+        unresolved.setUrl("${SOME_UNSET_URL}");
+
+        var httpClientConfig = new HttpClientConfiguration();
+        httpClientConfig.setRoutes(Map.of("graph", graph, "unresolved", unresolved));
+
+        var openshiftClusterConfig = new OpenshiftClusterConfiguration();
+
+        // when
+        var routes = RestConfiguration.resolveRoutes(httpClientConfig, openshiftClusterConfig);
+
+        // then
+        assertThat(routes).containsOnlyKeys(new HttpHost("https", "graph.microsoft.com", 443));
+        assertThat(routes.values()).extracting(HttpClientConfiguration.Route::getMaxConnections).containsExactly(50);
+    }
+}
@@ -1,25 +1,41 @@
 package org.opendevstack.projects_info_service.server.annotations;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.Signature;
 import org.aspectj.lang.reflect.MethodSignature;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.BeanFactory;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.interceptor.KeyGenerator;
 import org.springframework.cache.interceptor.SimpleKey;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -28,9 +44,22 @@ class CacheableWithFallbackAspectTest {
     @Mock
     CacheManager cacheManager;
 
-    @InjectMocks
+    @Mock
+    Executor executor;
+
+    @Mock
+    BeanFactory beanFactory;
+
+    SimpleMeterRegistry meterRegistry;
+
     CacheableWithFallbackAspect cacheableWithFallbackAspect;
 
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cacheableWithFallbackAspect = new CacheableWithFallbackAspect(cacheManager, executor, beanFactory, meterRegistry);
+    }
+
     @Test
     void givenAProceedingJoinPoint_andNoArgsMethod_whenGenerateKey_thenReturnSignatureNameKey() {
         // given
@@ -72,41 +101,52 @@ class CacheableWithFallbackAspectTest {
     }
 
     @Test
-    void givenAnEmptyResultValue_whenGetDefaultValue_thenReturnNull() {
+    void givenNoDefaultValue_whenCacheWithFallback_andNoValueIsCached_andRealCallFails_thenReturnNull() throws Throwable {
         // given
-        String defaultValue = "";
-        Class<?> returnType = String.class;
+        ProceedingJoinPoint pjp = initializeProceedingJoinPoint("pjp-signature-name");
+        CacheableWithFallback cacheableWithFallback = initializeCacheableWithFallback("primaryCache", "fallbackCache", null);
+
+        when(pjp.proceed()).thenThrow(new RuntimeException("That's an expected exception"));
 
         // when
-        Object resolveDefaultValue = cacheableWithFallbackAspect.resolveDefaultValue(defaultValue, returnType);
+        var result = cacheableWithFallbackAspect.cacheWithFallback(pjp, cacheableWithFallback);
 
         // then
-        assertThat(resolveDefaultValue).isNull();
+        assertThat(result).isNull();
     }
 
     @Test
-    void givenAnSpelReturnValue_AndTypeMap_whenGetDefaultValue_thenReturnProperType() {
+    void givenAnSpelDefaultValue_AndTypeMap_whenCacheWithFallback_andRealCallFails_thenReturnProperType() throws Throwable {
         // given
         String defaultValue = "T(java.util.Collections).emptyMap()";
-        Class<?> returnType = Map.class;
+
+        ProceedingJoinPoint pjp = initializeProceedingJoinPoint("pjp-signature-name", Map.class);
+        CacheableWithFallback cacheableWithFallback = initializeCacheableWithFallback("primaryCache", "fallbackCache", defaultValue);
+
+        when(pjp.proceed()).thenThrow(new RuntimeException("That's an expected exception"));
 
         // when
-        Object resolveDefaultValue = cacheableWithFallbackAspect.resolveDefaultValue(defaultValue, returnType);
+        var result = cacheableWithFallbackAspect.cacheWithFallback(pjp, cacheableWithFallback);
 
         // then
-        assertThat(resolveDefaultValue)
+        assertThat(result)
                 .isInstanceOf(Map.class)
                 .isEqualTo(Map.of());
     }
 
     @Test
-    void givenAnSpelReturnValue_AndTypeList_whenGetDefaultValue_andSpelExpectsMap_thenThrowException() {
+    void givenAnSpelDefaultValue_AndTypeList_whenCacheWithFallback_andSpelExpectsMap_thenThrowException() throws Throwable {
         // given
         String defaultValue = "T(java.util.Collections).emptyMap()";
-        Class<?> returnType = List.class;
+
+        ProceedingJoinPoint pjp = initializeProceedingJoinPoint("pjp-signature-name", List.class);
+        CacheableWithFallback cacheableWithFallback = initializeCacheableWithFallback("primaryCache", "fallbackCache", defaultValue);
+
+        when(pjp.proceed()).thenThrow(new RuntimeException("That's an expected exception"));
 
         // when
-        var exception = assertThrows(IllegalArgumentException.class, () -> cacheableWithFallbackAspect.resolveDefaultValue(defaultValue, returnType));
+        var exception = assertThrows(IllegalArgumentException.class,
+                () -> cacheableWithFallbackAspect.cacheWithFallback(pjp, cacheableWithFallback));
 
         // then
         assertThat(exception.getMessage()).isEqualTo("Default value type mismatch: expected java.util.List, but got java.util.Collections$EmptyMap");
@@ -155,6 +195,7 @@ class CacheableWithFallbackAspectTest {
 
         // then
         assertThat(result).isEqualTo(primaryCacheResult);
+        assertThat(requests(primary, "hit")).isEqualTo(1);
     }
 
     @Test
@@ -200,6 +241,8 @@ class CacheableWithFallbackAspectTest {
 
         // then
         assertThat(result).isEqualTo(fallbackCacheResult);
+        assertThat(requests(primary, "fallback")).isEqualTo(1);
+        assertThat(requests(primary, "miss")).isZero();
     }
 
     @Test
@@ -222,6 +265,219 @@ class CacheableWithFallbackAspectTest {
         assertThat(result).isEqualTo(defaultValue);
     }
 
+    @Test
+    void givenConcurrentMissesForTheSameKey_whenCacheWithFallback_andSingleFlightIsEnabled_thenRealMethodIsCalledOnce() throws Throwable {
+        // given
+        String primary = "primaryCache";
+        String fallback = "fallbackCache";
+        String signatureName = "pjp-signature-name";
+        String realMethodResult = "real-method-result";
+        int callers = 8;
+
+        ProceedingJoinPoint pjp = initializeProceedingJoinPoint(signatureName);
+        CacheableWithFallback cacheableWithFallback = initializeCacheableWithFallback(primary, fallback, "");
+        when(cacheableWithFallback.singleFlight()).thenReturn(true);
+
+        var primaryCache = new ConcurrentMapCache(primary);
+        var fallbackCache = new ConcurrentMapCache(fallback);
+        when(cacheManager.getCache(primary)).thenReturn(primaryCache);
+        when(cacheManager.getCache(fallback)).thenReturn(fallbackCache);
+
+        var realMethodCalls = new AtomicInteger();
+        var callersStarted = new CountDownLatch(callers);
+        var releaseRealMethod = new CountDownLatch(1);
+
+        when(pjp.proceed()).thenAnswer(invocation -> {
+            realMethodCalls.incrementAndGet();
+            releaseRealMethod.await(5, TimeUnit.SECONDS);
+
+            return realMethodResult;
+        });
+
+        // when
+        List<Future<Object>> results = new ArrayList<>();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(callers)) {
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> {
+                    callersStarted.countDown();
+
+                    return cacheableWithFallbackAspect.cacheWithFallback(pjp, cacheableWithFallback);
+                }));
+            }
+
+            callersStarted.await(5, TimeUnit.SECONDS);
+            Thread.sleep(200); // let every caller reach the aspect before the real method returns
+            releaseRealMethod.countDown();
+
+            // then
+            for (Future<Object> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo(realMethodResult);
+            }
+        }
+
+        assertThat(realMethodCalls.get()).isEqualTo(1);
+        assertThat(primaryCache.get(signatureName, String.class)).isEqualTo(realMethodResult);
+        assertThat(fallbackCache.get(signatureName, String.class)).isEqualTo(realMethodResult);
+    }
+
+    @Test
+    void givenConcurrentMissesForTheSameKey_whenCacheWithFallback_andSharedCallFails_thenAllCallersGetFallbackValue() throws Throwable {
+        // given
+        String primary = "primaryCache";
+        String fallback = "fallbackCache";
+        String signatureName = "pjp-signature-name";
+        String fallbackCacheResult = "fallback-cache-result";
+        int callers = 4;
+
+        ProceedingJoinPoint pjp = initializeProceedingJoinPoint(signatureName);
+        CacheableWithFallback cacheableWithFallback = initializeCacheableWithFallback(primary, fallback, "");
+        when(cacheableWithFallback.singleFlight()).thenReturn(true);
+
+        var fallbackCache = new ConcurrentMapCache(fallback);
+        fallbackCache.put(signatureName, fallbackCacheResult);
+        when(cacheManager.getCache(primary)).thenReturn(new ConcurrentMapCache(primary));
+        when(cacheManager.getCache(fallback)).thenReturn(fallbackCache);
+
+        var realMethodCalls = new AtomicInteger();
+        var callersStarted = new CountDownLatch(callers);
+        var releaseRealMethod = new CountDownLatch(1);
+
+        when(pjp.proceed()).thenAnswer(invocation -> {
+            realMethodCalls.incrementAndGet();
+            releaseRealMethod.await(5, TimeUnit.SECONDS);
+
+            throw new RuntimeException("That's an expected exception");
+        });
+
+        // when
+        List<Future<Object>> results = new ArrayList<>();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(callers)) {
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> {
+                    callersStarted.countDown();
+
+                    return cacheableWithFallbackAspect.cacheWithFallback(pjp, cacheableWithFallback);
+                }));
+            }
+
+            callersStarted.await(5, TimeUnit.SECONDS);
+            Thread.sleep(200); // let every caller reach the aspect before the real method fails
+            releaseRealMethod.countDown();
+
+            // then
+            for (Future<Object> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo(fallbackCacheResult);
+            }
+        }
+
+        assertThat(realMethodCalls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void givenStaleWhileRevalidate_whenCacheWithFallback_andOnlyFallbackHasValue_thenReturnStaleValueAndRefreshInBackground() throws Throwable {
+        // given
+        String primary = "primaryCache";
+        String fallback = "fallbackCache";
+        String signatureName = "pjp-signature-name";
+        String staleResult = "stale-result";
+        String refreshedResult = "refreshed-result";
+
+        ProceedingJoinPoint pjp = initializeProceedingJoinPoint(signatureName);
+        CacheableWithFallback cacheableWithFallback = initializeCacheableWithFallback(primary, fallback, "");
+        when(cacheableWithFallback.staleWhileRevalidate()).thenReturn(true);
+
+        var primaryCache = new ConcurrentMapCache(primary);
+        var fallbackCache = new ConcurrentMapCache(fallback);
+        fallbackCache.put(signatureName, staleResult);
+        when(cacheManager.getCache(primary)).thenReturn(primaryCache);
+        when(cacheManager.getCache(fallback)).thenReturn(fallbackCache);
+
+        when(pjp.proceed()).thenReturn(refreshedResult);
+
+        // when
+        var result = cacheableWithFallbackAspect.cacheWithFallback(pjp, cacheableWithFallback);
+
+        // then
+        assertThat(result).isEqualTo(staleResult);
+        verify(pjp, never()).proceed();
+
+        ArgumentCaptor<Runnable> refresh = ArgumentCaptor.forClass(Runnable.class);
+        verify(executor).execute(refresh.capture());
+        refresh.getValue().run();
+
+        verify(pjp, times(1)).proceed();
+        assertThat(primaryCache.get(signatureName, String.class)).isEqualTo(refreshedResult);
+        assertThat(fallbackCache.get(signatureName, String.class)).isEqualTo(refreshedResult);
+    }
+
+    @Test
+    void givenStaleWhileRevalidate_whenCacheWithFallback_andRefreshIsAlreadyInFlight_thenNoSecondRefreshIsScheduled() {
+        // given
+        String primary = "primaryCache";
+        String fallback = "fallbackCache";
+        String signatureName = "pjp-signature-name";
+        String staleResult = "stale-result";
+
+        ProceedingJoinPoint pjp = initializeProceedingJoinPoint(signatureName);
+        CacheableWithFallback cacheableWithFallback = initializeCacheableWithFallback(primary, fallback, "");
+        when(cacheableWithFallback.staleWhileRevalidate()).thenReturn(true);
+
+        var fallbackCache = new ConcurrentMapCache(fallback);
+        fallbackCache.put(signatureName, staleResult);
+        when(cacheManager.getCache(primary)).thenReturn(new ConcurrentMapCache(primary));
+        when(cacheManager.getCache(fallback)).thenReturn(fallbackCache);
+
+        // when
+        var first = cacheableWithFallbackAspect.cacheWithFallback(pjp, cacheableWithFallback);
+        var second = cacheableWithFallbackAspect.cacheWithFallback(pjp, cacheableWithFallback);
+
+        // then
+        assertThat(first).isEqualTo(staleResult);
+        assertThat(second).isEqualTo(staleResult);
+        verify(executor, times(1)).execute(any(Runnable.class));
+    }
+
+    @Test
+    void givenAKeyGeneratorName_whenCacheWithFallback_thenTheResultIsCachedUnderTheGeneratedKey() throws Throwable {
+        // given
+        String primary = "primaryCache";
+        var args = new Object[]{"access-token"};
+        var expectedKey = "tenant:user";
+        var realMethodResult = "real-method-result";
+
+        ProceedingJoinPoint pjp = initializeProceedingJoinPoint("pjp-signature-name");
+        CacheableWithFallback cacheableWithFallback = initializeCacheableWithFallback(primary, "fallbackCache", "");
+        KeyGenerator keyGenerator = Mockito.mock(KeyGenerator.class);
+        Method method = ((MethodSignature) pjp.getSignature()).getMethod();
+        Object target = new Object();
+        Cache primaryCache = new ConcurrentMapCache(primary);
+
+        when(pjp.getArgs()).thenReturn(args);
+        when(pjp.getTarget()).thenReturn(target);
+        when(pjp.proceed()).thenReturn(realMethodResult);
+        when(cacheableWithFallback.keyGenerator()).thenReturn("identityKeyGenerator");
+        when(beanFactory.getBean("identityKeyGenerator", KeyGenerator.class)).thenReturn(keyGenerator);
+        when(keyGenerator.generate(target, method, args)).thenReturn(expectedKey);
+        when(cacheManager.getCache(primary)).thenReturn(primaryCache);
+
+        // when
+        var result = cacheableWithFallbackAspect.cacheWithFallback(pjp, cacheableWithFallback);
+
+        // then
+        assertThat(result).isEqualTo(realMethodResult);
+        assertThat(primaryCache.get(expectedKey)).isNotNull()
+                .extracting(Cache.ValueWrapper::get).isEqualTo(realMethodResult);
+    }
+
+    private double requests(String cacheName, String result) {
+        return meterRegistry.get(CacheableWithFallbackAspect.REQUESTS_COUNTER_NAME)
+                .tag("cache", cacheName)
+                .tag("result", result)
+                .counter().count();
+    }
+
     private void initializeCache(String cacheName, Object cacheResult) {
         Cache cache = Mockito.mock(Cache.class);
         Cache.ValueWrapper cacheValueWrapper = Mockito.mock(Cache.ValueWrapper.class);
@@ -232,6 +488,10 @@ class CacheableWithFallbackAspectTest {
     }
 
     private ProceedingJoinPoint initializeProceedingJoinPoint(String signatureName) {
+        return initializeProceedingJoinPoint(signatureName, String.class);
+    }
+
+    private ProceedingJoinPoint initializeProceedingJoinPoint(String signatureName, Class<?> returnType) {
         ProceedingJoinPoint pjp = Mockito.mock(ProceedingJoinPoint.class);
         MethodSignature signature = Mockito.mock(MethodSignature.class);
         Method method = Mockito.mock(Method.class);
@@ -239,7 +499,7 @@ class CacheableWithFallbackAspectTest {
         when(pjp.getSignature()).thenReturn(signature);
         when(signature.getName()).thenReturn(signatureName);
         when(signature.getMethod()).thenReturn(method);
-        Mockito.doReturn(String.class).when(method).getReturnType(); // Mockito when method is not dealing well with generics
+        Mockito.doReturn(returnType).when(method).getReturnType(); // Mockito when method is not dealing well with generics
 
         return pjp;
     }
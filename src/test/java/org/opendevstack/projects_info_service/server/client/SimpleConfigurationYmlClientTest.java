@@ -1,12 +1,15 @@
 package org.opendevstack.projects_info_service.server.client;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.opendevstack.projects_info_service.configuration.ConfigurationRepositoryConfiguration;
+import org.opendevstack.projects_info_service.server.metrics.DependencyMetrics;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
@@ -29,6 +32,9 @@ class SimpleConfigurationYmlClientTest {
     @Mock
     private ConfigurationRepositoryConfiguration configurationRepositoryConfiguration;
 
+    @Spy
+    private DependencyMetrics dependencyMetrics = new DependencyMetrics(new SimpleMeterRegistry());
+
     @InjectMocks
     private SimpleConfigurationYmlClient client;
 
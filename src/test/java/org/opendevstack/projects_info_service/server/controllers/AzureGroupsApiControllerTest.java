@@ -1,22 +1,31 @@
 package org.opendevstack.projects_info_service.server.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.opendevstack.projects_info_service.configuration.CacheControlConfiguration;
 import org.opendevstack.projects_info_service.server.exception.InvalidContentProcessException;
 import org.opendevstack.projects_info_service.server.client.AzureGraphClient;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.opendevstack.projects_info_service.server.facade.AuthenticationFacade;
+import org.opendevstack.projects_info_service.server.http.CacheableResponses;
+import org.opendevstack.projects_info_service.server.model.UserProfile;
 import org.opendevstack.projects_info_service.server.service.GraphTokenService;
 import org.opendevstack.projects_info_service.server.service.MocksService;
+import org.opendevstack.projects_info_service.server.service.UserGroupsService;
 import org.springframework.http.HttpStatusCode;
 
 import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -34,6 +43,13 @@ class AzureGroupsApiControllerTest {
     @Mock
     private GraphTokenService graphTokenService;
 
+    @Mock
+    private UserGroupsService userGroupsService;
+
+    @Spy
+    private CacheableResponses cacheableResponses =
+            new CacheableResponses(new ObjectMapper(), new CacheControlConfiguration());
+
     @InjectMocks
     private AzureGroupsApiController azureGroupsApiController;
 
@@ -46,7 +62,7 @@ class AzureGroupsApiControllerTest {
         when(authenticationFacade.getAccessToken()).thenReturn(accessToken);
         when(graphTokenService.getGraphToken(accessToken)).thenReturn(accessToken);
         when(azureGraphClient.getUserEmail(accessToken)).thenReturn(userEmail);
-        when(azureGraphClient.getUserGroups(accessToken)).thenReturn(new HashSet<>(List.of("group1", "group2", "group3")));
+        when(userGroupsService.getUserGroups(accessToken)).thenReturn(new HashSet<>(List.of("group1", "group2", "group3")));
         when(mocksService.getUserGroups(userEmail)).thenReturn(new HashSet<>(List.of("mock-group1", "mock-group2")));
 
         // when
@@ -57,6 +73,29 @@ class AzureGroupsApiControllerTest {
 
         assertThat(groups.getBody()).isNotEmpty();
         assertThat(groups.getBody()).contains("group1", "group2", "mock-group1", "group3",  "mock-group2");
+        assertThat(groups.getBody()).isSorted();
+        assertThat(groups.getHeaders().getETag()).isNotBlank();
+    }
+
+    @Test
+    void givenGroupsBatchedWithEmail_whenGetAzureGroups_thenGroupsAndEmailComeFromOneProfile() {
+        // given
+        var userEmail = "user@example.com";
+        var accessToken = "sampleToken";
+
+        when(authenticationFacade.getAccessToken()).thenReturn(accessToken);
+        when(graphTokenService.getGraphToken(accessToken)).thenReturn(accessToken);
+        when(userGroupsService.batchesWithEmail()).thenReturn(true);
+        when(azureGraphClient.getUserProfile(accessToken)).thenReturn(new UserProfile(userEmail, Set.of("group1")));
+        when(mocksService.getUserGroups(userEmail)).thenReturn(Set.of("mock-group1"));
+
+        // when
+        var groups = azureGroupsApiController.getAzureGroups();
+
+        // then
+        assertThat(groups.getBody()).containsExactly("group1", "mock-group1");
+        verify(azureGraphClient, never()).getUserEmail(accessToken);
+        verify(userGroupsService, never()).getUserGroups(accessToken);
     }
 
     @Test
@@ -66,7 +105,7 @@ class AzureGroupsApiControllerTest {
 
         when(authenticationFacade.getAccessToken()).thenReturn(accessToken);
         when(graphTokenService.getGraphToken(accessToken)).thenReturn(accessToken);
-        when(azureGraphClient.getUserGroups(accessToken)).thenThrow(new InvalidContentProcessException("That's an invalid token!", null));
+        when(userGroupsService.getUserGroups(accessToken)).thenThrow(new InvalidContentProcessException("That's an invalid token!", null));
 
         // when
         var azureException = assertThrows(InvalidContentProcessException.class, () -> azureGroupsApiController.getAzureGroups());
@@ -1,21 +1,34 @@
 package org.opendevstack.projects_info_service.server.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.opendevstack.projects_info_service.configuration.CacheControlConfiguration;
+import org.opendevstack.projects_info_service.server.dto.ProjectPlatformsBatchRequest;
 import org.opendevstack.projects_info_service.server.dto.ProjectPlatformsMother;
+import org.opendevstack.projects_info_service.server.exception.GraphTokenException;
+import org.opendevstack.projects_info_service.server.exception.UnableToReachAzureException;
+import org.opendevstack.projects_info_service.server.exception.UserNotInValidGroupException;
 import org.opendevstack.projects_info_service.server.facade.AuthenticationFacade;
 import org.opendevstack.projects_info_service.server.facade.ProjectsFacade;
+import org.opendevstack.projects_info_service.server.http.CacheableResponses;
 import org.opendevstack.projects_info_service.server.dto.ProjectInfo;
+import org.opendevstack.projects_info_service.server.model.RenderedProjectPlatforms;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatusCode;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -27,6 +40,10 @@ class ProjectsApiControllerTest {
     @Mock
     private ProjectsFacade projectsFacade;
 
+    @Spy
+    private CacheableResponses cacheableResponses =
+            new CacheableResponses(new ObjectMapper(), new CacheControlConfiguration());
+
     @InjectMocks
     private ProjectsApiController projectsApiController;
 
@@ -48,19 +65,20 @@ class ProjectsApiControllerTest {
         assertThat(response.getStatusCode()).isEqualTo(HttpStatusCode.valueOf(200));
         assertThat(response.getBody()).isNotNull();
         assertThat(response.getBody()).isEqualTo(new ArrayList<>(projects.keySet()));
+        assertThat(response.getHeaders().getETag()).isNotBlank();
+        assertThat(response.getHeaders().getVary()).containsExactly(HttpHeaders.AUTHORIZATION);
+        assertThat(response.getHeaders().getCacheControl()).isEqualTo("no-cache, private");
     }
 
     @Test
     void givenATokenAndProjectKey_whenGetProjectClusters_thenReturnProjectInfo() {
         // given
         String token = "token";
-        Map<String, ProjectInfo> projects = new HashMap<>();
-        var projectInfo = new ProjectInfo();
-        projects.put("project1", projectInfo);
-        projects.put("project2", new ProjectInfo());
+        var projectInfo = new ProjectInfo("project1", List.of("eu"));
 
         when(authenticationFacade.getAccessToken()).thenReturn(token);
-        when(projectsFacade.getProjects(token)).thenReturn(projects);
+        when(projectsFacade.isProjectLookupReady()).thenReturn(true);
+        when(projectsFacade.getProject(token, "project1")).thenReturn(projectInfo);
 
         // when
         var response = projectsApiController.getProjectClusters("project1");
@@ -70,19 +88,18 @@ class ProjectsApiControllerTest {
         assertThat(response.getStatusCode()).isEqualTo(HttpStatusCode.valueOf(200));
         assertThat(response.getBody()).isNotNull();
         assertThat(response.getBody()).isEqualTo(projectInfo);
+        assertThat(response.getHeaders().getETag()).isNotBlank();
+        assertThat(response.getHeaders().getCacheControl()).isEqualTo("no-cache, private");
     }
 
     @Test
     void givenATokenAndProjectKey_whenGetProjectClusters_andProjectKeyDoesNotExist_thenReturnNotFound() {
         // given
         String token = "token";
-        Map<String, ProjectInfo> projects = new HashMap<>();
-        var projectInfo = new ProjectInfo();
-        projects.put("project1", projectInfo);
-        projects.put("project2", new ProjectInfo());
 
         when(authenticationFacade.getAccessToken()).thenReturn(token);
-        when(projectsFacade.getProjects(token)).thenReturn(projects);
+        when(projectsFacade.isProjectLookupReady()).thenReturn(true);
+        when(projectsFacade.getProject(token, "project3")).thenReturn(null);
 
         // when
         var response = projectsApiController.getProjectClusters("project3");
@@ -92,14 +109,90 @@ class ProjectsApiControllerTest {
         assertThat(response.getStatusCode()).isEqualTo(HttpStatusCode.valueOf(404));
     }
 
+    @Test
+    void givenAFailingProjectLookup_whenGetProjectClusters_thenTheProjectIsTakenFromTheUserProjects() {
+        // given
+        String token = "token";
+        var projectInfo = new ProjectInfo("project1", List.of("eu"));
+
+        when(authenticationFacade.getAccessToken()).thenReturn(token);
+        when(projectsFacade.isProjectLookupReady()).thenReturn(true);
+        when(projectsFacade.getProject(token, "project1"))
+                .thenThrow(new GraphTokenException("Unable to get a Graph token", null));
+        when(projectsFacade.getProjects(token)).thenReturn(Map.of("project1", projectInfo));
+
+        // when
+        var response = projectsApiController.getProjectClusters("project1");
+
+        // then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatusCode.valueOf(200));
+        assertThat(response.getBody()).isEqualTo(projectInfo);
+    }
+
+    @Test
+    void givenAFailingProjectLookupAndAnUnknownProjectKey_whenGetProjectClusters_thenReturnNotFound() {
+        // given
+        String token = "token";
+
+        when(authenticationFacade.getAccessToken()).thenReturn(token);
+        when(projectsFacade.isProjectLookupReady()).thenReturn(true);
+        when(projectsFacade.getProject(token, "project3"))
+                .thenThrow(new UnableToReachAzureException("Unable to reach Azure", null));
+        when(projectsFacade.getProjects(token)).thenReturn(Map.of());
+
+        // when
+        var response = projectsApiController.getProjectClusters("project3");
+
+        // then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatusCode.valueOf(404));
+    }
+
+    @Test
+    void givenAUserNotInAValidGroup_whenGetProjectClusters_thenReturnNotFoundWithoutLoadingTheUserProjects() {
+        // given
+        String token = "token";
+
+        when(authenticationFacade.getAccessToken()).thenReturn(token);
+        when(projectsFacade.isProjectLookupReady()).thenReturn(true);
+        when(projectsFacade.getProject(token, "project1"))
+                .thenThrow(new UserNotInValidGroupException("User not in valid group"));
+
+        // when
+        var response = projectsApiController.getProjectClusters("project1");
+
+        // then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatusCode.valueOf(404));
+        verify(projectsFacade, never()).getProjects(token);
+    }
+
+    @Test
+    void givenAColdProjectIndex_whenGetProjectClusters_thenTheProjectIsTakenFromTheUserProjects() {
+        // given
+        String token = "token";
+        var projectInfo = new ProjectInfo("project1", List.of("eu"));
+
+        when(authenticationFacade.getAccessToken()).thenReturn(token);
+        when(projectsFacade.isProjectLookupReady()).thenReturn(false);
+        when(projectsFacade.getProjects(token)).thenReturn(Map.of("project1", projectInfo));
+
+        // when
+        var response = projectsApiController.getProjectClusters("project1");
+
+        // then
+        assertThat(response.getBody()).isEqualTo(projectInfo);
+        verify(projectsFacade, never()).getProject(token, "project1");
+    }
+
     @Test
     void givenATokenAndProjectKey_whenGetProjectPlatforms_thenReturnPlatforms() {
         // given
         String projectKey = "project1";
 
         var projectPlatforms = ProjectPlatformsMother.of();
+        var eTag = "\"platforms-hash\"";
 
-        when(projectsFacade.getProjectPlatforms(projectKey)).thenReturn(projectPlatforms);
+        when(projectsFacade.getRenderedProjectPlatforms(projectKey))
+                .thenReturn(new RenderedProjectPlatforms(projectPlatforms, eTag, List.of("eu")));
 
         // when
         var response = projectsApiController.getProjectPlatforms(projectKey);
@@ -110,6 +203,42 @@ class ProjectsApiControllerTest {
 
         assertThat(response.getBody()).isNotNull();
         assertThat(response.getBody()).isEqualTo(projectPlatforms);
+        assertThat(response.getHeaders().getETag()).isEqualTo(eTag);
+        assertThat(response.getHeaders().getCacheControl()).isEqualTo("max-age=60, public");
+        assertThat(response.getHeaders().getVary()).isEmpty();
+    }
+
+    @Test
+    void givenAnUnknownProjectKey_whenGetProjectPlatforms_thenReturnNotFound() {
+        // given
+        when(projectsFacade.getRenderedProjectPlatforms("unknown")).thenReturn(null);
+
+        // when
+        var response = projectsApiController.getProjectPlatforms("unknown");
+
+        // then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatusCode.valueOf(404));
+    }
+
+    @Test
+    void givenProjectKeys_whenGetProjectsPlatforms_thenReturnPlatformsByProjectKey() {
+        // given
+        var projectKeys = List.of("project1", "unknown");
+        var projectsPlatforms = Map.of("project1", ProjectPlatformsMother.of());
+
+        when(projectsFacade.getProjectsPlatforms(projectKeys)).thenReturn(projectsPlatforms);
+
+        // when
+        var response = projectsApiController.getProjectsPlatforms(ProjectPlatformsBatchRequest.builder()
+                .projectKeys(projectKeys)
+                .build());
+
+        // then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatusCode.valueOf(200));
+        assertThat(response.getBody()).isEqualTo(projectsPlatforms);
+        assertThat(response.getHeaders().getETag()).isNotBlank();
+        assertThat(response.getHeaders().getCacheControl()).isEqualTo("max-age=60, public");
+        assertThat(response.getHeaders().getVary()).isEmpty();
     }
 
 }
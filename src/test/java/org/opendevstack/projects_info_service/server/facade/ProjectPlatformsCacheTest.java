@@ -0,0 +1,164 @@
+package org.opendevstack.projects_info_service.server.facade;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.opendevstack.projects_info_service.configuration.CacheEntryRemovedEvent;
+import org.opendevstack.projects_info_service.server.client.PlatformsYmlClient;
+import org.opendevstack.projects_info_service.server.dto.ProjectPlatforms;
+import org.opendevstack.projects_info_service.server.dto.ProjectPlatformsMother;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProjectPlatformsCacheTest {
+
+    private final ProjectPlatformsCache projectPlatformsCache =
+            new ProjectPlatformsCache(new ObjectMapper(), new SimpleMeterRegistry(), Duration.ofMinutes(10), 100);
+
+    private final AtomicInteger renders = new AtomicInteger();
+
+    private final Supplier<ProjectPlatforms> renderer = () -> {
+        renders.incrementAndGet();
+
+        return ProjectPlatformsMother.of();
+    };
+
+    @Test
+    void givenARenderedProject_whenGetWithTheSameClusters_thenTheCachedResponseIsReturned() {
+        // given
+        var first = projectPlatformsCache.get("PROJECT", List.of("eu"), renderer);
+
+        // when
+        var second = projectPlatformsCache.get("PROJECT", List.of("eu"), renderer);
+
+        // then
+        assertThat(second).isSameAs(first);
+        assertThat(second.eTag()).startsWith("\"").endsWith("\"");
+        assertThat(renders).hasValue(1);
+    }
+
+    @Test
+    void givenARenderedProject_whenItsClustersChange_thenItIsRenderedAgainWithTheSameETagForTheSameBody() {
+        // given
+        var first = projectPlatformsCache.get("PROJECT", List.of("eu"), renderer);
+
+        // when
+        var second = projectPlatformsCache.get("PROJECT", List.of("eu", "us"), renderer);
+
+        // then
+        assertThat(renders).hasValue(2);
+        assertThat(second.clusters()).containsExactly("eu", "us");
+        assertThat(second.eTag()).isEqualTo(first.eTag());
+    }
+
+    @Test
+    void givenARenderedProject_whenThePlatformsConfigurationLeavesItsCache_thenItIsRenderedAgain() {
+        // given
+        projectPlatformsCache.get("PROJECT", List.of("eu"), renderer);
+
+        // when
+        projectPlatformsCache.onCacheEntryRemoved(new CacheEntryRemovedEvent(PlatformsYmlClient.PLATFORMS_CACHE_NAME,
+                "https://example.com/platforms.yml"));
+        projectPlatformsCache.get("PROJECT", List.of("eu"), renderer);
+
+        // then
+        assertThat(renders).hasValue(2);
+    }
+
+    @Test
+    void givenConcurrentMissesOfAProject_whenGet_thenItIsRenderedOnce() throws Exception {
+        // given
+        var rendering = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        Supplier<ProjectPlatforms> slowRenderer = () -> {
+            rendering.countDown();
+            await(release);
+
+            return renderer.get();
+        };
+
+        var firstCall = new FutureTask<>(() -> projectPlatformsCache.get("PROJECT", List.of("eu"), slowRenderer));
+        var secondCall = new FutureTask<>(() -> projectPlatformsCache.get("PROJECT", List.of("eu"), slowRenderer));
+        var secondCaller = new Thread(secondCall);
+
+        new Thread(firstCall).start();
+        await(rendering);
+        secondCaller.start();
+        awaitWaiting(secondCaller);
+
+        // when
+        release.countDown();
+
+        // then
+        assertThat(secondCall.get(5, TimeUnit.SECONDS)).isSameAs(firstCall.get(5, TimeUnit.SECONDS));
+        assertThat(renders).hasValue(1);
+    }
+
+    @Test
+    void givenAnInvalidationWhileRendering_whenGet_thenTheRenderedResponseIsNotKept() throws Exception {
+        // given
+        var rendering = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        Supplier<ProjectPlatforms> slowRenderer = () -> {
+            rendering.countDown();
+            await(release);
+
+            return renderer.get();
+        };
+
+        var call = new FutureTask<>(() -> projectPlatformsCache.get("PROJECT", List.of("eu"), slowRenderer));
+        var invalidator = new Thread(projectPlatformsCache::invalidateAll);
+
+        new Thread(call).start();
+        await(rendering);
+        invalidator.start();
+        awaitWaiting(invalidator);
+        release.countDown();
+        call.get(5, TimeUnit.SECONDS);
+
+        // when
+        projectPlatformsCache.get("PROJECT", List.of("eu"), renderer);
+
+        // then
+        assertThat(renders).hasValue(2);
+    }
+
+    @Test
+    void givenARenderedProject_whenAnUnrelatedCacheDropsAnEntry_thenTheCachedResponseIsKept() {
+        // given
+        projectPlatformsCache.get("PROJECT", List.of("eu"), renderer);
+
+        // when
+        projectPlatformsCache.onCacheEntryRemoved(new CacheEntryRemovedEvent("userGroups", "user"));
+        projectPlatformsCache.get("PROJECT", List.of("eu"), renderer);
+
+        // then
+        assertThat(renders).hasValue(1);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Waits until the thread is blocked on the render in progress, or is already done
+    private static void awaitWaiting(Thread thread) throws InterruptedException {
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+        while (thread.getState() == Thread.State.RUNNABLE || thread.getState() == Thread.State.NEW) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package org.opendevstack.projects_info_service.server.facade;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.opendevstack.projects_info_service.server.client.AzureGraphClient;
@@ -12,27 +14,46 @@ import org.opendevstack.projects_info_service.server.dto.ProjectInfo;
 import org.opendevstack.projects_info_service.server.dto.ProjectInfoMother;
 import org.opendevstack.projects_info_service.server.dto.ProjectPlatforms;
 import org.opendevstack.projects_info_service.server.dto.SectionMother;
+import org.opendevstack.projects_info_service.server.exception.UnableToReachAzureException;
+import org.opendevstack.projects_info_service.server.exception.UserNotInValidGroupException;
 import org.opendevstack.projects_info_service.server.model.OpenshiftProjectCluster;
 import org.opendevstack.projects_info_service.server.model.OpenshiftProjectClusterMother;
 import org.opendevstack.projects_info_service.server.model.PlatformMother;
 import org.opendevstack.projects_info_service.server.model.PlatformsWithTitleMother;
 import org.opendevstack.projects_info_service.server.model.ProjectsWhitelisted;
+import org.opendevstack.projects_info_service.server.model.UserProfile;
 import org.opendevstack.projects_info_service.server.security.GroupValidatorService;
 import org.opendevstack.projects_info_service.server.service.EdpProjectsService;
 import org.opendevstack.projects_info_service.server.service.GraphTokenService;
+import org.opendevstack.projects_info_service.server.service.GroupMembershipIndex;
 import org.opendevstack.projects_info_service.server.service.MocksService;
 import org.opendevstack.projects_info_service.server.service.OpenShiftProjectService;
 import org.opendevstack.projects_info_service.server.service.PlatformService;
+import org.opendevstack.projects_info_service.server.service.ProjectClusterIndex;
+import org.opendevstack.projects_info_service.server.service.TokenClaimsService;
+import org.opendevstack.projects_info_service.server.service.UserGroupsService;
 
 import java.lang.reflect.Method;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -62,9 +83,36 @@ class ProjectsFacadeTest {
     @Mock
     private GraphTokenService graphTokenService;
 
-    @InjectMocks
+    // Unstubbed, the token carries no claims, so users are looked up in Graph
+    @Mock
+    private TokenClaimsService tokenClaimsService;
+
+    @Mock
+    private UserGroupsService userGroupsService;
+
+    // Unstubbed, the index knows no user
+    @Mock
+    private GroupMembershipIndex groupMembershipIndex;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
     private ProjectsFacade projectsFacade;
 
+    @BeforeEach
+    void setUp() {
+        // The cluster index is real, so platform lookups still go through the mocked project sources
+        projectsFacade = projectsFacadeWith(4);
+    }
+
+    private ProjectsFacade projectsFacadeWith(int maxConcurrentBatchRenders) {
+        return new ProjectsFacade(azureGraphClient, openShiftProjectService, edpProjectsService, mocksService,
+                platformService, groupValidatorService, projectWhitelistYmlClient, graphTokenService,
+                tokenClaimsService, userGroupsService, groupMembershipIndex,
+                new ProjectClusterIndex(openShiftProjectService, mocksService),
+                new ProjectPlatformsCache(new ObjectMapper(), new SimpleMeterRegistry(), Duration.ofMinutes(10), 100),
+                executor, maxConcurrentBatchRenders);
+    }
+
     @Test
     void givenAnAzureToken_whenGetProjects_thenReturnListOfProjects() {
         // given
@@ -86,7 +134,7 @@ class ProjectsFacadeTest {
 
         when(graphTokenService.getGraphToken(accessToken)).thenReturn(graphToken);
         when(azureGraphClient.getUserEmail(graphToken)).thenReturn(userEmail);
-        when(azureGraphClient.getUserGroups(graphToken)).thenReturn(azureGroups);
+        when(userGroupsService.getUserGroups(graphToken)).thenReturn(azureGroups);
         when(openShiftProjectService.fetchProjects()).thenReturn(edpProjectsInfo);
         when(edpProjectsService.filterProjects(azureGroups, edpProjectsInfo))
                 .thenReturn(new HashSet<>(edpProjects));
@@ -103,6 +151,146 @@ class ProjectsFacadeTest {
                 .contains(mockProjectKey);
     }
 
+    @Test
+    void givenAnAzureToken_whenGetProjects_thenEachUpstreamIsCalledOnce() {
+        // given
+        var accessToken = "sample";
+        var graphToken = "graph-token";
+        var userEmail = "pepito";
+        var azureGroups = Set.of("group1");
+        List<OpenshiftProjectCluster> edpProjectsInfo = List.of(new OpenshiftProjectCluster("EDPC", "eu"));
+
+        when(graphTokenService.getGraphToken(accessToken)).thenReturn(graphToken);
+        when(userGroupsService.getUserGroups(graphToken)).thenReturn(azureGroups);
+        when(azureGraphClient.getUserEmail(graphToken)).thenReturn(userEmail);
+        when(openShiftProjectService.fetchProjects()).thenReturn(edpProjectsInfo);
+        when(edpProjectsService.filterProjects(azureGroups, edpProjectsInfo))
+                .thenReturn(Set.of(new ProjectInfo("EDPC", List.of("eu"))));
+
+        // when
+        var projects = projectsFacade.getProjects(accessToken);
+
+        // then
+        assertThat(projects).containsOnlyKeys("EDPC");
+        verify(userGroupsService, times(1)).getUserGroups(graphToken);
+        verify(azureGraphClient, times(1)).getUserEmail(graphToken);
+        verify(openShiftProjectService, times(1)).fetchProjects();
+    }
+
+    @Test
+    void givenAnAccessTokenWithGroupsAndEmail_whenGetProjects_thenGraphIsNotCalled() {
+        // given
+        var accessToken = "sample";
+        var userEmail = "pepito";
+        var azureGroups = Set.of("group1");
+        List<OpenshiftProjectCluster> edpProjectsInfo = List.of(new OpenshiftProjectCluster("EDPC", "eu"));
+
+        when(tokenClaimsService.getUserGroups(accessToken)).thenReturn(Optional.of(azureGroups));
+        when(tokenClaimsService.getUserEmail(accessToken)).thenReturn(Optional.of(userEmail));
+        when(openShiftProjectService.fetchProjects()).thenReturn(edpProjectsInfo);
+        when(edpProjectsService.filterProjects(azureGroups, edpProjectsInfo))
+                .thenReturn(Set.of(new ProjectInfo("EDPC", List.of("eu"))));
+
+        // when
+        var projects = projectsFacade.getProjects(accessToken);
+
+        // then
+        assertThat(projects).containsOnlyKeys("EDPC");
+        verify(mocksService).getUserGroups(userEmail);
+        verifyNoInteractions(graphTokenService, azureGraphClient, userGroupsService);
+    }
+
+    @Test
+    void givenAnAccessTokenWithGroupsOnly_whenGetProjects_thenOnlyTheEmailIsFetchedFromGraph() {
+        // given
+        var accessToken = "sample";
+        var graphToken = "graph-token";
+        var userEmail = "pepito";
+        var azureGroups = Set.of("group1");
+        List<OpenshiftProjectCluster> edpProjectsInfo = List.of(new OpenshiftProjectCluster("EDPC", "eu"));
+
+        when(tokenClaimsService.getUserGroups(accessToken)).thenReturn(Optional.of(azureGroups));
+        when(graphTokenService.getGraphToken(accessToken)).thenReturn(graphToken);
+        when(azureGraphClient.getUserEmail(graphToken)).thenReturn(userEmail);
+        when(openShiftProjectService.fetchProjects()).thenReturn(edpProjectsInfo);
+        when(edpProjectsService.filterProjects(azureGroups, edpProjectsInfo))
+                .thenReturn(Set.of(new ProjectInfo("EDPC", List.of("eu"))));
+
+        // when
+        var projects = projectsFacade.getProjects(accessToken);
+
+        // then
+        assertThat(projects).containsOnlyKeys("EDPC");
+        verify(userGroupsService, never()).getUserGroups(graphToken);
+    }
+
+    @Test
+    void givenAUserKnownToTheGroupMembershipIndex_whenGetProjects_thenOnlyTheEmailIsFetchedFromGraph() {
+        // given
+        var accessToken = "sample";
+        var graphToken = "graph-token";
+        var userObjectId = "user-id";
+        var userEmail = "pepito";
+        var azureGroups = Set.of("group1");
+        List<OpenshiftProjectCluster> edpProjectsInfo = List.of(new OpenshiftProjectCluster("EDPC", "eu"));
+
+        when(tokenClaimsService.getUserObjectId(accessToken)).thenReturn(Optional.of(userObjectId));
+        when(groupMembershipIndex.groupsOf(userObjectId)).thenReturn(Optional.of(azureGroups));
+        when(graphTokenService.getGraphToken(accessToken)).thenReturn(graphToken);
+        when(azureGraphClient.getUserEmail(graphToken)).thenReturn(userEmail);
+        when(openShiftProjectService.fetchProjects()).thenReturn(edpProjectsInfo);
+        when(edpProjectsService.filterProjects(azureGroups, edpProjectsInfo))
+                .thenReturn(Set.of(new ProjectInfo("EDPC", List.of("eu"))));
+
+        // when
+        var projects = projectsFacade.getProjects(accessToken);
+
+        // then
+        assertThat(projects).containsOnlyKeys("EDPC");
+        verifyNoInteractions(userGroupsService);
+    }
+
+    @Test
+    void givenGroupsBatchedWithEmail_whenGetProjects_thenGroupsAndEmailComeFromOneProfile() {
+        // given
+        var accessToken = "sample";
+        var graphToken = "graph-token";
+        var userEmail = "pepito";
+        var azureGroups = Set.of("group1");
+        List<OpenshiftProjectCluster> edpProjectsInfo = List.of(new OpenshiftProjectCluster("EDPC", "eu"));
+
+        when(graphTokenService.getGraphToken(accessToken)).thenReturn(graphToken);
+        when(userGroupsService.batchesWithEmail()).thenReturn(true);
+        when(azureGraphClient.getUserProfile(graphToken)).thenReturn(new UserProfile(userEmail, azureGroups));
+        when(openShiftProjectService.fetchProjects()).thenReturn(edpProjectsInfo);
+        when(edpProjectsService.filterProjects(azureGroups, edpProjectsInfo))
+                .thenReturn(Set.of(new ProjectInfo("EDPC", List.of("eu"))));
+
+        // when
+        var projects = projectsFacade.getProjects(accessToken);
+
+        // then
+        assertThat(projects).containsOnlyKeys("EDPC");
+        verify(mocksService).getUserGroups(userEmail);
+        verify(azureGraphClient, never()).getUserEmail(graphToken);
+        verify(userGroupsService, never()).getUserGroups(graphToken);
+    }
+
+    @Test
+    void givenUnreachableAzure_whenGetProjects_thenTheUpstreamExceptionIsThrown() {
+        // given
+        var accessToken = "sample";
+        var graphToken = "graph-token";
+
+        when(graphTokenService.getGraphToken(accessToken)).thenReturn(graphToken);
+        when(userGroupsService.getUserGroups(graphToken))
+                .thenThrow(new UnableToReachAzureException("Unable to reach Azure", null));
+
+        // when / then
+        assertThatThrownBy(() -> projectsFacade.getProjects(accessToken))
+                .isInstanceOf(UnableToReachAzureException.class);
+    }
+
     @Test
     void givenAzureTokenAndMockOverrides_whenGetProjects_thenMockClustersOverrideEdpOnes() {
         // given
@@ -121,7 +309,7 @@ class ProjectsFacadeTest {
 
         when(graphTokenService.getGraphToken(accessToken)).thenReturn(graphToken);
         when(azureGraphClient.getUserEmail(graphToken)).thenReturn(userEmail);
-        when(azureGraphClient.getUserGroups(graphToken)).thenReturn(azureGroups);
+        when(userGroupsService.getUserGroups(graphToken)).thenReturn(azureGroups);
         when(openShiftProjectService.fetchProjects()).thenReturn(edpProjectsInfo);
         when(edpProjectsService.filterProjects(azureGroups, edpProjectsInfo))
                 .thenReturn(new HashSet<>(edpProjects));
@@ -137,6 +325,136 @@ class ProjectsFacadeTest {
                 .containsExactly("us-test");
     }
 
+    @Test
+    void givenAnAccessibleOpenShiftProject_whenGetProject_thenItsClustersAreReturnedInOrder() {
+        // given
+        var accessToken = "sample";
+        var graphToken = "graph-token";
+        var userEmail = "pepito";
+        var azureGroups = Set.of("group1");
+
+        when(graphTokenService.getGraphToken(accessToken)).thenReturn(graphToken);
+        when(userGroupsService.getUserGroups(graphToken)).thenReturn(azureGroups);
+        when(azureGraphClient.getUserEmail(graphToken)).thenReturn(userEmail);
+        when(openShiftProjectService.fetchProjects()).thenReturn(List.of(
+                new OpenshiftProjectCluster("EDPC", "us-test"),
+                new OpenshiftProjectCluster("EDPC", "eu"),
+                new OpenshiftProjectCluster("OTHER", "cn")));
+        when(edpProjectsService.hasAccess(azureGroups, "EDPC")).thenReturn(true);
+
+        // when
+        var project = projectsFacade.getProject(accessToken, "EDPC");
+
+        // then
+        assertThat(project).isEqualTo(new ProjectInfo("EDPC", List.of("eu", "us-test")));
+        verify(groupValidatorService).validate(azureGroups);
+    }
+
+    @Test
+    void givenAMockedProject_whenGetProject_thenMockClustersOverrideOpenShiftOnes() {
+        // given
+        var accessToken = "sample";
+        var graphToken = "graph-token";
+        var userEmail = "pepito";
+
+        when(graphTokenService.getGraphToken(accessToken)).thenReturn(graphToken);
+        when(userGroupsService.getUserGroups(graphToken)).thenReturn(Set.of("group1"));
+        when(azureGraphClient.getUserEmail(graphToken)).thenReturn(userEmail);
+        when(mocksService.getProjectsAndClusters(userEmail))
+                .thenReturn(Map.of("EDPC", new ProjectInfo("EDPC", List.of("us", "inh"))));
+
+        // when
+        var project = projectsFacade.getProject(accessToken, "EDPC");
+
+        // then
+        assertThat(project).isEqualTo(new ProjectInfo("EDPC", List.of("inh", "us")));
+    }
+
+    @Test
+    void givenAProjectWithoutAccess_whenGetProject_thenReturnNull() {
+        // given
+        var accessToken = "sample";
+        var graphToken = "graph-token";
+        var azureGroups = Set.of("group1");
+
+        when(graphTokenService.getGraphToken(accessToken)).thenReturn(graphToken);
+        when(userGroupsService.getUserGroups(graphToken)).thenReturn(azureGroups);
+        when(azureGraphClient.getUserEmail(graphToken)).thenReturn("pepito");
+        when(openShiftProjectService.fetchProjects()).thenReturn(List.of(new OpenshiftProjectCluster("EDPC", "eu")));
+        when(edpProjectsService.hasAccess(azureGroups, "EDPC")).thenReturn(false);
+
+        // when
+        var project = projectsFacade.getProject(accessToken, "EDPC");
+
+        // then
+        assertThat(project).isNull();
+    }
+
+    @Test
+    void givenAProjectOutsideTheWhitelist_whenGetProject_thenReturnNull() {
+        // given
+        var accessToken = "sample";
+        var graphToken = "graph-token";
+
+        when(graphTokenService.getGraphToken(accessToken)).thenReturn(graphToken);
+        when(userGroupsService.getUserGroups(graphToken)).thenReturn(Set.of("group1"));
+        when(azureGraphClient.getUserEmail(graphToken)).thenReturn("pepito");
+
+        var projectsNode = new ProjectsWhitelisted.Projects();
+        projectsNode.setWhitelisted(List.of("ATLAS"));
+        var whitelist = new ProjectsWhitelisted();
+        whitelist.setProjects(projectsNode);
+        when(projectWhitelistYmlClient.fetch()).thenReturn(whitelist);
+
+        // when
+        var project = projectsFacade.getProject(accessToken, "EDPC");
+
+        // then
+        assertThat(project).isNull();
+    }
+
+    @Test
+    void givenAUserNotInAValidGroup_whenGetProject_thenTheExceptionIsThrown() {
+        // given
+        var accessToken = "sample";
+        var graphToken = "graph-token";
+        var azureGroups = Set.of("group1");
+
+        when(graphTokenService.getGraphToken(accessToken)).thenReturn(graphToken);
+        when(userGroupsService.getUserGroups(graphToken)).thenReturn(azureGroups);
+        when(azureGraphClient.getUserEmail(graphToken)).thenReturn("pepito");
+        doThrow(new UserNotInValidGroupException("User not in valid group"))
+                .when(groupValidatorService).validate(azureGroups);
+
+        // when / then
+        assertThatThrownBy(() -> projectsFacade.getProject(accessToken, "EDPC"))
+                .isInstanceOf(UserNotInValidGroupException.class);
+    }
+
+    @Test
+    void givenOpenShiftProjects_whenIsProjectLookupReady_thenReturnTrue() {
+        // given
+        when(openShiftProjectService.fetchProjects()).thenReturn(List.of(new OpenshiftProjectCluster("EDPC", "eu")));
+
+        // when
+        var ready = projectsFacade.isProjectLookupReady();
+
+        // then
+        assertThat(ready).isTrue();
+    }
+
+    @Test
+    void givenNoOpenShiftProjects_whenIsProjectLookupReady_thenReturnFalse() {
+        // given
+        when(openShiftProjectService.fetchProjects()).thenReturn(List.of());
+
+        // when
+        var ready = projectsFacade.isProjectLookupReady();
+
+        // then
+        assertThat(ready).isFalse();
+    }
+
     @Test
     void givenAProjectKey_whenGetProjectPlatforms_ThenPlatformsAreReturned() {
         // given
@@ -293,7 +611,7 @@ class ProjectsFacadeTest {
 
         when(graphTokenService.getGraphToken(accessToken)).thenReturn(graphToken);
         when(azureGraphClient.getUserEmail(graphToken)).thenReturn(userEmail);
-        when(azureGraphClient.getUserGroups(graphToken)).thenReturn(azureGroups);
+        when(userGroupsService.getUserGroups(graphToken)).thenReturn(azureGroups);
         when(openShiftProjectService.fetchProjects()).thenReturn(edpProjectsInfo);
         when(edpProjectsService.filterProjects(azureGroups, edpProjectsInfo)).thenReturn(new HashSet<>(edpProjects));
         when(mocksService.getProjectsAndClusters(userEmail)).thenReturn(mockProjects);
@@ -329,7 +647,7 @@ class ProjectsFacadeTest {
 
         when(graphTokenService.getGraphToken(accessToken)).thenReturn(graphToken);
         when(azureGraphClient.getUserEmail(graphToken)).thenReturn(userEmail);
-        when(azureGraphClient.getUserGroups(graphToken)).thenReturn(azureGroups);
+        when(userGroupsService.getUserGroups(graphToken)).thenReturn(azureGroups);
         when(openShiftProjectService.fetchProjects()).thenReturn(edpProjectsInfo);
         when(edpProjectsService.filterProjects(azureGroups, edpProjectsInfo)).thenReturn(new HashSet<>(edpProjects));
         when(mocksService.getProjectsAndClusters(userEmail)).thenReturn(mockProjects);
@@ -364,7 +682,7 @@ class ProjectsFacadeTest {
 
         when(graphTokenService.getGraphToken(accessToken)).thenReturn(graphToken);
         when(azureGraphClient.getUserEmail(graphToken)).thenReturn(userEmail);
-        when(azureGraphClient.getUserGroups(graphToken)).thenReturn(azureGroups);
+        when(userGroupsService.getUserGroups(graphToken)).thenReturn(azureGroups);
         when(openShiftProjectService.fetchProjects()).thenReturn(edpProjectsInfo);
         when(edpProjectsService.filterProjects(azureGroups, edpProjectsInfo)).thenReturn(new HashSet<>(edpProjects));
         when(mocksService.getProjectsAndClusters(userEmail)).thenReturn(Collections.emptyMap());
@@ -393,7 +711,7 @@ class ProjectsFacadeTest {
         var mockGroups = new HashSet<>(List.of("mock1", " groupA ", "mock2"));
 
         when(graphTokenService.getGraphToken(accessToken)).thenReturn(graphToken);
-        when(azureGraphClient.getUserGroups(graphToken)).thenReturn(azureGroups);
+        when(userGroupsService.getUserGroups(graphToken)).thenReturn(azureGroups);
         when(azureGraphClient.getUserEmail(graphToken)).thenReturn(userEmail);
         when(mocksService.getUserGroups(userEmail)).thenReturn(mockGroups);
 
@@ -457,6 +775,79 @@ class ProjectsFacadeTest {
         assertThat(result.getSections().get(1)).isEqualTo(expectedSections.getFirst());
     }
 
+    @Test
+    void givenSeveralProjectKeys_whenGetProjectsPlatforms_thenKnownProjectsAreReturnedInRequestOrder() {
+        // given
+        var edpProjectsInfo = List.of(
+                new OpenshiftProjectCluster("P1", "eu"),
+                new OpenshiftProjectCluster("P2", "us"));
+        var p1Sections = List.of(SectionMother.of());
+
+        when(openShiftProjectService.fetchProjects()).thenReturn(edpProjectsInfo);
+        when(platformService.getDisabledPlatforms("P1")).thenReturn(Collections.emptyList());
+        when(platformService.getDisabledPlatforms("P2")).thenReturn(Collections.emptyList());
+        when(platformService.getSections("P1", "eu")).thenReturn(p1Sections);
+        when(platformService.getSections("P2", "us")).thenReturn(List.of());
+        when(platformService.getPlatforms("P1", "eu")).thenReturn(PlatformsWithTitleMother.of());
+        when(platformService.getPlatforms("P2", "us")).thenReturn(PlatformsWithTitleMother.of());
+
+        // when
+        var result = projectsFacade.getProjectsPlatforms(List.of("P2", "UNKNOWN", "P1"));
+
+        // then
+        assertThat(result.keySet()).containsExactly("P2", "P1");
+        assertThat(result.get("P1").getSections()).hasSize(2);
+        assertThat(result.get("P1").getSections().get(1)).isEqualTo(p1Sections.getFirst());
+        assertThat(result.get("P2").getSections()).hasSize(1);
+    }
+
+    @Test
+    void givenARenderedProject_whenGetProjectsPlatformsAgain_thenItIsServedFromTheCache() {
+        // given
+        when(openShiftProjectService.fetchProjects()).thenReturn(List.of(new OpenshiftProjectCluster("P1", "eu")));
+        when(platformService.getDisabledPlatforms("P1")).thenReturn(Collections.emptyList());
+        when(platformService.getSections("P1", "eu")).thenReturn(List.of());
+        when(platformService.getPlatforms("P1", "eu")).thenReturn(PlatformsWithTitleMother.of());
+
+        var first = projectsFacade.getProjectsPlatforms(List.of("P1"));
+
+        // when
+        var second = projectsFacade.getProjectsPlatforms(List.of("P1"));
+
+        // then
+        assertThat(second.get("P1")).isSameAs(first.get("P1"));
+        verify(platformService, times(1)).getSections("P1", "eu");
+    }
+
+    @Test
+    void givenMoreMissingProjectsThanPermits_whenGetProjectsPlatforms_thenRendersDoNotExceedTheLimit() {
+        // given
+        var facade = projectsFacadeWith(2);
+        var projectKeys = List.of("P1", "P2", "P3", "P4", "P5", "P6");
+        var inFlight = new AtomicInteger();
+        var maxInFlight = new AtomicInteger();
+
+        when(openShiftProjectService.fetchProjects()).thenReturn(projectKeys.stream()
+                .map(projectKey -> new OpenshiftProjectCluster(projectKey, "eu"))
+                .toList());
+        when(platformService.getDisabledPlatforms(anyString())).thenAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(50);
+            inFlight.decrementAndGet();
+
+            return Collections.emptyList();
+        });
+        when(platformService.getSections(anyString(), eq("eu"))).thenReturn(List.of());
+        when(platformService.getPlatforms(anyString(), eq("eu"))).thenReturn(PlatformsWithTitleMother.of());
+
+        // when
+        var result = facade.getProjectsPlatforms(projectKeys);
+
+        // then
+        assertThat(result.keySet()).containsExactlyElementsOf(projectKeys);
+        assertThat(maxInFlight.get()).isBetween(1, 2);
+    }
+
     // Tests for orderClusters method
     @Test
     void givenClusterList_whenOrderClusters_thenReturnClustersInAlphabeticalOrder() throws Exception {
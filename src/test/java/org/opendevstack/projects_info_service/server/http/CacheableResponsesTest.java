@@ -0,0 +1,75 @@
+package org.opendevstack.projects_info_service.server.http;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.opendevstack.projects_info_service.configuration.CacheControlConfiguration;
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CacheableResponsesTest {
+
+    private final CacheControlConfiguration cacheControlConfig = new CacheControlConfiguration();
+
+    private final CacheableResponses cacheableResponses =
+            new CacheableResponses(new ObjectMapper(), cacheControlConfig);
+
+    @Test
+    void givenTheSameCachedValue_whenUserResponse_thenTheETagIsComputedOnce() {
+        // given
+        var source = Map.of("PROJECT", "eu");
+        var body = new ArrayList<>(List.of("PROJECT"));
+
+        var first = cacheableResponses.userResponse(source, body);
+
+        // when
+        // A different body for the same instance shows the ETag is not computed again
+        var second = cacheableResponses.userResponse(source, List.of("OTHER"));
+
+        // then
+        assertThat(second.getHeaders().getETag()).isEqualTo(first.getHeaders().getETag());
+    }
+
+    @Test
+    void givenEqualBodies_whenUserResponse_thenTheyGetTheSameStrongETag() {
+        // when
+        var first = cacheableResponses.userResponse(List.of("group1", "group2"));
+        var second = cacheableResponses.userResponse(List.of("group1", "group2"));
+        var other = cacheableResponses.userResponse(List.of("group1"));
+
+        // then
+        assertThat(first.getHeaders().getETag()).isEqualTo(second.getHeaders().getETag())
+                .startsWith("\"")
+                .doesNotStartWith("W/");
+        assertThat(other.getHeaders().getETag()).isNotEqualTo(first.getHeaders().getETag());
+    }
+
+    @Test
+    void givenAUserMaxAgeAndNoVary_whenUserResponse_thenTheConfiguredPolicyIsApplied() {
+        // given
+        cacheControlConfig.setUserMaxAge(Duration.ofSeconds(30));
+        cacheControlConfig.setVaryByAuthorization(false);
+
+        // when
+        var response = cacheableResponses.userResponse(List.of("group1"));
+
+        // then
+        assertThat(response.getHeaders().getCacheControl()).isEqualTo("max-age=30, private");
+        assertThat(response.getHeaders().getVary()).isEmpty();
+    }
+
+    @Test
+    void givenDefaults_whenUserResponse_thenClientsRevalidateAndCachesVaryByAuthorization() {
+        // when
+        var response = cacheableResponses.userResponse(List.of("group1"));
+
+        // then
+        assertThat(response.getHeaders().getCacheControl()).isEqualTo("no-cache, private");
+        assertThat(response.getHeaders().getVary()).containsExactly(HttpHeaders.AUTHORIZATION);
+    }
+}
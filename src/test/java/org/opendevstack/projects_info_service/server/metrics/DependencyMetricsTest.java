@@ -0,0 +1,85 @@
+package org.opendevstack.projects_info_service.server.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hc.client5.http.ConnectTimeoutException;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.util.Timeout;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.ConnectException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DependencyMetricsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final DependencyMetrics dependencyMetrics = new DependencyMetrics(meterRegistry);
+
+    @Test
+    void givenAConnectTimeout_whenOutcomeOf_thenReturnTimeout() {
+        // given
+        var exception = new ResourceAccessException("I/O error",
+                new ConnectTimeoutException("Connect to cluster1.example.com:443 timed out"));
+
+        // when
+        var outcome = DependencyMetrics.outcomeOf(exception);
+
+        // then
+        assertThat(outcome).isEqualTo(DependencyMetrics.OUTCOME_TIMEOUT);
+    }
+
+    @Test
+    void givenARefusedConnection_whenOutcomeOf_thenReturnError() {
+        // given
+        var exception = new ResourceAccessException("I/O error", new ConnectException("Connection refused"));
+
+        // when
+        var outcome = DependencyMetrics.outcomeOf(exception);
+
+        // then
+        assertThat(outcome).isEqualTo(DependencyMetrics.OUTCOME_ERROR);
+    }
+
+    @Test
+    void givenAnExhaustedConnectionPool_whenRecord_thenTheCallIsRecordedAsTimeout() throws Exception {
+        // given
+        var target = new HttpHost("http", "localhost", 8089);
+
+        try (var connectionManager = new PoolingHttpClientConnectionManager()) {
+            connectionManager.setMaxTotal(1);
+            connectionManager.setDefaultMaxPerRoute(1);
+
+            var httpClient = HttpClients.custom()
+                    .setConnectionManager(connectionManager)
+                    .setDefaultRequestConfig(RequestConfig.custom()
+                            .setConnectionRequestTimeout(Timeout.ofMilliseconds(100))
+                            .build())
+                    .build();
+            var restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+
+            // The only connection of the pool is leased and never given back
+            connectionManager.lease("busy", new HttpRoute(target), Timeout.ofSeconds(1), null)
+                    .get(Timeout.ofSeconds(1));
+
+            // when
+            assertThatThrownBy(() -> dependencyMetrics.record("azure-graph", "get-user", () ->
+                    restTemplate.getForObject(target.toURI() + "/v1.0/me", String.class)))
+                    .isInstanceOf(ResourceAccessException.class);
+        }
+
+        // then
+        assertThat(meterRegistry.get(DependencyMetrics.DEPENDENCY_CALLS_TIMER_NAME)
+                .tag("dependency", "azure-graph")
+                .tag("outcome", DependencyMetrics.OUTCOME_TIMEOUT)
+                .timer().count()).isEqualTo(1);
+    }
+}
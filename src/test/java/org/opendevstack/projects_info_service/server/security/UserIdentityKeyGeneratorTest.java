@@ -0,0 +1,64 @@
+package org.opendevstack.projects_info_service.server.security;
+
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.PlainJWT;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserIdentityKeyGeneratorTest {
+
+    private final UserIdentityKeyGenerator keyGenerator = new UserIdentityKeyGenerator();
+
+    @Test
+    void givenTwoTokensOfTheSameUser_whenGenerate_thenSameKey() throws NoSuchMethodException {
+        // given
+        var firstToken = token(new JWTClaimsSet.Builder().claim("tid", "tenant").claim("oid", "user")
+                .claim("iat", 1L).build());
+        var refreshedToken = token(new JWTClaimsSet.Builder().claim("tid", "tenant").claim("oid", "user")
+                .claim("iat", 2L).build());
+
+        // when
+        var firstKey = keyGenerator.generate(this, anyMethod(), firstToken);
+        var refreshedKey = keyGenerator.generate(this, anyMethod(), refreshedToken);
+
+        // then
+        assertThat(firstKey).isEqualTo("tenant:user");
+        assertThat(refreshedKey).isEqualTo(firstKey);
+    }
+
+    @Test
+    void givenATokenWithoutObjectId_whenGenerate_thenKeyIsTheUserPrincipalName() throws NoSuchMethodException {
+        // given
+        var token = token(new JWTClaimsSet.Builder().claim("upn", "user@example.com").build());
+
+        // when
+        var key = keyGenerator.generate(this, anyMethod(), token);
+
+        // then
+        assertThat(key).isEqualTo("user@example.com");
+    }
+
+    @Test
+    void givenANonJwtToken_whenGenerate_thenKeyIsTheTokenHash() throws NoSuchMethodException {
+        // given
+        var token = "opaque-token";
+
+        // when
+        var key = keyGenerator.generate(this, anyMethod(), token);
+
+        // then
+        assertThat(key).isEqualTo(TokenHasher.sha256(token));
+        assertThat(key.toString()).doesNotContain(token);
+    }
+
+    private String token(JWTClaimsSet claims) {
+        return new PlainJWT(claims).serialize();
+    }
+
+    private Method anyMethod() throws NoSuchMethodException {
+        return Object.class.getMethod("toString");
+    }
+}
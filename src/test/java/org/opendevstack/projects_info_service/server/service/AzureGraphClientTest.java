@@ -1,42 +1,51 @@
 package org.opendevstack.projects_info_service.server.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.opendevstack.projects_info_service.configuration.ProjectFilterConfiguration;
 import org.opendevstack.projects_info_service.server.client.AzureGraphClient;
+import org.opendevstack.projects_info_service.server.client.GraphDeltaReader.GroupChange;
 import org.opendevstack.projects_info_service.server.exception.InvalidContentProcessException;
 import org.opendevstack.projects_info_service.server.exception.InvalidTokenException;
+import org.opendevstack.projects_info_service.server.exception.UnableToReachAzureException;
+import org.opendevstack.projects_info_service.server.metrics.DependencyMetrics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.util.ReflectionTestUtils;
-import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.test.web.client.MockRestServiceServer;
 import org.springframework.web.client.RestTemplate;
 
-import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
-import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.anyString;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.times;
-import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.content;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
 
 @ExtendWith(MockitoExtension.class)
 class AzureGraphClientTest {
 
+    private static final String MEMBER_OF_URL = "https://graph.microsoft.com/v1.0/me/memberOf?$select=displayName&$top=10";
+
     @Mock
     private RestTemplate restTemplate;
 
@@ -44,7 +53,10 @@ class AzureGraphClientTest {
     private ObjectMapper mapper;
 
     @Mock
-    private JsonNode jsonNode;
+    private ProjectFilterConfiguration projectFilterConfiguration;
+
+    @Spy
+    private DependencyMetrics dependencyMetrics = new DependencyMetrics(new SimpleMeterRegistry());
 
     @InjectMocks
     private AzureGraphClient azureGraphClient;
@@ -55,73 +67,90 @@ class AzureGraphClientTest {
     }
 
     @Test
-    @SuppressWarnings("unchecked")
     void givenValidAccessToken_whenGetUserGroups_thenReturnGroups() {
         // given
         var accessToken = "testAccessToken";
+        var nextPageUrl = MEMBER_OF_URL + "&$skiptoken=page2";
+        var stubGraphServer = stubGraphServer();
 
-        ArgumentCaptor<HttpEntity<String>> captor = ArgumentCaptor.forClass(HttpEntity.class);
-        var objectMapper = new ObjectMapper();
-
-        ReflectionTestUtils.setField(azureGraphClient, "mapper", objectMapper);
-
-        when(restTemplate.exchange(
-                eq("https://graph.microsoft.com/v1.0/me/memberOf?$top=10"),
-                eq(HttpMethod.GET),
-                captor.capture(),
-                eq(String.class)
-        )).thenReturn( // @odata.nextLink
-                new ResponseEntity<>(
-                        "{\"@odata.nextLink\":\"https://graph.microsoft.com/v1.0/me/memberOf?$top=10\","
+        stubGraphServer.expect(requestTo(MEMBER_OF_URL))
+                .andExpect(header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken))
+                .andRespond(withSuccess("{\"@odata.nextLink\":\"" + nextPageUrl + "\","
                                 + " \"value\":[{\"displayName\":\"Group1\"},{\"displayName\":\"Group2\"}]}",
-                        HttpStatus.OK
-                )).thenReturn(
-                new ResponseEntity<>(
-                        "{\"value\":[{\"displayName\":\"Group3\"},{\"displayName\":\"Group4\"}]}",
-                        HttpStatus.OK
-        )); // No next link, end of pagination
+                        MediaType.APPLICATION_JSON));
+        stubGraphServer.expect(requestTo(nextPageUrl))
+                .andExpect(header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken))
+                .andRespond(withSuccess("{\"value\":[{\"displayName\":\"Group3\"},{\"displayName\":\"Group4\"}]}",
+                        MediaType.APPLICATION_JSON)); // No next link, end of pagination
 
         // when
         var userGroups = azureGraphClient.getUserGroups(accessToken);
 
         // then
-        assertThat(captor.getValue()).isNotNull();
-        assertThat(captor.getValue().getHeaders()).isNotNull();
+        stubGraphServer.verify();
+        assertThat(userGroups).containsExactlyInAnyOrder("Group1", "Group2", "Group3", "Group4");
+    }
 
-        HttpHeaders headers = captor.getValue().getHeaders();
+    @Test
+    void givenGroupsWithOtherFields_whenGetUserGroups_thenOnlyDisplayNamesAreKept() {
+        // given
+        var stubGraphServer = stubGraphServer();
+
+        stubGraphServer.expect(requestTo(MEMBER_OF_URL))
+                .andRespond(withSuccess("""
+                        {"@odata.context": "https://graph.microsoft.com/v1.0/$metadata#directoryObjects",
+                         "value": [
+                           {"@odata.type": "#microsoft.graph.group", "id": "1", "displayName": "Group1",
+                            "groupTypes": ["Unified"], "owners": {"nested": {"displayName": "not a group"}}},
+                           {"@odata.type": "#microsoft.graph.directoryRole", "id": "2", "displayName": null},
+                           "unexpected",
+                           {"id": "3", "displayName": "Group3"}
+                         ]}
+                        """, MediaType.APPLICATION_JSON));
 
-        assertThat(headers.getFirst(HttpHeaders.AUTHORIZATION)).isEqualTo("Bearer " + accessToken);
-        assertThat(userGroups).contains("Group1", "Group2", "Group3", "Group4");
+        // when
+        var userGroups = azureGraphClient.getUserGroups("testAccessToken");
 
-        verify(restTemplate, times(2)).exchange(
-                anyString(),
-                eq(HttpMethod.GET),
-                any(HttpEntity.class),
-                eq(String.class)
-        );
+        // then
+        assertThat(userGroups).containsExactlyInAnyOrder("Group1", "Group3");
     }
 
     @Test
-    void givenValidAccessToken_whenGetUserGroups_andNoGroups_thenReturnsEmptySet() {
+    void givenTransitiveGroupsFilteredByProjectPrefix_whenGetUserGroups_thenOnlyMatchingGroupsAreRequested() {
         // given
-        var accessToken = "testAccessToken";
+        var stubGraphServer = stubGraphServer();
 
-        var objectMapper = new ObjectMapper();
+        ReflectionTestUtils.setField(azureGraphClient, "pageSize", 5000);
+        ReflectionTestUtils.setField(azureGraphClient, "transitiveGroups", true);
+        ReflectionTestUtils.setField(azureGraphClient, "filterByProjectPrefix", true);
 
-        ReflectionTestUtils.setField(azureGraphClient, "mapper", objectMapper);
+        when(projectFilterConfiguration.getProjectRolesGroupPrefix()).thenReturn("BI-AS-ATLASSIAN-P");
 
-        when(restTemplate.exchange(
-                any(String.class),
-                any(HttpMethod.class),
-                any(HttpEntity.class),
-                eq(String.class)
-        )).thenReturn(new ResponseEntity<>(
-                "{\"invalid\":\"response\"}",
-                HttpStatus.OK
-        ));
+        stubGraphServer.expect(requestTo("https://graph.microsoft.com/v1.0/me/transitiveMemberOf/microsoft.graph.group"
+                        + "?$filter=startswith(displayName,'BI-AS-ATLASSIAN-P')&$count=true&$select=displayName"
+                        + "&$top=" + AzureGraphClient.MAX_PAGE_SIZE))
+                .andExpect(header("ConsistencyLevel", "eventual"))
+                .andRespond(withSuccess("{\"value\":[{\"displayName\":\"BI-AS-ATLASSIAN-P-EDPC-TEAM\"}]}",
+                        MediaType.APPLICATION_JSON));
 
         // when
-        var groups = azureGraphClient.getUserGroups(accessToken);
+        var userGroups = azureGraphClient.getUserGroups("testAccessToken");
+
+        // then
+        stubGraphServer.verify();
+        assertThat(userGroups).containsExactly("BI-AS-ATLASSIAN-P-EDPC-TEAM");
+    }
+
+    @Test
+    void givenValidAccessToken_whenGetUserGroups_andNoGroups_thenReturnsEmptySet() {
+        // given
+        var stubGraphServer = stubGraphServer();
+
+        stubGraphServer.expect(requestTo(MEMBER_OF_URL))
+                .andRespond(withSuccess("{\"invalid\":\"response\"}", MediaType.APPLICATION_JSON));
+
+        // when
+        var groups = azureGraphClient.getUserGroups("testAccessToken");
 
         // then
         assertThat(groups).isEmpty();
@@ -130,22 +159,15 @@ class AzureGraphClientTest {
     @Test
     void givenInvalidGroupsJson_whenGetUserGroups_thenThrowsInvalidContentProcessException() {
         // given
-        var accessToken = "testAccessToken";
+        var stubGraphServer = stubGraphServer();
 
-        when(restTemplate.exchange(
-                any(String.class),
-                any(HttpMethod.class),
-                any(HttpEntity.class),
-                eq(String.class)
-        )).thenReturn(new ResponseEntity<>(
-                "not a valid json",
-                HttpStatus.OK
-        ));
+        stubGraphServer.expect(requestTo(MEMBER_OF_URL))
+                .andRespond(withSuccess("not a valid json", MediaType.APPLICATION_JSON));
 
         // when
         var invalidContentProcessException = assertThrows(
                 InvalidContentProcessException.class,
-                () -> azureGraphClient.getUserGroups(accessToken)
+                () -> azureGraphClient.getUserGroups("testAccessToken")
         );
 
         // then
@@ -155,19 +177,15 @@ class AzureGraphClientTest {
     @Test
     void givenInvalidAccessToken_whenGetUserGroups_thenThrowsInvalidTokenException() {
         // given
-        var accessToken = "testAccessToken";
+        var stubGraphServer = stubGraphServer();
 
-        when(restTemplate.exchange(
-                any(String.class),
-                any(HttpMethod.class),
-                any(HttpEntity.class),
-                eq(String.class)
-        )).thenThrow(new HttpClientErrorException(HttpStatus.UNAUTHORIZED));
+        stubGraphServer.expect(requestTo(MEMBER_OF_URL))
+                .andRespond(withStatus(HttpStatus.UNAUTHORIZED));
 
         // when
         var invalidTokenException = assertThrows(
                 InvalidTokenException.class,
-                () -> azureGraphClient.getUserGroups(accessToken)
+                () -> azureGraphClient.getUserGroups("testAccessToken")
         );
 
         // then
@@ -211,13 +229,17 @@ class AzureGraphClientTest {
     }
 
     @Test
-    void givenAnAzureClient_whenGetDataHubGroups_thenGroupsAreReturned() throws JsonProcessingException {
+    void givenAnAzureClient_whenGetDataHubGroups_thenGroupsAreReturned() {
         // given
         var dataHubGroupId = "testDataHubGroupId";
         var groupName = "groupName";
+        var stubGraphServer = stubGraphServer();
 
         ReflectionTestUtils.setField(azureGraphClient, "dataHubGroupId", dataHubGroupId);
-        prepareMocksForGetUserGroups(dataHubGroupId, groupName);
+
+        stubGraphServer.expect(requestTo(appRoleAssignedToUrl(dataHubGroupId)))
+                .andRespond(withSuccess("{\"value\":[{\"displayName\":\"" + groupName + "\"}]}",
+                        MediaType.APPLICATION_JSON));
 
         // when
         var dataHubGroups = azureGraphClient.getDataHubGroups();
@@ -231,12 +253,12 @@ class AzureGraphClientTest {
     void givenAzureRejectsDataHubGroups_whenGetDataHubGroups_thenFallbackGroupIsReturned() {
         // given
         var dataHubGroupId = "testDataHubGroupId";
-        var url = "https://graph.microsoft.com/v1.0/servicePrincipals/" + dataHubGroupId + "/appRoleAssignedTo?$top=10";
+        var stubGraphServer = stubGraphServer();
 
         ReflectionTestUtils.setField(azureGraphClient, "dataHubGroupId", dataHubGroupId);
 
-        when(restTemplate.exchange(eq(url), eq(HttpMethod.GET), any(HttpEntity.class), eq(String.class)))
-                .thenThrow(new HttpClientErrorException(HttpStatus.UNAUTHORIZED));
+        stubGraphServer.expect(requestTo(appRoleAssignedToUrl(dataHubGroupId)))
+                .andRespond(withStatus(HttpStatus.UNAUTHORIZED));
 
         // when
         var dataHubGroups = azureGraphClient.getDataHubGroups();
@@ -246,24 +268,265 @@ class AzureGraphClientTest {
                 .containsExactly(AzureGraphClient.UNABLE_TO_GET_GROUPS_FALLBACK_GROUP);
     }
 
-    void prepareMocksForGetUserGroups(String dataHubGroupId, String groupName) throws JsonProcessingException {
-        var url = "https://graph.microsoft.com/v1.0/servicePrincipals/" + dataHubGroupId + "/appRoleAssignedTo?$top=10";
-        var response = "Response entity body";
-        var entity = new ResponseEntity<>(response, HttpStatus.OK);
-        var displayNameJsonNode = mock(JsonNode.class);
-        @SuppressWarnings("unchecked")
-        Iterator<JsonNode> jsonNodeIterator = mock(Iterator.class);
-
-        when(restTemplate.exchange(eq(url), eq(HttpMethod.GET), any(HttpEntity.class), eq(String.class)))
-                .thenReturn(entity);
-        when(mapper.readTree(response)).thenReturn(jsonNode);
-        when(jsonNode.iterator()).thenReturn(jsonNodeIterator);
-        when(jsonNodeIterator.hasNext()).thenReturn(true, false);
-        when(jsonNodeIterator.next()).thenReturn(jsonNode);
-        when(jsonNode.path("value")).thenReturn(jsonNode);
-        when(jsonNode.has("displayName")).thenReturn(true);
-        when(jsonNode.get("displayName")).thenReturn(displayNameJsonNode);
-        when(displayNameJsonNode.asText()).thenReturn(groupName);
+    @Test
+    void givenAMalformedDataHubGroupsPage_whenGetDataHubGroups_thenTheGroupsReadSoFarAreReturned() {
+        // given
+        var dataHubGroupId = "testDataHubGroupId";
+        var nextPageUrl = appRoleAssignedToUrl(dataHubGroupId) + "&$skiptoken=next";
+        var stubGraphServer = stubGraphServer();
+
+        ReflectionTestUtils.setField(azureGraphClient, "dataHubGroupId", dataHubGroupId);
+
+        stubGraphServer.expect(requestTo(appRoleAssignedToUrl(dataHubGroupId)))
+                .andRespond(withSuccess("{\"value\":[{\"displayName\":\"groupName\"}],"
+                        + "\"@odata.nextLink\":\"" + nextPageUrl + "\"}", MediaType.APPLICATION_JSON));
+        stubGraphServer.expect(requestTo(nextPageUrl))
+                .andRespond(withSuccess("{\"value\":[{\"displayName\":", MediaType.APPLICATION_JSON));
+
+        // when
+        var dataHubGroups = azureGraphClient.getDataHubGroups();
+
+        // then
+        assertThat(dataHubGroups).containsExactly("groupName");
+        stubGraphServer.verify();
+    }
+
+    @Test
+    void givenValidAccessToken_whenGetUserGroupIds_thenReturnIds() {
+        // given
+        var stubGraphServer = stubGraphServer();
+
+        stubGraphServer.expect(requestTo("https://graph.microsoft.com/v1.0/me/getMemberGroups"))
+                .andExpect(method(HttpMethod.POST))
+                .andExpect(header(HttpHeaders.AUTHORIZATION, "Bearer testAccessToken"))
+                .andExpect(content().json("{\"securityEnabledOnly\":false}"))
+                .andRespond(withSuccess("""
+                        {"@odata.context": "https://graph.microsoft.com/v1.0/$metadata#Collection(Edm.String)",
+                         "value": ["id1", "id2"]}
+                        """, MediaType.APPLICATION_JSON));
+
+        // when
+        var groupIds = azureGraphClient.getUserGroupIds("testAccessToken");
+
+        // then
+        stubGraphServer.verify();
+        assertThat(groupIds).containsExactly("id1", "id2");
+    }
+
+    @Test
+    void givenInvalidAccessToken_whenGetUserGroupIds_thenThrowsInvalidTokenException() {
+        // given
+        var stubGraphServer = stubGraphServer();
+
+        stubGraphServer.expect(requestTo("https://graph.microsoft.com/v1.0/me/getMemberGroups"))
+                .andRespond(withStatus(HttpStatus.UNAUTHORIZED));
+
+        // when
+        var invalidTokenException = assertThrows(
+                InvalidTokenException.class,
+                () -> azureGraphClient.getUserGroupIds("testAccessToken")
+        );
+
+        // then
+        assertThat(invalidTokenException.getMessage()).isEqualTo("Error while getting user groups");
+    }
+
+    @Test
+    void givenGroupIds_whenGetGroupDisplayNames_thenNamesAreReturnedById() {
+        // given
+        var stubGraphServer = stubGraphServer();
+
+        ReflectionTestUtils.setField(azureGraphClient, "azureAccessToken", "appAccessToken");
+
+        stubGraphServer.expect(requestTo("https://graph.microsoft.com/v1.0/directoryObjects/getByIds"))
+                .andExpect(method(HttpMethod.POST))
+                .andExpect(header(HttpHeaders.AUTHORIZATION, "Bearer appAccessToken"))
+                .andExpect(content().json("{\"ids\":[\"id1\",\"id2\"],\"types\":[\"group\"]}"))
+                .andRespond(withSuccess("{\"value\":[{\"@odata.type\":\"#microsoft.graph.group\","
+                        + "\"id\":\"id1\",\"displayName\":\"Group1\"}]}", MediaType.APPLICATION_JSON));
+
+        // when
+        var displayNames = azureGraphClient.getGroupDisplayNames(List.of("id1", "id2"));
+
+        // then
+        stubGraphServer.verify();
+        assertThat(displayNames).containsExactly(Map.entry("id1", "Group1"));
     }
 
+    @Test
+    void givenAzureRejectsTheAppToken_whenGetGroupDisplayNames_thenThrowsUnableToReachAzureException() {
+        // given
+        var stubGraphServer = stubGraphServer();
+
+        stubGraphServer.expect(requestTo("https://graph.microsoft.com/v1.0/directoryObjects/getByIds"))
+                .andRespond(withStatus(HttpStatus.FORBIDDEN));
+
+        // when / then
+        assertThrows(UnableToReachAzureException.class, () -> azureGraphClient.getGroupDisplayNames(List.of("id1")));
+    }
+
+    @Test
+    void givenValidAccessToken_whenGetUserProfile_thenProfileAndFirstGroupsPageShareOneBatch() {
+        // given
+        var stubGraphServer = stubGraphServer();
+        var nextPageUrl = "https://graph.microsoft.com/v1.0/me/memberOf?$skiptoken=page2";
+
+        stubGraphServer.expect(requestTo("https://graph.microsoft.com/v1.0/$batch"))
+                .andExpect(method(HttpMethod.POST))
+                .andExpect(header(HttpHeaders.AUTHORIZATION, "Bearer testAccessToken"))
+                .andExpect(content().json("""
+                        {"requests": [
+                          {"id": "me", "method": "GET", "url": "/me"},
+                          {"id": "groups", "method": "GET", "url": "/me/memberOf?$select=displayName&$top=10"}
+                        ]}
+                        """))
+                .andRespond(withSuccess("""
+                        {"responses": [
+                          {"id": "groups", "status": 200,
+                           "body": {"value": [{"displayName": "Group1"}], "@odata.nextLink": "%s"}},
+                          {"body": {"mail": "user@example.com"}, "status": 200, "id": "me"}
+                        ]}
+                        """.formatted(nextPageUrl), MediaType.APPLICATION_JSON));
+        stubGraphServer.expect(requestTo(nextPageUrl))
+                .andExpect(header(HttpHeaders.AUTHORIZATION, "Bearer testAccessToken"))
+                .andRespond(withSuccess("{\"value\":[{\"displayName\":\"Group2\"}]}", MediaType.APPLICATION_JSON));
+
+        // when
+        var userProfile = azureGraphClient.getUserProfile("testAccessToken");
+
+        // then
+        stubGraphServer.verify();
+        assertThat(userProfile.email()).isEqualTo("user@example.com");
+        assertThat(userProfile.groups()).containsExactlyInAnyOrder("Group1", "Group2");
+    }
+
+    @Test
+    void givenAThrottledGroupsRequest_whenGetUserProfile_thenGroupsAreFetchedOnTheirOwn() {
+        // given
+        var stubGraphServer = stubGraphServer();
+
+        stubGraphServer.expect(requestTo("https://graph.microsoft.com/v1.0/$batch"))
+                .andRespond(withSuccess("""
+                        {"responses": [
+                          {"id": "me", "status": 200, "body": {"mail": null, "userPrincipalName": "user@example.com"}},
+                          {"id": "groups", "status": 429, "headers": {"Retry-After": "1"},
+                           "body": {"error": {"code": "TooManyRequests"}}}
+                        ]}
+                        """, MediaType.APPLICATION_JSON));
+        stubGraphServer.expect(requestTo(MEMBER_OF_URL))
+                .andRespond(withSuccess("{\"value\":[{\"displayName\":\"Group1\"}]}", MediaType.APPLICATION_JSON));
+
+        // when
+        var userProfile = azureGraphClient.getUserProfile("testAccessToken");
+
+        // then
+        stubGraphServer.verify();
+        assertThat(userProfile.email()).isEqualTo("user@example.com");
+        assertThat(userProfile.groups()).containsExactly("Group1");
+    }
+
+    @Test
+    void givenInvalidAccessToken_whenGetUserProfile_thenThrowsInvalidTokenException() {
+        // given
+        var stubGraphServer = stubGraphServer();
+
+        stubGraphServer.expect(requestTo("https://graph.microsoft.com/v1.0/$batch"))
+                .andRespond(withStatus(HttpStatus.UNAUTHORIZED));
+
+        // when / then
+        assertThrows(InvalidTokenException.class, () -> azureGraphClient.getUserProfile("testAccessToken"));
+    }
+
+    @Test
+    void givenAPrefix_whenGetGroupsByPrefix_thenEveryPageOfMatchingGroupsIsReturned() {
+        // given
+        var stubGraphServer = stubGraphServer();
+        var nextPageUrl = "https://graph.microsoft.com/v1.0/groups?$skiptoken=page2";
+
+        ReflectionTestUtils.setField(azureGraphClient, "azureAccessToken", "appAccessToken");
+
+        stubGraphServer.expect(requestTo("https://graph.microsoft.com/v1.0/groups"
+                        + "?$filter=startswith(displayName,'BI-AS-ATLASSIAN-P')&$select=id,displayName&$top=999"))
+                .andExpect(header(HttpHeaders.AUTHORIZATION, "Bearer appAccessToken"))
+                .andRespond(withSuccess("""
+                        {"value": [{"id": "id1", "displayName": "BI-AS-ATLASSIAN-P-EDPC-TEAM"}],
+                         "@odata.nextLink": "%s"}
+                        """.formatted(nextPageUrl), MediaType.APPLICATION_JSON));
+        stubGraphServer.expect(requestTo(nextPageUrl))
+                .andRespond(withSuccess("""
+                        {"value": [{"id": "id2", "displayName": "BI-AS-ATLASSIAN-P-EDPC-MANAGER"}]}
+                        """, MediaType.APPLICATION_JSON));
+
+        // when
+        var groups = azureGraphClient.getGroupsByPrefix("BI-AS-ATLASSIAN-P");
+
+        // then
+        stubGraphServer.verify();
+        assertThat(groups).containsOnly(Map.entry("id1", "BI-AS-ATLASSIAN-P-EDPC-TEAM"),
+                Map.entry("id2", "BI-AS-ATLASSIAN-P-EDPC-MANAGER"));
+    }
+
+    @Test
+    void givenAGroup_whenGetGroupUserMemberIds_thenUserIdsAreReturned() {
+        // given
+        var stubGraphServer = stubGraphServer();
+
+        stubGraphServer.expect(requestTo("https://graph.microsoft.com/v1.0/groups/id1/members/microsoft.graph.user"
+                        + "?$select=id&$top=999"))
+                .andRespond(withSuccess("{\"value\":[{\"id\":\"user1\"},{\"id\":\"user2\"}]}",
+                        MediaType.APPLICATION_JSON));
+
+        // when
+        var userIds = azureGraphClient.getGroupUserMemberIds("id1");
+
+        // then
+        stubGraphServer.verify();
+        assertThat(userIds).containsExactly("user1", "user2");
+    }
+
+    @Test
+    void givenADeltaLink_whenGetGroupsDelta_thenGroupAndUserMemberChangesAreReturned() {
+        // given
+        var stubGraphServer = stubGraphServer();
+        var deltaLink = "https://graph.microsoft.com/v1.0/groups/delta?$deltatoken=token1";
+
+        stubGraphServer.expect(requestTo(deltaLink))
+                .andRespond(withSuccess("""
+                        {"value": [
+                          {"id": "id1", "displayName": "BI-AS-ATLASSIAN-P-EDPC-TEAM",
+                           "members@delta": [
+                             {"@odata.type": "#microsoft.graph.user", "id": "user1"},
+                             {"@odata.type": "#microsoft.graph.user", "id": "user2", "@removed": {"reason": "deleted"}},
+                             {"@odata.type": "#microsoft.graph.group", "id": "nested"}
+                           ]},
+                          {"id": "id2", "@removed": {"reason": "changed"}}
+                         ],
+                         "@odata.deltaLink": "https://graph.microsoft.com/v1.0/groups/delta?$deltatoken=token2"}
+                        """, MediaType.APPLICATION_JSON));
+
+        // when
+        var page = azureGraphClient.getGroupsDelta(deltaLink);
+
+        // then
+        stubGraphServer.verify();
+        assertThat(page.changes()).containsExactly(
+                new GroupChange("id1", "BI-AS-ATLASSIAN-P-EDPC-TEAM", false, List.of("user1"), List.of("user2")),
+                new GroupChange("id2", null, true, List.of(), List.of()));
+        assertThat(page.nextLink()).isNull();
+        assertThat(page.deltaLink()).isEqualTo("https://graph.microsoft.com/v1.0/groups/delta?$deltatoken=token2");
+    }
+
+    // Paged collections are streamed from the response body, so they are served by a stub Graph server
+    private MockRestServiceServer stubGraphServer() {
+        var graphRestTemplate = new RestTemplate();
+
+        ReflectionTestUtils.setField(azureGraphClient, "restTemplate", graphRestTemplate);
+        ReflectionTestUtils.setField(azureGraphClient, "mapper", new ObjectMapper());
+
+        return MockRestServiceServer.bindTo(graphRestTemplate).build();
+    }
+
+    private static String appRoleAssignedToUrl(String dataHubGroupId) {
+        return "https://graph.microsoft.com/v1.0/servicePrincipals/" + dataHubGroupId + "/appRoleAssignedTo?$top=10";
+    }
 }
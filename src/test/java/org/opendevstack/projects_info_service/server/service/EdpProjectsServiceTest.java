@@ -47,4 +47,20 @@ class EdpProjectsServiceTest {
                 .extracting(ProjectInfo::getProjectKey)
                 .containsExactlyInAnyOrder("edpc", "devstack");
     }
+
+    @Test
+    void givenASetOfAzureGroups_whenHasAccess_thenOnlyProjectsOfTheGroupsAreAccessible() {
+        // given
+        Set<String> azureGroups = Set.of(
+                "MY-PROJECT-PREFIX-EDPC-TEAM",
+                "MY-PROJECT-PREFIX-OTHERPROJECT-OTHERGROUP",
+                "UNRELATED-GROUP"
+        );
+
+        // when / then
+        assertThat(edpProjectsService.hasAccess(azureGroups, "edpc")).isTrue();
+        assertThat(edpProjectsService.hasAccess(azureGroups, "EDPC")).isTrue();
+        assertThat(edpProjectsService.hasAccess(azureGroups, "otherproject")).isFalse();
+        assertThat(edpProjectsService.hasAccess(azureGroups, "devstack")).isFalse();
+    }
 }
@@ -5,16 +5,19 @@ import com.microsoft.aad.msal4j.ConfidentialClientApplication;
 import com.microsoft.aad.msal4j.IAuthenticationResult;
 import com.microsoft.aad.msal4j.IClientSecret;
 import com.microsoft.aad.msal4j.OnBehalfOfParameters;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.opendevstack.projects_info_service.server.exception.GraphTokenException;
+import org.opendevstack.projects_info_service.server.metrics.DependencyMetrics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.net.MalformedURLException;
+import java.time.Instant;
+import java.util.Date;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
@@ -24,20 +27,26 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class GraphTokenServiceTest {
 
-    @InjectMocks
+    private SimpleMeterRegistry meterRegistry;
+
     private GraphTokenService graphTokenService;
 
     @BeforeEach
     void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        graphTokenService = new GraphTokenService(meterRegistry, new DependencyMetrics(meterRegistry), 100);
+
         ReflectionTestUtils.setField(graphTokenService, "clientId", "test-client-id");
         ReflectionTestUtils.setField(graphTokenService, "clientSecret", "test-client-secret");
         ReflectionTestUtils.setField(graphTokenService, "tenantId", "test-tenant-id");
+        ReflectionTestUtils.setField(graphTokenService, "refreshMarginSeconds", 300L);
     }
 
     @Test
@@ -149,4 +158,67 @@ class GraphTokenServiceTest {
                     .isInstanceOf(MalformedURLException.class);
         }
     }
+
+    @Test
+    void givenTheSameTokenTwice_whenGetGraphToken_thenApplicationIsBuiltOnceAndTokenIsServedFromCache() throws Exception {
+        // given
+        IClientSecret credential = mock(IClientSecret.class);
+        ConfidentialClientApplication.Builder builder = mock(ConfidentialClientApplication.Builder.class);
+        ConfidentialClientApplication app = mock(ConfidentialClientApplication.class);
+        IAuthenticationResult authResult = mock(IAuthenticationResult.class);
+
+        try (MockedStatic<ClientCredentialFactory> credFactory = mockStatic(ClientCredentialFactory.class);
+             MockedStatic<ConfidentialClientApplication> appStatic = mockStatic(ConfidentialClientApplication.class)) {
+
+            credFactory.when(() -> ClientCredentialFactory.createFromSecret(anyString())).thenReturn(credential);
+            appStatic.when(() -> ConfidentialClientApplication.builder(anyString(), any())).thenReturn(builder);
+            when(builder.authority(any())).thenReturn(builder);
+            when(builder.build()).thenReturn(app);
+            when(app.acquireToken(any(OnBehalfOfParameters.class)))
+                    .thenReturn(CompletableFuture.completedFuture(authResult));
+            when(authResult.accessToken()).thenReturn("graph-access-token");
+            when(authResult.expiresOnDate()).thenReturn(Date.from(Instant.now().plusSeconds(3600)));
+
+            // when
+            String first = graphTokenService.getGraphToken("incoming-token");
+            String second = graphTokenService.getGraphToken("incoming-token");
+
+            // then
+            assertThat(first).isEqualTo("graph-access-token");
+            assertThat(second).isEqualTo("graph-access-token");
+            verify(builder, times(1)).build();
+            verify(app, times(1)).acquireToken(any(OnBehalfOfParameters.class));
+            assertThat(meterRegistry.get("cache.gets").tag("cache", GraphTokenService.TOKEN_CACHE_NAME)
+                    .tag("result", "hit").functionCounter().count()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void givenATokenExpiringWithinTheRefreshMargin_whenGetGraphToken_thenANewTokenIsAcquired() throws Exception {
+        // given
+        IClientSecret credential = mock(IClientSecret.class);
+        ConfidentialClientApplication.Builder builder = mock(ConfidentialClientApplication.Builder.class);
+        ConfidentialClientApplication app = mock(ConfidentialClientApplication.class);
+        IAuthenticationResult authResult = mock(IAuthenticationResult.class);
+
+        try (MockedStatic<ClientCredentialFactory> credFactory = mockStatic(ClientCredentialFactory.class);
+             MockedStatic<ConfidentialClientApplication> appStatic = mockStatic(ConfidentialClientApplication.class)) {
+
+            credFactory.when(() -> ClientCredentialFactory.createFromSecret(anyString())).thenReturn(credential);
+            appStatic.when(() -> ConfidentialClientApplication.builder(anyString(), any())).thenReturn(builder);
+            when(builder.authority(any())).thenReturn(builder);
+            when(builder.build()).thenReturn(app);
+            when(app.acquireToken(any(OnBehalfOfParameters.class)))
+                    .thenReturn(CompletableFuture.completedFuture(authResult));
+            when(authResult.accessToken()).thenReturn("graph-access-token");
+            when(authResult.expiresOnDate()).thenReturn(Date.from(Instant.now().plusSeconds(60)));
+
+            // when
+            graphTokenService.getGraphToken("incoming-token");
+            graphTokenService.getGraphToken("incoming-token");
+
+            // then
+            verify(app, times(2)).acquireToken(any(OnBehalfOfParameters.class));
+        }
+    }
 }
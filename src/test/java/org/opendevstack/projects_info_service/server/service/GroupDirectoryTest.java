@@ -0,0 +1,98 @@
+package org.opendevstack.projects_info_service.server.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.opendevstack.projects_info_service.server.client.AzureGraphClient;
+import org.opendevstack.projects_info_service.server.exception.UnableToReachAzureException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class GroupDirectoryTest {
+
+    @Mock
+    private AzureGraphClient azureGraphClient;
+
+    private GroupDirectory groupDirectory;
+
+    @BeforeEach
+    void setUp() {
+        groupDirectory = new GroupDirectory(azureGraphClient, new SimpleMeterRegistry(), Duration.ofHours(12), 100);
+    }
+
+    @Test
+    void givenKnownGroups_whenDisplayNamesOf_thenOnlyMissingIdsAreLookedUp() {
+        // given
+        when(azureGraphClient.getGroupDisplayNames(List.of("id1"))).thenReturn(Map.of("id1", "Group1"));
+        when(azureGraphClient.getGroupDisplayNames(List.of("id2"))).thenReturn(Map.of("id2", "Group2"));
+
+        groupDirectory.displayNamesOf(List.of("id1"));
+
+        // when
+        var displayNames = groupDirectory.displayNamesOf(List.of("id1", "id2"));
+
+        // then
+        assertThat(displayNames).containsOnly(Map.entry("id1", "Group1"), Map.entry("id2", "Group2"));
+        verify(azureGraphClient, times(1)).getGroupDisplayNames(List.of("id1"));
+    }
+
+    @Test
+    void givenAnIdThatIsNotAGroup_whenDisplayNamesOf_thenItIsLeftOutAndNotLookedUpAgain() {
+        // given
+        when(azureGraphClient.getGroupDisplayNames(List.of("role1"))).thenReturn(Map.of());
+
+        groupDirectory.displayNamesOf(List.of("role1"));
+
+        // when
+        var displayNames = groupDirectory.displayNamesOf(List.of("role1"));
+
+        // then
+        assertThat(displayNames).isEmpty();
+        verify(azureGraphClient, times(1)).getGroupDisplayNames(List.of("role1"));
+    }
+
+    @Test
+    void givenKnownGroups_whenRefresh_thenNamesAreUpdatedAndDeletedGroupsDropped() {
+        // given
+        when(azureGraphClient.getGroupDisplayNames(anyList()))
+                .thenReturn(Map.of("id1", "Group1", "id2", "Group2"))
+                .thenReturn(Map.of("id1", "Renamed1"));
+
+        groupDirectory.displayNamesOf(List.of("id1", "id2"));
+
+        // when
+        groupDirectory.refresh();
+
+        // then
+        assertThat(groupDirectory.displayNamesOf(List.of("id1", "id2"))).containsOnly(Map.entry("id1", "Renamed1"));
+        verify(azureGraphClient, times(2)).getGroupDisplayNames(anyList());
+    }
+
+    @Test
+    void givenAnUnreachableDirectory_whenRefresh_thenCurrentNamesAreKept() {
+        // given
+        when(azureGraphClient.getGroupDisplayNames(anyList()))
+                .thenReturn(Map.of("id1", "Group1"))
+                .thenThrow(new UnableToReachAzureException("Unable to reach Azure", null));
+
+        groupDirectory.displayNamesOf(List.of("id1"));
+
+        // when
+        groupDirectory.refresh();
+
+        // then
+        assertThat(groupDirectory.displayNamesOf(List.of("id1"))).containsOnly(Map.entry("id1", "Group1"));
+    }
+}
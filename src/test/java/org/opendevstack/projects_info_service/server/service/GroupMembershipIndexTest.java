@@ -0,0 +1,51 @@
+package org.opendevstack.projects_info_service.server.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GroupMembershipIndexTest {
+
+    @Test
+    void givenANotSyncedIndex_whenGroupsOf_thenNothingIsReturned() {
+        // given
+        var groupMembershipIndex = new GroupMembershipIndex(Duration.ofMinutes(15));
+
+        // when
+        groupMembershipIndex.markSynced();
+
+        // then
+        assertThat(groupMembershipIndex.groupsOf("user1")).isEmpty();
+    }
+
+    @Test
+    void givenASyncedIndex_whenGroupsOf_thenTheGroupsOfTheUserAreReturned() {
+        // given
+        var groupMembershipIndex = new GroupMembershipIndex(Duration.ofMinutes(15));
+
+        // when
+        groupMembershipIndex.replace(Map.of("team", "Group1", "manager", "Group2"),
+                Map.of("team", Set.of("user1", "user2"), "manager", Set.of("user1"), "unknown", Set.of("user3")));
+
+        // then
+        assertThat(groupMembershipIndex.groupsOf("user1")).contains(Set.of("Group1", "Group2"));
+        assertThat(groupMembershipIndex.groupsOf("user2")).contains(Set.of("Group1"));
+        assertThat(groupMembershipIndex.groupsOf("user3")).isEmpty();
+    }
+
+    @Test
+    void givenAStaleIndex_whenGroupsOf_thenNothingIsReturned() {
+        // given
+        var groupMembershipIndex = new GroupMembershipIndex(Duration.ofSeconds(-1));
+
+        // when
+        groupMembershipIndex.replace(Map.of("team", "Group1"), Map.of("team", Set.of("user1")));
+
+        // then
+        assertThat(groupMembershipIndex.groupsOf("user1")).isEmpty();
+    }
+}
@@ -0,0 +1,119 @@
+package org.opendevstack.projects_info_service.server.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.opendevstack.projects_info_service.configuration.ProjectFilterConfiguration;
+import org.opendevstack.projects_info_service.server.client.AzureGraphClient;
+import org.opendevstack.projects_info_service.server.client.GraphDeltaReader.GroupChange;
+import org.opendevstack.projects_info_service.server.client.GraphDeltaReader.GroupDeltaPage;
+import org.opendevstack.projects_info_service.server.exception.UnableToReachAzureException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class GroupMembershipSyncTest {
+
+    private static final String PREFIX = "BI-AS-ATLASSIAN-P";
+    private static final String DELTA_LINK = "https://graph.microsoft.com/v1.0/groups/delta?$deltatoken=first";
+    private static final String NEXT_DELTA_LINK = "https://graph.microsoft.com/v1.0/groups/delta?$deltatoken=next";
+
+    @Mock
+    private AzureGraphClient azureGraphClient;
+
+    private GroupMembershipIndex groupMembershipIndex;
+
+    private GroupMembershipSync groupMembershipSync;
+
+    @BeforeEach
+    void setUp() {
+        var projectFilterConfiguration = new ProjectFilterConfiguration();
+        projectFilterConfiguration.setProjectRolesGroupPrefix(PREFIX);
+
+        groupMembershipIndex = new GroupMembershipIndex(Duration.ofMinutes(15));
+        groupMembershipSync = new GroupMembershipSync(azureGraphClient, groupMembershipIndex,
+                projectFilterConfiguration, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void givenNoPreviousSync_whenSync_thenEveryPrefixGroupIsLoaded() {
+        // given
+        givenAFullLoad();
+
+        // when
+        groupMembershipSync.sync();
+
+        // then
+        assertThat(groupMembershipIndex.groupsOf("user1"))
+                .hasValueSatisfying(groups -> assertThat(groups)
+                        .containsExactlyInAnyOrder("BI-AS-ATLASSIAN-P-EDPC-TEAM", "BI-AS-ATLASSIAN-P-EDPC-MANAGER"));
+        assertThat(groupMembershipIndex.groupsOf("user2")).contains(Set.of("BI-AS-ATLASSIAN-P-EDPC-TEAM"));
+        assertThat(groupMembershipIndex.groupsOf("user3")).isEmpty();
+    }
+
+    @Test
+    void givenAPreviousSync_whenSync_thenOnlyTheDeltaIsApplied() {
+        // given
+        givenAFullLoad();
+        groupMembershipSync.sync();
+
+        when(azureGraphClient.getGroupsDelta(DELTA_LINK)).thenReturn(new GroupDeltaPage(List.of(
+                new GroupChange("team", null, false, List.of("user3"), List.of("user2")),
+                new GroupChange("manager", null, true, List.of(), List.of()),
+                new GroupChange("stakeholder", "BI-AS-ATLASSIAN-P-EDPC-STAKEHOLDER", false, List.of("user1"),
+                        List.of()),
+                new GroupChange("other", "OTHER-GROUP", false, List.of("user1"), List.of())),
+                null, NEXT_DELTA_LINK));
+        when(azureGraphClient.getGroupUserMemberIds("stakeholder")).thenReturn(List.of("user2"));
+
+        // when
+        groupMembershipSync.sync();
+
+        // then
+        assertThat(groupMembershipIndex.groupsOf("user1")).contains(Set.of("BI-AS-ATLASSIAN-P-EDPC-TEAM"));
+        assertThat(groupMembershipIndex.groupsOf("user2"))
+                .contains(Set.of("BI-AS-ATLASSIAN-P-EDPC-STAKEHOLDER"));
+        assertThat(groupMembershipIndex.groupsOf("user3")).contains(Set.of("BI-AS-ATLASSIAN-P-EDPC-TEAM"));
+        verify(azureGraphClient, times(1)).getGroupsByPrefix(PREFIX);
+    }
+
+    @Test
+    void givenAFailedDelta_whenSync_thenEverythingIsLoadedAgain() {
+        // given
+        givenAFullLoad();
+        groupMembershipSync.sync();
+
+        when(azureGraphClient.getGroupsDelta(DELTA_LINK))
+                .thenThrow(new UnableToReachAzureException("Unable to reach Azure", null));
+
+        groupMembershipSync.sync();
+
+        // when
+        groupMembershipSync.sync();
+
+        // then
+        assertThat(groupMembershipIndex.groupsOf("user2")).contains(Set.of("BI-AS-ATLASSIAN-P-EDPC-TEAM"));
+        verify(azureGraphClient, times(2)).getGroupsByPrefix(PREFIX);
+    }
+
+    private void givenAFullLoad() {
+        when(azureGraphClient.getGroupsDelta(AzureGraphClient.LATEST_GROUPS_DELTA_URL))
+                .thenReturn(new GroupDeltaPage(List.of(), null, DELTA_LINK));
+        when(azureGraphClient.getGroupsByPrefix(PREFIX)).thenReturn(Map.of(
+                "team", "BI-AS-ATLASSIAN-P-EDPC-TEAM",
+                "manager", "BI-AS-ATLASSIAN-P-EDPC-MANAGER"));
+        when(azureGraphClient.getGroupUserMemberIds("team")).thenReturn(List.of("user1", "user2"));
+        when(azureGraphClient.getGroupUserMemberIds("manager")).thenReturn(List.of("user1"));
+    }
+}
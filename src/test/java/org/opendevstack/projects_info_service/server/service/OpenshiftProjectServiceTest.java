@@ -1,98 +1,104 @@
 package org.opendevstack.projects_info_service.server.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.opendevstack.projects_info_service.configuration.OpenshiftClusterConfiguration;
-import org.opendevstack.projects_info_service.server.model.Metadata;
+import org.opendevstack.projects_info_service.server.metrics.DependencyMetrics;
 import org.opendevstack.projects_info_service.server.model.OpenshiftProjectCluster;
-import org.opendevstack.projects_info_service.server.model.Project;
-import org.opendevstack.projects_info_service.server.model.ProjectList;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentMatcher;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.client.MockClientHttpResponse;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
 
 @ExtendWith(MockitoExtension.class)
 public class OpenshiftProjectServiceTest {
 
+    private static final String PROJECTS_PATH = "/apis/project.openshift.io/v1/projects";
+    private static final String CLUSTER1_URL = "https://cluster1.example.com";
+    private static final String CLUSTER2_URL = "https://cluster2.example.com";
+
     @Mock
     private RestTemplate mockRestTemplate;
 
-    @InjectMocks
     private OpenShiftProjectService openshiftProjectService;
 
+    private OpenshiftClusterConfiguration openshiftClusterConfig;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final OpenshiftProjectIndex projectIndex = new OpenshiftProjectIndex();
+
     @BeforeEach
     void setUp() {
         Map<String, Map<String, String>> clusters = new HashMap<>();
         Map<String, String> euCluster = new HashMap<>();
         Map<String, String> usTest = new HashMap<>();
-        euCluster.put("url", "https://cluster1.example.com");
+        euCluster.put("url", CLUSTER1_URL);
         euCluster.put("token", "mytoken");
-        usTest.put("url", "https://cluster2.example.com");
+        usTest.put("url", CLUSTER2_URL);
         usTest.put("token", "mytoken");
         clusters.put("cluster1", euCluster);
         clusters.put("cluster2", usTest);
 
-        OpenshiftClusterConfiguration openshiftClusterConfig = new OpenshiftClusterConfiguration();
+        openshiftClusterConfig = new OpenshiftClusterConfiguration();
         openshiftClusterConfig.setClusters(clusters);
 
         // Manually inject the config since it's not a Spring bean
-        openshiftProjectService = new OpenShiftProjectService(mockRestTemplate, openshiftClusterConfig);
+        openshiftProjectService = new OpenShiftProjectService(mockRestTemplate, new ObjectMapper(),
+                openshiftClusterConfig, executor, new DependencyMetrics(meterRegistry), projectIndex);
 
 
         // Set the @Value field using ReflectionTestUtils
-        ReflectionTestUtils.setField(openshiftProjectService, "projectApiUrl",
-                "/apis/project.openshift.io/v1/projects");
+        ReflectionTestUtils.setField(openshiftProjectService, "projectApiUrl", PROJECTS_PATH);
     }
 
     @Test
     void givenTwoProjectsInDifferentClusters_whenFetchProjects_thenReturnTwoProjectsWithTheirClusters() {
-        // Mock project list response
-        Project project1 = new Project();
-        Metadata metadata1 = new Metadata();
-        metadata1.setName("myapp-cd");
-        project1.setMetadata(metadata1);
-
-        Project project2 = new Project();
-        Metadata metadata2 = new Metadata();
-        metadata2.setName("anotherapp"); // Should be filtered out
-        project2.setMetadata(metadata2);
-
-        ProjectList projectList = new ProjectList();
-        projectList.setItems(List.of(project1, project2));
-
-        ResponseEntity<ProjectList> responseEntity = new ResponseEntity<>(projectList, HttpStatus.OK);
-
-        when(mockRestTemplate.exchange(
-                eq("https://cluster1.example.com" + "/apis/project.openshift.io/v1/projects"),
-                any(HttpMethod.class),
-                any(HttpEntity.class),
-                eq(ProjectList.class)
-        )).thenReturn(responseEntity);
-
-        when(mockRestTemplate.exchange(
-                eq("https://cluster2.example.com" + "/apis/project.openshift.io/v1/projects"),
-                any(HttpMethod.class),
-                any(HttpEntity.class),
-                eq(ProjectList.class)
-        )).thenReturn(responseEntity);
+        // Mock project list response. "anotherapp" should be filtered out
+        var projectList = projectList("myapp-cd", "anotherapp");
+
+        givenClusterAnswers(CLUSTER1_URL, projectList);
+        givenClusterAnswers(CLUSTER2_URL, projectList);
 
         // Execute
         List<OpenshiftProjectCluster> result = openshiftProjectService.fetchProjects();
@@ -106,29 +112,16 @@ public class OpenshiftProjectServiceTest {
     }
 
     @Test
+    @SuppressWarnings("unchecked")
     void givenProjectsWithLowercaseNames_whenFetchProjects_thenReturnProjectsWithUppercaseNames() {
-        Project project1 = new Project();
-        Metadata metadata1 = new Metadata();
-        metadata1.setName("myapp-cd");
-        project1.setMetadata(metadata1);
-
-        Project project2 = new Project();
-        Metadata metadata2 = new Metadata();
-        metadata2.setName("anotherapp-cd");
-        project2.setMetadata(metadata2);
-
-        ProjectList projectList = new ProjectList();
-        projectList.setItems(List.of(project1, project2));
+        var projectList = projectList("myapp-cd", "anotherapp-cd");
 
-        ResponseEntity<ProjectList> responseEntity = new ResponseEntity<>(projectList, HttpStatus.OK);
-
-        when(mockRestTemplate.exchange(
-                anyString(),
-                any(HttpMethod.class),
-                any(HttpEntity.class),
-                eq(ProjectList.class)
-        ))
-                .thenReturn(responseEntity);
+        when(mockRestTemplate.execute(
+                any(URI.class),
+                eq(HttpMethod.GET),
+                any(RequestCallback.class),
+                any(ResponseExtractor.class)
+        )).thenAnswer(invocation -> extract(invocation, projectList));
 
         List<OpenshiftProjectCluster> result = openshiftProjectService.fetchProjects();
 
@@ -136,4 +129,242 @@ public class OpenshiftProjectServiceTest {
         result.forEach(projectCluster ->
                 assertEquals(projectCluster.getProject(), projectCluster.getProject().toUpperCase()));
     }
+
+    @Test
+    void givenAResponseWithUnknownFieldsAndItemsWithoutMetadata_whenFetchProjects_thenOnlyNamedCdProjectsAreReturned() {
+        // given
+        var projectList = """
+                {
+                  "kind": "ProjectList",
+                  "apiVersion": "project.openshift.io/v1",
+                  "metadata": {"resourceVersion": "123", "name": "not-a-project-cd"},
+                  "items": [
+                    {"status": {"phase": "Active"}},
+                    {"metadata": {"labels": {"name": "label-cd"}, "annotations": {}, "name": "first-cd"},
+                     "spec": {"finalizers": ["kubernetes"]}},
+                    {"metadata": {"name": null}},
+                    {"metadata": {"name": "second-cd", "uid": "abc"}}
+                  ]
+                }
+                """;
+
+        givenClusterAnswers(CLUSTER1_URL, projectList);
+        givenClusterAnswers(CLUSTER2_URL, "{}");
+
+        // when
+        List<OpenshiftProjectCluster> result = openshiftProjectService.fetchProjects();
+
+        // then
+        assertThat(result).containsExactly(
+                new OpenshiftProjectCluster("FIRST", "cluster1"),
+                new OpenshiftProjectCluster("SECOND", "cluster1"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void givenAClusterSlowerThanItsDeadline_whenFetchProjects_thenReturnProjectsFromTheOtherClusters() {
+        // given
+        openshiftClusterConfig.setClusterTimeout(Duration.ofMillis(200));
+
+        var projectList = projectList("myapp-cd");
+
+        givenClusterAnswers(CLUSTER1_URL, projectList);
+
+        when(mockRestTemplate.execute(
+                argThat(clusterUri(CLUSTER2_URL)),
+                eq(HttpMethod.GET),
+                any(RequestCallback.class),
+                any(ResponseExtractor.class)
+        )).thenAnswer(invocation -> {
+            Thread.sleep(5_000);
+            return extract(invocation, projectList);
+        });
+
+        // when
+        long start = System.nanoTime();
+        List<OpenshiftProjectCluster> result = openshiftProjectService.fetchProjects();
+        long elapsed = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        // then
+        assertThat(result).containsExactly(new OpenshiftProjectCluster("MYAPP", "cluster1"));
+        assertThat(elapsed).isLessThan(5_000);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void givenAClusterSlowerThanTheOverallBudget_whenFetchProjects_thenReturnProjectsFromTheOtherClusters() {
+        // given
+        openshiftClusterConfig.setOverallTimeout(Duration.ofMillis(200));
+
+        var projectList = projectList("myapp-cd");
+
+        givenClusterAnswers(CLUSTER1_URL, projectList);
+
+        when(mockRestTemplate.execute(
+                argThat(clusterUri(CLUSTER2_URL)),
+                eq(HttpMethod.GET),
+                any(RequestCallback.class),
+                any(ResponseExtractor.class)
+        )).thenAnswer(invocation -> {
+            Thread.sleep(5_000);
+            return extract(invocation, projectList);
+        });
+
+        // when
+        List<OpenshiftProjectCluster> result = openshiftProjectService.fetchProjects();
+
+        // then
+        assertThat(result).containsExactly(new OpenshiftProjectCluster("MYAPP", "cluster1"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void givenTwoClusters_whenFetchProjects_thenLatencyIsRecordedPerClusterAndOutcome() {
+        // given
+        givenClusterAnswers(CLUSTER1_URL, projectList());
+
+        when(mockRestTemplate.execute(
+                argThat(clusterUri(CLUSTER2_URL)),
+                eq(HttpMethod.GET),
+                any(RequestCallback.class),
+                any(ResponseExtractor.class)
+        )).thenThrow(new HttpServerErrorException(HttpStatus.BAD_GATEWAY));
+
+        // when
+        openshiftProjectService.fetchProjects();
+
+        // then
+        assertThat(meterRegistry.get(DependencyMetrics.DEPENDENCY_CALLS_TIMER_NAME)
+                .tag("dependency", OpenShiftProjectService.DEPENDENCY_NAME)
+                .tag("target", "cluster1")
+                .tag("outcome", "success")
+                .timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(DependencyMetrics.DEPENDENCY_CALLS_TIMER_NAME)
+                .tag("dependency", OpenShiftProjectService.DEPENDENCY_NAME)
+                .tag("target", "cluster2")
+                .tag("outcome", "5xx")
+                .timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void givenAPagedProjectList_whenFetchProjects_thenEveryPageIsRequestedWithTheLabelSelectorAndLimit() {
+        // given
+        var restTemplate = new RestTemplate();
+        var stubApiServer = MockRestServiceServer.bindTo(restTemplate).build();
+        var service = singleClusterService(restTemplate, "opendevstack.org/project");
+        var firstPage = CLUSTER1_URL + PROJECTS_PATH + "?labelSelector=opendevstack.org/project&limit=2";
+
+        stubApiServer.expect(requestTo(firstPage))
+                .andExpect(header(HttpHeaders.AUTHORIZATION, "Bearer mytoken"))
+                .andRespond(withSuccess(projectPage("next-page", "first-cd", "second-cd"), MediaType.APPLICATION_JSON));
+        stubApiServer.expect(requestTo(firstPage + "&continue=next-page"))
+                .andRespond(withSuccess(projectPage(null, "third-cd"), MediaType.APPLICATION_JSON));
+
+        // when
+        List<OpenshiftProjectCluster> result = service.fetchProjects();
+
+        // then
+        stubApiServer.verify();
+        assertThat(result).containsExactly(
+                new OpenshiftProjectCluster("FIRST", "cluster1"),
+                new OpenshiftProjectCluster("SECOND", "cluster1"),
+                new OpenshiftProjectCluster("THIRD", "cluster1"));
+    }
+
+    @Test
+    void givenAnExpiredContinueToken_whenFetchProjects_thenTheListingStartsOverFromTheFirstPage() {
+        // given
+        var restTemplate = new RestTemplate();
+        var stubApiServer = MockRestServiceServer.bindTo(restTemplate).build();
+        var service = singleClusterService(restTemplate, null);
+        var firstPage = CLUSTER1_URL + PROJECTS_PATH + "?limit=2";
+
+        stubApiServer.expect(requestTo(firstPage))
+                .andRespond(withSuccess(projectPage("expired", "first-cd", "second-cd"), MediaType.APPLICATION_JSON));
+        stubApiServer.expect(requestTo(firstPage + "&continue=expired"))
+                .andRespond(withStatus(HttpStatus.GONE));
+        stubApiServer.expect(requestTo(firstPage))
+                .andRespond(withSuccess(projectPage(null, "first-cd"), MediaType.APPLICATION_JSON));
+
+        // when
+        List<OpenshiftProjectCluster> result = service.fetchProjects();
+
+        // then
+        stubApiServer.verify();
+        assertThat(result).containsExactly(new OpenshiftProjectCluster("FIRST", "cluster1"));
+    }
+
+    @Test
+    void givenAClusterSyncedInTheIndex_whenFetchProjects_thenItsProjectsAreReadFromTheIndex() {
+        // given
+        projectIndex.replace("cluster1", List.of(new OpenshiftProjectCluster("INDEXED", "cluster1")));
+
+        givenClusterAnswers(CLUSTER2_URL, projectList("listed-cd"));
+
+        // when
+        List<OpenshiftProjectCluster> result = openshiftProjectService.fetchProjects();
+
+        // then
+        assertThat(result).containsExactlyInAnyOrder(
+                new OpenshiftProjectCluster("INDEXED", "cluster1"),
+                new OpenshiftProjectCluster("LISTED", "cluster2"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenClusterAnswers(String clusterUrl, String projectList) {
+        when(mockRestTemplate.execute(
+                argThat(clusterUri(clusterUrl)),
+                eq(HttpMethod.GET),
+                any(RequestCallback.class),
+                any(ResponseExtractor.class)
+        )).thenAnswer(invocation -> extract(invocation, projectList));
+    }
+
+    // Runs the extractor of the service on the given body, as RestTemplate would do with the real response
+    private static Object extract(InvocationOnMock invocation, String body) throws IOException {
+        ResponseExtractor<?> responseExtractor = invocation.getArgument(3);
+
+        return responseExtractor.extractData(
+                new MockClientHttpResponse(body.getBytes(StandardCharsets.UTF_8), HttpStatus.OK));
+    }
+
+    private static ArgumentMatcher<URI> clusterUri(String clusterUrl) {
+        return uri -> uri != null && uri.toString().startsWith(clusterUrl + PROJECTS_PATH);
+    }
+
+    private OpenShiftProjectService singleClusterService(RestTemplate restTemplate, String labelSelector) {
+        var cluster = new HashMap<String, String>();
+        cluster.put("url", CLUSTER1_URL);
+        cluster.put("token", "mytoken");
+        cluster.put(OpenshiftClusterConfiguration.LABEL_SELECTOR_KEY, labelSelector);
+
+        var config = new OpenshiftClusterConfiguration();
+        config.setClusters(Map.of("cluster1", cluster));
+        config.setPageSize(2);
+
+        var service = new OpenShiftProjectService(restTemplate, new ObjectMapper(), config, executor,
+                new DependencyMetrics(meterRegistry), projectIndex);
+        ReflectionTestUtils.setField(service, "projectApiUrl", PROJECTS_PATH);
+
+        return service;
+    }
+
+    private static String projectPage(String continueToken, String... projectNames) {
+        var items = Arrays.stream(projectNames)
+                .map(name -> "{\"metadata\": {\"name\": \"" + name + "\"}}")
+                .collect(Collectors.joining(", "));
+        var continueField = continueToken == null ? "" : ", \"continue\": \"" + continueToken + "\"";
+
+        return "{\"kind\": \"ProjectList\", \"metadata\": {\"resourceVersion\": \"42\"" + continueField + "}, "
+                + "\"items\": [" + items + "]}";
+    }
+
+    private static String projectList(String... projectNames) {
+        var items = Arrays.stream(projectNames)
+                .map(name -> "{\"metadata\": {\"name\": \"" + name + "\"}, \"status\": {\"phase\": \"Active\"}}")
+                .collect(Collectors.joining(", "));
+
+        return "{\"kind\": \"ProjectList\", \"apiVersion\": \"project.openshift.io/v1\", \"metadata\": {}, "
+                + "\"items\": [" + items + "]}";
+    }
 }
@@ -0,0 +1,95 @@
+package org.opendevstack.projects_info_service.server.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.opendevstack.projects_info_service.server.model.OpenshiftProjectCluster;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OpenshiftProjectsCacheWarmerTest {
+
+    @Mock
+    private OpenShiftProjectService openShiftProjectService;
+
+    @Mock
+    private CacheManager cacheManager;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final ConcurrentMapCache primaryCache = new ConcurrentMapCache(OpenShiftProjectService.PROJECTS_CACHE_NAME);
+
+    private final ConcurrentMapCache fallbackCache =
+            new ConcurrentMapCache(OpenShiftProjectService.PROJECTS_FALLBACK_CACHE_NAME);
+
+    private OpenshiftProjectsCacheWarmer warmer;
+
+    @BeforeEach
+    void setUp() {
+        warmer = new OpenshiftProjectsCacheWarmer(openShiftProjectService, cacheManager, meterRegistry);
+    }
+
+    @Test
+    void givenNoWarmYet_whenHealth_thenOutOfService() {
+        // when
+        var health = warmer.health();
+
+        // then
+        assertThat(health.getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+        assertThat(meterRegistry.get(OpenshiftProjectsCacheWarmer.STALENESS_GAUGE_NAME).gauge().value()).isNaN();
+    }
+
+    @Test
+    void givenClustersAnswer_whenWarm_thenBothCachesAreFilled_andHealthIsUp() {
+        // given
+        var projects = List.of(OpenshiftProjectCluster.builder().project("PROJECT1").cluster("eu").build());
+
+        when(openShiftProjectService.loadProjects()).thenReturn(projects);
+        when(cacheManager.getCache(OpenShiftProjectService.PROJECTS_CACHE_NAME)).thenReturn(primaryCache);
+        when(cacheManager.getCache(OpenShiftProjectService.PROJECTS_FALLBACK_CACHE_NAME)).thenReturn(fallbackCache);
+
+        // when
+        warmer.warm();
+
+        // then
+        assertThat(primaryCache.get(OpenShiftProjectService.PROJECTS_CACHE_KEY, List.class)).isEqualTo(projects);
+        assertThat(fallbackCache.get(OpenShiftProjectService.PROJECTS_CACHE_KEY, List.class)).isEqualTo(projects);
+
+        var health = warmer.health();
+        assertThat(health.getStatus()).isEqualTo(Status.UP);
+        assertThat(health.getDetails()).containsEntry("projects", 1);
+
+        assertThat(meterRegistry.get(OpenshiftProjectsCacheWarmer.WARM_TIMER_NAME).tag("outcome", "success")
+                .timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(OpenshiftProjectsCacheWarmer.STALENESS_GAUGE_NAME).gauge().value())
+                .isGreaterThanOrEqualTo(0.0);
+    }
+
+    @Test
+    void givenNoClusterAnswers_whenWarm_thenCachesAreKept_andHealthIsOutOfService() {
+        // given
+        var cachedProjects = List.of(OpenshiftProjectCluster.builder().project("PROJECT1").cluster("eu").build());
+        primaryCache.put(OpenShiftProjectService.PROJECTS_CACHE_KEY, cachedProjects);
+
+        when(openShiftProjectService.loadProjects()).thenReturn(List.of());
+
+        // when
+        warmer.warm();
+
+        // then
+        assertThat(primaryCache.get(OpenShiftProjectService.PROJECTS_CACHE_KEY, List.class)).isEqualTo(cachedProjects);
+        assertThat(warmer.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+        assertThat(meterRegistry.get(OpenshiftProjectsCacheWarmer.WARM_TIMER_NAME).tag("outcome", "error")
+                .timer().count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,241 @@
+package org.opendevstack.projects_info_service.server.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.opendevstack.projects_info_service.configuration.OpenshiftClusterConfiguration;
+import org.opendevstack.projects_info_service.server.annotations.CacheableWithFallbackAspect;
+import org.opendevstack.projects_info_service.server.metrics.DependencyMetrics;
+import org.opendevstack.projects_info_service.server.model.OpenshiftProjectCluster;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+@ExtendWith(MockitoExtension.class)
+class OpenshiftProjectsWatcherTest {
+
+    private static final String CLUSTER = "cluster1";
+    private static final String PROJECTS_URL = "https://cluster1.example.com/apis/project.openshift.io/v1/projects";
+    private static final Map<String, String> CLUSTER_VALUES = Map.of("url", "https://cluster1.example.com",
+            "token", "mytoken");
+
+    @Mock
+    private OpenShiftProjectService openShiftProjectService;
+
+    @Mock
+    private CacheManager cacheManager;
+
+    @Mock
+    private ExecutorService executor;
+
+    private final OpenshiftProjectIndex projectIndex = new OpenshiftProjectIndex();
+
+    private final ConcurrentMapCache primaryCache = new ConcurrentMapCache(OpenShiftProjectService.PROJECTS_CACHE_NAME);
+
+    private final ConcurrentMapCache fallbackCache =
+            new ConcurrentMapCache(OpenShiftProjectService.PROJECTS_FALLBACK_CACHE_NAME);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private MockRestServiceServer stubApiServer;
+
+    private OpenshiftProjectsWatcher watcher;
+
+    @BeforeEach
+    void setUp() {
+        var restTemplate = new RestTemplate();
+        stubApiServer = MockRestServiceServer.bindTo(restTemplate).build();
+
+        var config = new OpenshiftClusterConfiguration();
+        config.setClusters(Map.of(CLUSTER, CLUSTER_VALUES));
+
+        watcher = new OpenshiftProjectsWatcher(openShiftProjectService, projectIndex, config, cacheManager,
+                restTemplate, new ObjectMapper(), executor, meterRegistry, Duration.ofMinutes(5),
+                Duration.ofSeconds(5));
+
+        // The watcher only reads events while it is running
+        ReflectionTestUtils.setField(watcher, "running", true);
+    }
+
+    @Test
+    void givenNoResourceVersion_whenSync_thenTheClusterIsListedIntoTheIndex() {
+        // given
+        var listing = new OpenShiftProjectService.ClusterListing(
+                List.of(new OpenshiftProjectCluster("FIRST", CLUSTER)), "10");
+
+        when(openShiftProjectService.listClusterProjects(CLUSTER, CLUSTER_VALUES)).thenReturn(listing);
+        when(openShiftProjectService.loadProjects()).thenAnswer(invocation -> projectIndex.projects(CLUSTER));
+        when(cacheManager.getCache(OpenShiftProjectService.PROJECTS_CACHE_NAME)).thenReturn(primaryCache);
+        when(cacheManager.getCache(OpenShiftProjectService.PROJECTS_FALLBACK_CACHE_NAME)).thenReturn(fallbackCache);
+
+        // when
+        var resourceVersion = watcher.sync(CLUSTER, CLUSTER_VALUES, null);
+
+        // then
+        assertThat(resourceVersion).isEqualTo("10");
+        assertThat(projectIndex.isSynced(CLUSTER)).isTrue();
+        assertThat(projectIndex.projects(CLUSTER)).containsExactly(new OpenshiftProjectCluster("FIRST", CLUSTER));
+        assertThat(primaryCache.get(OpenShiftProjectService.PROJECTS_CACHE_KEY, List.class))
+                .containsExactly(new OpenshiftProjectCluster("FIRST", CLUSTER));
+    }
+
+    @Test
+    void givenAWatchStream_whenSync_thenEventsAreAppliedAndTheCachesAreRefreshed() {
+        // given
+        projectIndex.replace(CLUSTER, List.of(new OpenshiftProjectCluster("FIRST", CLUSTER)));
+        primaryCache.put(OpenShiftProjectService.PROJECTS_CACHE_KEY, List.of());
+
+        when(openShiftProjectService.projectsUrl(CLUSTER_VALUES)).thenReturn(PROJECTS_URL);
+        when(openShiftProjectService.loadProjects()).thenAnswer(invocation -> projectIndex.projects(CLUSTER));
+        when(cacheManager.getCache(OpenShiftProjectService.PROJECTS_CACHE_NAME)).thenReturn(primaryCache);
+        when(cacheManager.getCache(OpenShiftProjectService.PROJECTS_FALLBACK_CACHE_NAME)).thenReturn(fallbackCache);
+
+        stubApiServer.expect(requestTo(PROJECTS_URL
+                        + "?watch=true&resourceVersion=10&allowWatchBookmarks=true&timeoutSeconds=300"))
+                .andRespond(withSuccess("""
+                        {"type": "ADDED", "object": {"metadata": {"name": "second-cd", "resourceVersion": "11"}}}
+                        {"type": "ADDED", "object": {"metadata": {"name": "ignored", "resourceVersion": "12"}}}
+                        {"type": "DELETED", "object": {"metadata": {"name": "first-cd", "resourceVersion": "13"}}}
+                        {"type": "BOOKMARK", "object": {"metadata": {"resourceVersion": "14"}}}
+                        """, MediaType.APPLICATION_JSON));
+
+        // when
+        var resourceVersion = watcher.sync(CLUSTER, CLUSTER_VALUES, "10");
+
+        // then
+        stubApiServer.verify();
+        assertThat(resourceVersion).isEqualTo("14");
+        assertThat(projectIndex.projects(CLUSTER)).containsExactly(new OpenshiftProjectCluster("SECOND", CLUSTER));
+        assertThat(primaryCache.get(OpenShiftProjectService.PROJECTS_CACHE_KEY, List.class))
+                .containsExactly(new OpenshiftProjectCluster("SECOND", CLUSTER));
+        assertThat(fallbackCache.get(OpenShiftProjectService.PROJECTS_CACHE_KEY, List.class))
+                .containsExactly(new OpenshiftProjectCluster("SECOND", CLUSTER));
+        assertThat(meterRegistry.get(OpenshiftProjectsWatcher.EVENTS_COUNTER_NAME)
+                .tag("cluster", CLUSTER)
+                .tag("type", "ADDED")
+                .counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void givenAProjectAddedOnAWatchedCluster_whenFetchProjects_thenTheChangedListIsReturned() {
+        // given
+        var config = new OpenshiftClusterConfiguration();
+        config.setClusters(Map.of(CLUSTER, CLUSTER_VALUES));
+
+        var service = new OpenShiftProjectService(new RestTemplate(), new ObjectMapper(), config, executor,
+                new DependencyMetrics(meterRegistry), projectIndex);
+        ReflectionTestUtils.setField(service, "projectApiUrl", "/apis/project.openshift.io/v1/projects");
+
+        var projectsCacheManager = new SimpleCacheManager();
+        projectsCacheManager.setCaches(List.of(primaryCache, fallbackCache));
+        projectsCacheManager.initializeCaches();
+
+        var proxyFactory = new AspectJProxyFactory(service);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(new CacheableWithFallbackAspect(projectsCacheManager, Runnable::run,
+                Mockito.mock(BeanFactory.class), meterRegistry));
+        OpenShiftProjectService cachedService = proxyFactory.getProxy();
+
+        var restTemplate = new RestTemplate();
+        var watchServer = MockRestServiceServer.bindTo(restTemplate).build();
+        var projectsWatcher = new OpenshiftProjectsWatcher(service, projectIndex, config, projectsCacheManager,
+                restTemplate, new ObjectMapper(), executor, meterRegistry, Duration.ofMinutes(5),
+                Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(projectsWatcher, "running", true);
+
+        projectIndex.replace(CLUSTER, List.of(new OpenshiftProjectCluster("FIRST", CLUSTER)));
+        var staleProjects = List.of(new OpenshiftProjectCluster("FIRST", CLUSTER));
+        primaryCache.put(OpenShiftProjectService.PROJECTS_CACHE_KEY, staleProjects);
+        fallbackCache.put(OpenShiftProjectService.PROJECTS_CACHE_KEY, staleProjects);
+
+        watchServer.expect(requestTo(PROJECTS_URL
+                        + "?watch=true&resourceVersion=10&allowWatchBookmarks=true&timeoutSeconds=300"))
+                .andRespond(withSuccess("""
+                        {"type": "ADDED", "object": {"metadata": {"name": "second-cd", "resourceVersion": "11"}}}
+                        """, MediaType.APPLICATION_JSON));
+
+        projectsWatcher.sync(CLUSTER, CLUSTER_VALUES, "10");
+
+        // when
+        var projects = cachedService.fetchProjects();
+
+        // then
+        assertThat(projects).containsExactlyInAnyOrder(new OpenshiftProjectCluster("FIRST", CLUSTER),
+                new OpenshiftProjectCluster("SECOND", CLUSTER));
+    }
+
+    @Test
+    void givenAnExpiredResourceVersionEvent_whenSync_thenTheClusterHasToBeListedAgain() {
+        // given
+        when(openShiftProjectService.projectsUrl(CLUSTER_VALUES)).thenReturn(PROJECTS_URL);
+
+        stubApiServer.expect(requestTo(PROJECTS_URL
+                        + "?watch=true&resourceVersion=10&allowWatchBookmarks=true&timeoutSeconds=300"))
+                .andRespond(withSuccess("""
+                        {"type": "ERROR", "object": {"kind": "Status", "code": 410, "reason": "Expired"}}
+                        """, MediaType.APPLICATION_JSON));
+
+        // when
+        var resourceVersion = watcher.sync(CLUSTER, CLUSTER_VALUES, "10");
+
+        // then
+        assertThat(resourceVersion).isNull();
+    }
+
+    @Test
+    void givenAnErrorEvent_whenSync_thenTheWatchFails() {
+        // given
+        when(openShiftProjectService.projectsUrl(CLUSTER_VALUES)).thenReturn(PROJECTS_URL);
+
+        stubApiServer.expect(requestTo(PROJECTS_URL
+                        + "?watch=true&resourceVersion=10&allowWatchBookmarks=true&timeoutSeconds=300"))
+                .andRespond(withSuccess("""
+                        {"type": "ERROR", "object": {"kind": "Status", "code": 500, "message": "Internal error"}}
+                        """, MediaType.APPLICATION_JSON));
+
+        // when / then
+        assertThatThrownBy(() -> watcher.sync(CLUSTER, CLUSTER_VALUES, "10"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Internal error");
+    }
+
+    @Test
+    void givenAGoneWatchRequest_whenSync_thenTheClusterHasToBeListedAgain() {
+        // given
+        when(openShiftProjectService.projectsUrl(CLUSTER_VALUES)).thenReturn(PROJECTS_URL);
+
+        stubApiServer.expect(requestTo(PROJECTS_URL
+                        + "?watch=true&resourceVersion=10&allowWatchBookmarks=true&timeoutSeconds=300"))
+                .andRespond(withStatus(HttpStatus.GONE));
+
+        // when
+        var resourceVersion = watcher.sync(CLUSTER, CLUSTER_VALUES, "10");
+
+        // then
+        assertThat(resourceVersion).isNull();
+    }
+}
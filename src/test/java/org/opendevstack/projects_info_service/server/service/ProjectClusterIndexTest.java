@@ -0,0 +1,122 @@
+package org.opendevstack.projects_info_service.server.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.opendevstack.projects_info_service.server.dto.ProjectInfo;
+import org.opendevstack.projects_info_service.server.model.OpenshiftProjectCluster;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ProjectClusterIndexTest {
+
+    @Mock
+    private OpenShiftProjectService openShiftProjectService;
+
+    @Mock
+    private MocksService mocksService;
+
+    private ProjectClusterIndex projectClusterIndex;
+
+    @BeforeEach
+    void setUp() {
+        projectClusterIndex = new ProjectClusterIndex(openShiftProjectService, mocksService);
+    }
+
+    @Test
+    void givenOpenShiftAndMockProjects_whenClustersOf_thenClustersAreMergedAndOrdered() {
+        // given
+        var openshiftProjects = List.of(
+                new OpenshiftProjectCluster("PROJECT", "us-test"),
+                new OpenshiftProjectCluster("PROJECT", " "),
+                new OpenshiftProjectCluster("PROJECT", "eu"),
+                new OpenshiftProjectCluster("OTHER", "cn"));
+
+        when(openShiftProjectService.fetchProjects()).thenReturn(openshiftProjects);
+        when(mocksService.getDefaultProjectsAndClusters())
+                .thenReturn(Map.of("PROJECT", new ProjectInfo("PROJECT", List.of("inh")),
+                        "MOCKED", new ProjectInfo("MOCKED", List.of("us"))));
+
+        // when / then
+        assertThat(projectClusterIndex.clustersOf("PROJECT")).containsExactly("eu", "inh", "us-test");
+        assertThat(projectClusterIndex.clustersOf("MOCKED")).containsExactly("us");
+        assertThat(projectClusterIndex.clustersOf("UNKNOWN")).isEmpty();
+    }
+
+    @Test
+    void givenSeveralProjectKeys_whenClustersOf_thenKnownProjectsAreReturnedInRequestOrder() {
+        // given
+        var openshiftProjects = List.of(
+                new OpenshiftProjectCluster("FIRST", "us"),
+                new OpenshiftProjectCluster("SECOND", "eu"));
+
+        when(openShiftProjectService.fetchProjects()).thenReturn(openshiftProjects);
+
+        // when
+        var clustersByProject = projectClusterIndex.clustersOf(List.of("SECOND", "UNKNOWN", "FIRST"));
+
+        // then
+        assertThat(clustersByProject).containsExactly(
+                Map.entry("SECOND", List.of("eu")),
+                Map.entry("FIRST", List.of("us")));
+        verify(openShiftProjectService, times(1)).fetchProjects();
+    }
+
+    @Test
+    void givenOpenShiftAndMockProjects_whenOpenshiftClustersOf_thenOnlyOpenShiftClustersAreReturned() {
+        // given
+        var openshiftProjects = List.of(
+                new OpenshiftProjectCluster("PROJECT", "us-test"),
+                new OpenshiftProjectCluster("PROJECT", "eu"),
+                new OpenshiftProjectCluster("PROJECT", "eu"));
+
+        when(openShiftProjectService.fetchProjects()).thenReturn(openshiftProjects);
+        when(mocksService.getDefaultProjectsAndClusters())
+                .thenReturn(Map.of("PROJECT", new ProjectInfo("PROJECT", List.of("inh"))));
+
+        // when / then
+        assertThat(projectClusterIndex.openshiftClustersOf("PROJECT")).containsExactly("us-test", "eu");
+        assertThat(projectClusterIndex.openshiftClustersOf("UNKNOWN")).isEmpty();
+    }
+
+    @Test
+    void givenTheSameOpenShiftProjectList_whenClustersOfIsCalledAgain_thenTheIndexIsNotRebuilt() {
+        // given
+        var openshiftProjects = List.of(new OpenshiftProjectCluster("PROJECT", "eu"));
+
+        when(openShiftProjectService.fetchProjects()).thenReturn(openshiftProjects);
+
+        // when
+        projectClusterIndex.clustersOf("PROJECT");
+        var clusters = projectClusterIndex.clustersOf("PROJECT");
+
+        // then
+        assertThat(clusters).containsExactly("eu");
+        verify(mocksService, times(1)).getDefaultProjectsAndClusters();
+    }
+
+    @Test
+    void givenARefreshedOpenShiftProjectList_whenClustersOf_thenTheIndexIsRebuilt() {
+        // given
+        when(openShiftProjectService.fetchProjects())
+                .thenReturn(List.of(new OpenshiftProjectCluster("PROJECT", "eu")))
+                .thenReturn(List.of(new OpenshiftProjectCluster("PROJECT", "us")));
+
+        // when
+        var before = projectClusterIndex.clustersOf("PROJECT");
+        var after = projectClusterIndex.clustersOf("PROJECT");
+
+        // then
+        assertThat(before).containsExactly("eu");
+        assertThat(after).containsExactly("us");
+    }
+}
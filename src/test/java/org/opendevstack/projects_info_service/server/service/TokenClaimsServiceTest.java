@@ -0,0 +1,169 @@
+package org.opendevstack.projects_info_service.server.service;
+
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.PlainJWT;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.opendevstack.projects_info_service.server.exception.UnableToReachAzureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TokenClaimsServiceTest {
+
+    private static final String GROUP_ID = "6f1b2c3d-4e5f-4a6b-8c7d-9e0f1a2b3c4d";
+    private static final String OTHER_GROUP_ID = "0a1b2c3d-4e5f-4a6b-8c7d-9e0f1a2b3c4d";
+
+    @Mock
+    private GroupDirectory groupDirectory;
+
+    @InjectMocks
+    private TokenClaimsService tokenClaimsService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(tokenClaimsService, "enabled", true);
+    }
+
+    @Test
+    void givenATokenWithGroupIds_whenGetUserGroups_thenIdsAreResolvedThroughTheDirectory() {
+        // given
+        var token = token(new JWTClaimsSet.Builder()
+                .claim("groups", List.of(GROUP_ID, OTHER_GROUP_ID, "BI-AS-ATLASSIAN-P-EDPC-MANAGER"))
+                .build());
+
+        when(groupDirectory.displayNamesOf(Set.of(GROUP_ID, OTHER_GROUP_ID)))
+                .thenReturn(Map.of(GROUP_ID, "BI-AS-ATLASSIAN-P-EDPC-TEAM"));
+
+        // when
+        var userGroups = tokenClaimsService.getUserGroups(token);
+
+        // then
+        assertThat(userGroups).hasValueSatisfying(groups -> assertThat(groups)
+                .containsExactlyInAnyOrder("BI-AS-ATLASSIAN-P-EDPC-TEAM", "BI-AS-ATLASSIAN-P-EDPC-MANAGER"));
+    }
+
+    @Test
+    void givenATokenWithGroupsOverage_whenGetUserGroups_thenNoGroupsAreReturned() {
+        // given
+        var token = token(new JWTClaimsSet.Builder()
+                .claim("_claim_names", Map.of("groups", "src1"))
+                .claim("_claim_sources", Map.of("src1", Map.of("endpoint", "https://graph.windows.net/")))
+                .build());
+
+        // when
+        var userGroups = tokenClaimsService.getUserGroups(token);
+
+        // then
+        assertThat(userGroups).isEmpty();
+        verifyNoInteractions(groupDirectory);
+    }
+
+    @Test
+    void givenATokenWithHasGroups_whenGetUserGroups_thenNoGroupsAreReturned() {
+        // given
+        var token = token(new JWTClaimsSet.Builder().claim("hasgroups", true).build());
+
+        // when
+        var userGroups = tokenClaimsService.getUserGroups(token);
+
+        // then
+        assertThat(userGroups).isEmpty();
+    }
+
+    @Test
+    void givenATokenWithoutGroupsClaim_whenGetUserGroups_thenNoGroupsAreReturned() {
+        // given
+        var token = token(new JWTClaimsSet.Builder().claim("oid", "user").build());
+
+        // when
+        var userGroups = tokenClaimsService.getUserGroups(token);
+
+        // then
+        assertThat(userGroups).isEmpty();
+    }
+
+    @Test
+    void givenAnUnreachableDirectory_whenGetUserGroups_thenNoGroupsAreReturned() {
+        // given
+        var token = token(new JWTClaimsSet.Builder().claim("groups", List.of(GROUP_ID)).build());
+
+        when(groupDirectory.displayNamesOf(Set.of(GROUP_ID)))
+                .thenThrow(new UnableToReachAzureException("Unable to reach Azure", null));
+
+        // when
+        var userGroups = tokenClaimsService.getUserGroups(token);
+
+        // then
+        assertThat(userGroups).isEmpty();
+    }
+
+    @Test
+    void givenDisabledTokenClaims_whenGetUserGroupsAndEmail_thenNothingIsReturned() {
+        // given
+        var token = token(new JWTClaimsSet.Builder()
+                .claim("groups", List.of("BI-AS-ATLASSIAN-P-EDPC-TEAM"))
+                .claim("email", "user@example.com")
+                .build());
+
+        ReflectionTestUtils.setField(tokenClaimsService, "enabled", false);
+
+        // when
+        var userGroups = tokenClaimsService.getUserGroups(token);
+        var userEmail = tokenClaimsService.getUserEmail(token);
+
+        // then
+        assertThat(userGroups).isEmpty();
+        assertThat(userEmail).isEmpty();
+    }
+
+    @Test
+    void givenATokenWithEmail_whenGetUserEmail_thenEmailIsReturned() {
+        // given
+        var token = token(new JWTClaimsSet.Builder().claim("email", "user@example.com").build());
+
+        // when
+        var userEmail = tokenClaimsService.getUserEmail(token);
+
+        // then
+        assertThat(userEmail).contains("user@example.com");
+    }
+
+    @Test
+    void givenAnUnreadableToken_whenGetUserEmail_thenNothingIsReturned() {
+        // when
+        var userEmail = tokenClaimsService.getUserEmail("not-a-jwt");
+
+        // then
+        assertThat(userEmail).isEmpty();
+    }
+
+    @Test
+    void givenDisabledTokenClaims_whenGetUserObjectId_thenObjectIdIsReturned() {
+        // given
+        ReflectionTestUtils.setField(tokenClaimsService, "enabled", false);
+
+        var token = token(new JWTClaimsSet.Builder().claim("oid", "user-id").build());
+
+        // when
+        var userObjectId = tokenClaimsService.getUserObjectId(token);
+
+        // then
+        assertThat(userObjectId).contains("user-id");
+    }
+
+    private String token(JWTClaimsSet claims) {
+        return new PlainJWT(claims).serialize();
+    }
+}
@@ -0,0 +1,91 @@
+package org.opendevstack.projects_info_service.server.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.opendevstack.projects_info_service.server.client.AzureGraphClient;
+import org.opendevstack.projects_info_service.server.exception.UnableToReachAzureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UserGroupsServiceTest {
+
+    private static final String GRAPH_TOKEN = "graph-token";
+
+    @Mock
+    private AzureGraphClient azureGraphClient;
+
+    @Mock
+    private GroupDirectory groupDirectory;
+
+    @InjectMocks
+    private UserGroupsService userGroupsService;
+
+    @Test
+    void givenGroupsByName_whenGetUserGroups_thenMemberOfGroupsAreReturned() {
+        // given
+        when(azureGraphClient.getUserGroups(GRAPH_TOKEN)).thenReturn(Set.of("Group1"));
+
+        // when
+        var userGroups = userGroupsService.getUserGroups(GRAPH_TOKEN);
+
+        // then
+        assertThat(userGroups).containsExactly("Group1");
+        verifyNoInteractions(groupDirectory);
+    }
+
+    @Test
+    void givenGroupsById_whenGetUserGroups_thenIdsAreResolvedThroughTheDirectory() {
+        // given
+        ReflectionTestUtils.setField(userGroupsService, "byId", true);
+
+        when(azureGraphClient.getUserGroupIds(GRAPH_TOKEN)).thenReturn(List.of("id1", "id2"));
+        when(groupDirectory.displayNamesOf(List.of("id1", "id2"))).thenReturn(Map.of("id1", "Group1", "id2", "Group2"));
+
+        // when
+        var userGroups = userGroupsService.getUserGroups(GRAPH_TOKEN);
+
+        // then
+        assertThat(userGroups).containsExactlyInAnyOrder("Group1", "Group2");
+    }
+
+    @Test
+    void givenGroupsByIdAndAnUnreachableDirectory_whenGetUserGroups_thenMemberOfGroupsAreReturned() {
+        // given
+        ReflectionTestUtils.setField(userGroupsService, "byId", true);
+
+        when(azureGraphClient.getUserGroupIds(GRAPH_TOKEN)).thenReturn(List.of("id1"));
+        when(groupDirectory.displayNamesOf(List.of("id1")))
+                .thenThrow(new UnableToReachAzureException("Unable to reach Azure", null));
+        when(azureGraphClient.getUserGroups(GRAPH_TOKEN)).thenReturn(Set.of("Group1"));
+
+        // when
+        var userGroups = userGroupsService.getUserGroups(GRAPH_TOKEN);
+
+        // then
+        assertThat(userGroups).containsExactly("Group1");
+    }
+
+    @Test
+    void givenGroupsByIdAndBatchWithEmail_whenBatchesWithEmail_thenGroupsAreNotBatched() {
+        // given
+        ReflectionTestUtils.setField(userGroupsService, "byId", true);
+        ReflectionTestUtils.setField(userGroupsService, "batchWithEmail", true);
+
+        // when
+        var batchesWithEmail = userGroupsService.batchesWithEmail();
+
+        // then
+        assertThat(batchesWithEmail).isFalse();
+    }
+}